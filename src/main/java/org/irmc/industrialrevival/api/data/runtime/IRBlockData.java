@@ -1,22 +1,29 @@
 package org.irmc.industrialrevival.api.data.runtime;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.irmc.industrialrevival.api.elements.compounds.CompoundContainer;
 import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.machines.process.Environment;
 import org.irmc.industrialrevival.api.menu.MachineMenu;
+import org.irmc.industrialrevival.api.data.sql.BlockDataCodec;
 import org.irmc.industrialrevival.api.data.sql.BlockRecord;
 
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
+import org.irmc.industrialrevival.utils.Constants;
 import org.irmc.industrialrevival.utils.DataUtil;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Describer of a {@link IndustrialRevivalItem} blocks
@@ -32,6 +39,11 @@ import java.util.Map;
  *     <li>Access block metadata through {@link #getMapData()}</li>
  *     <li>Create instances from database records via {@link #warp(BlockRecord)}</li>
  *     <li>Store location-specific machine information</li>
+ *     <li>Track whether the data changed since it was last saved via {@link #isDirty()}</li>
+ *     <li>Access the hot values of machines ({@link #getEnergy()}, {@link #getProgress()},
+ *     {@link #getAttribute(int)}) as primitives, they are only serialized when the block is saved</li>
+ *     <li>Hold the chemical state of the block ({@link #getCompounds()}, {@link #getEnvironment()}),
+ *     which is saved along with it</li>
  * </ul>
  * </p>
  *
@@ -42,6 +54,11 @@ import java.util.Map;
  */
 @Getter
 public class IRBlockData {
+    /**
+     * The amount of attribute slots of every block.
+     */
+    public static final int ATTRIBUTE_SLOTS = 8;
+
     private final NamespacedKey id;
 
     @ApiStatus.Experimental
@@ -53,22 +70,243 @@ public class IRBlockData {
     private final Location location;
     private final YamlConfiguration data = new YamlConfiguration();
 
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    /**
+     * The energy stored in the block.
+     */
+    private volatile long energy;
+
+    /**
+     * The progress of the block, e.g. the ticks spent on the current operation.
+     */
+    private volatile int progress;
+
+    @Getter(AccessLevel.NONE)
+    private final long[] attributes = new long[ATTRIBUTE_SLOTS];
+
+    /**
+     * The compounds in the block, null if the block holds none.
+     */
+    @Nullable
+    private volatile CompoundContainer compounds;
+
+    /**
+     * The environment inside the block, null if the block has none.
+     */
+    @Nullable
+    private volatile Environment environment;
+
     @ApiStatus.Internal
     public IRBlockData(NamespacedKey id, Location location, @NotNull ConfigurationSection config, @Nullable MachineMenu menu) {
         this.id = id;
         this.location = location;
         this.config = config;
         this.machineMenu = menu;
+
+        if (config instanceof TrackedYamlConfiguration tracked) {
+            tracked.setChangeListener(this::markDirty);
+        }
     }
 
     public static IRBlockData warp(BlockRecord record) {
         var loc = record.getLocation();
-        return new IRBlockData(
+        BlockDataCodec.Decoded decoded = record.getDecodedData();
+        IRBlockData blockData = new IRBlockData(
                 record.getMachineId(),
                 loc,
-                record.getData(),
+                decoded.config(),
                 new MachineMenu(loc, IndustrialRevival.getInstance().getRegistry().getMenuPresets().get(record.getMachineId()))
         );
+
+        blockData.energy = decoded.energy();
+        blockData.progress = decoded.progress();
+        System.arraycopy(decoded.attributes(), 0, blockData.attributes, 0, Math.min(ATTRIBUTE_SLOTS, decoded.attributes().length));
+        blockData.compounds = decoded.compounds();
+        blockData.environment = decoded.environment();
+        blockData.migrateLegacyEnergy();
+        return blockData;
+    }
+
+    /**
+     * Moves the energy charge stored as a string by older versions into {@link #energy}.
+     */
+    private void migrateLegacyEnergy() {
+        String legacyEnergy = config.getString(Constants.Keys.ENERGY_CHARGE_KEY);
+        if (legacyEnergy == null) {
+            return;
+        }
+
+        try {
+            energy = Long.parseLong(legacyEnergy);
+        } catch (NumberFormatException ignored) {
+        }
+        removeData(Constants.Keys.ENERGY_CHARGE_KEY);
+    }
+
+    /**
+     * Sets the energy stored in the block.
+     *
+     * @param energy the energy
+     */
+    public void setEnergy(long energy) {
+        if (this.energy != energy) {
+            this.energy = energy;
+            markDirty();
+        }
+    }
+
+    /**
+     * Sets the progress of the block.
+     *
+     * @param progress the progress
+     */
+    public void setProgress(int progress) {
+        if (this.progress != progress) {
+            this.progress = progress;
+            markDirty();
+        }
+    }
+
+    /**
+     * Gets an attribute of the block. What an attribute slot means is up to the item of the block.
+     *
+     * @param slot the attribute slot, from 0 to {@link #ATTRIBUTE_SLOTS} (exclusive)
+     * @return the value of the attribute, 0 if it was never set
+     */
+    public long getAttribute(int slot) {
+        return attributes[slot];
+    }
+
+    /**
+     * Sets an attribute of the block.
+     *
+     * @param slot  the attribute slot, from 0 to {@link #ATTRIBUTE_SLOTS} (exclusive)
+     * @param value the value of the attribute
+     */
+    public void setAttribute(int slot, long value) {
+        if (attributes[slot] != value) {
+            attributes[slot] = value;
+            markDirty();
+        }
+    }
+
+    /**
+     * Gets an attribute of the block which was set by {@link #setAttributeDouble(int, double)}.
+     *
+     * @param slot the attribute slot, from 0 to {@link #ATTRIBUTE_SLOTS} (exclusive)
+     * @return the value of the attribute, 0 if it was never set
+     */
+    public double getAttributeDouble(int slot) {
+        return Double.longBitsToDouble(attributes[slot]);
+    }
+
+    /**
+     * Sets an attribute of the block to a floating point value.
+     *
+     * @param slot  the attribute slot, from 0 to {@link #ATTRIBUTE_SLOTS} (exclusive)
+     * @param value the value of the attribute
+     */
+    public void setAttributeDouble(int slot, double value) {
+        setAttribute(slot, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Gets a copy of all attributes, used to save the block.
+     *
+     * @return the attributes
+     */
+    @ApiStatus.Internal
+    public long @NotNull [] copyAttributes() {
+        return Arrays.copyOf(attributes, ATTRIBUTE_SLOTS);
+    }
+
+    /**
+     * Sets the compounds in the block. The block data has to be {@link #markDirty() marked}
+     * as changed after the compounds have been modified.
+     *
+     * @param compounds the compounds, or null to remove them
+     */
+    public void setCompounds(@Nullable CompoundContainer compounds) {
+        this.compounds = compounds;
+        markDirty();
+    }
+
+    /**
+     * Sets the environment inside the block. The block data has to be {@link #markDirty() marked}
+     * as changed after the environment has been modified.
+     *
+     * @param environment the environment, or null to remove it
+     */
+    public void setEnvironment(@Nullable Environment environment) {
+        this.environment = environment;
+        markDirty();
+    }
+
+    /**
+     * Sets a value in the config and marks the block data as changed.
+     *
+     * @param key   the key to set
+     * @param value the value, or null to remove the key
+     */
+    public void setData(@NotNull String key, @Nullable String value) {
+        config.set(key, value);
+        markDirty();
+    }
+
+    /**
+     * Removes a value from the config and marks the block data as changed.
+     *
+     * @param key the key to remove
+     */
+    public void removeData(@NotNull String key) {
+        setData(key, null);
+    }
+
+    /**
+     * Checks whether the block data changed since it was last saved.
+     *
+     * @return true if the block data has to be saved
+     */
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Marks the block data as changed, so it is saved on the next save cycle.
+     * Only needed after changing a nested section of the config directly.
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Marks the block data as saved.
+     *
+     * @return true if the block data was changed
+     */
+    @ApiStatus.Internal
+    public boolean clearDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    /**
+     * Serializes the config of the block to a YAML string.
+     *
+     * @return the serialized config
+     */
+    @NotNull
+    public String saveToString() {
+        if (config instanceof YamlConfiguration yaml) {
+            return yaml.saveToString();
+        }
+
+        YamlConfiguration copy = new YamlConfiguration();
+        for (String key : config.getKeys(false)) {
+            copy.set(key, config.get(key));
+        }
+        return copy.saveToString();
     }
 
     public Map<String, String> getMapData() {
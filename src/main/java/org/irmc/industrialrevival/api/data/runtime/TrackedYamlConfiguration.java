@@ -0,0 +1,61 @@
+package org.irmc.industrialrevival.api.data.runtime;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.logging.Level;
+
+/**
+ * A {@link YamlConfiguration} which reports every {@link #set(String, Object)} call on it,
+ * used by {@link IRBlockData} to know whether it has to be saved again.
+ * <p>
+ * Only changes made through this configuration are reported. Changes made directly to a
+ * nested section have to be reported with {@link IRBlockData#markDirty()}.
+ * </p>
+ *
+ * @see IRBlockData
+ */
+@ApiStatus.Internal
+public class TrackedYamlConfiguration extends YamlConfiguration {
+    @Nullable
+    private Runnable changeListener;
+
+    /**
+     * Loads a tracked configuration from a YAML string, the loading itself is not reported as a change.
+     *
+     * @param data the YAML string
+     * @return the loaded configuration
+     */
+    @NotNull
+    public static TrackedYamlConfiguration parse(@NotNull String data) {
+        TrackedYamlConfiguration configuration = new TrackedYamlConfiguration();
+        if (!data.isEmpty()) {
+            try {
+                configuration.load(new StringReader(data));
+            } catch (IOException | InvalidConfigurationException e) {
+                Bukkit.getLogger().log(Level.SEVERE, "Cannot load block data", e);
+            }
+        }
+        return configuration;
+    }
+
+    void setChangeListener(@Nullable Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    @Override
+    public void set(@NotNull String path, @Nullable Object value) {
+        super.set(path, value);
+
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package org.irmc.industrialrevival.api.data.sql;
+
+import lombok.experimental.UtilityClass;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.data.runtime.TrackedYamlConfiguration;
+import org.irmc.industrialrevival.api.elements.compounds.CompoundContainer;
+import org.irmc.industrialrevival.api.elements.compounds.CompoundIds;
+import org.irmc.industrialrevival.api.machines.process.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary encoding of block data, used instead of YAML strings in {@link BlockRecord}.
+ * <p>
+ * Values keep their type: ints, longs, doubles and booleans are written as primitives,
+ * so neither saving nor loading a block goes through SnakeYAML or number parsing.
+ * The primitive hot fields of {@link IRBlockData} are written as they are, before the config,
+ * followed by the chemical state of the block. Compounds are written by name, as their ids are only
+ * valid while the server is running.
+ * Every encoding starts with {@link #MAGIC} and a format version.
+ * </p>
+ *
+ * <pre>
+ * data        := MAGIC version hot chemical section
+ * hot         := long(energy) int(progress) varint(count) long(attribute)*
+ * chemical    := byte(flags) environment? compounds?
+ * environment := double(temperature) double(pressure) double(humidity) double(radiation)
+ * compounds   := varint(count) (string(name) double(mass))*
+ * section     := varint(count) (string(key) value)*
+ * value       := tag payload
+ * </pre>
+ *
+ * @see BlockRecord
+ */
+@UtilityClass
+@ApiStatus.Internal
+public class BlockDataCodec {
+    /**
+     * The first byte of every encoding.
+     */
+    public static final byte MAGIC = (byte) 0xB1;
+    /**
+     * The current format version.
+     */
+    public static final byte VERSION = 1;
+    private static final int HAS_ENVIRONMENT = 1;
+    private static final int HAS_COMPOUNDS = 1 << 1;
+    private static final long[] NO_ATTRIBUTES = new long[0];
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_SECTION = 6;
+    private static final byte TAG_LIST = 7;
+    private static final byte TAG_SERIALIZABLE = 8;
+    private static final byte TAG_NULL = 9;
+
+    /**
+     * Encodes the hot fields and the config of a block.
+     *
+     * @param blockData the block data to encode
+     * @return the encoded bytes
+     */
+    public static byte @NotNull [] encode(@NotNull IRBlockData blockData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(blockData.getEnergy());
+            out.writeInt(blockData.getProgress());
+
+            long[] attributes = blockData.copyAttributes();
+            int count = attributes.length;
+            while (count > 0 && attributes[count - 1] == 0) {
+                // unused trailing slots are not written
+                count--;
+            }
+            writeVarInt(out, count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(attributes[i]);
+            }
+
+            writeChemicalState(out, blockData.getEnvironment(), blockData.getCompounds());
+            writeSection(out, blockData.getConfig().getValues(false));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes block data.
+     *
+     * @param data the encoded bytes
+     * @return the decoded hot fields and config
+     * @throws IllegalArgumentException if the data is not a known encoding
+     */
+    @NotNull
+    public static Decoded decode(byte @NotNull [] data) {
+        TrackedYamlConfiguration configuration = new TrackedYamlConfiguration();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != MAGIC) {
+                throw new IllegalArgumentException("Not an encoded block data");
+            }
+
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported block data version: " + version);
+            }
+
+            long energy = in.readLong();
+            int progress = in.readInt();
+            long[] attributes = new long[readVarInt(in)];
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = in.readLong();
+            }
+
+            Environment environment = null;
+            CompoundContainer compounds = null;
+            int flags = in.readByte();
+            if ((flags & HAS_ENVIRONMENT) != 0) {
+                environment = new Environment(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            }
+            if ((flags & HAS_COMPOUNDS) != 0) {
+                compounds = new CompoundContainer();
+                int count = readVarInt(in);
+                for (int i = 0; i < count; i++) {
+                    compounds.setMass(CompoundIds.idOf(readString(in)), in.readDouble());
+                }
+            }
+
+            readSection(in, configuration);
+            return new Decoded(configuration, energy, progress, attributes, environment, compounds);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupted block data", e);
+        }
+    }
+
+    /**
+     * Creates the decoded form of block data which only has a config, e.g. data saved as YAML.
+     *
+     * @param config the config
+     * @return the decoded block data with empty hot fields
+     */
+    @NotNull
+    public static Decoded withoutHotFields(@NotNull TrackedYamlConfiguration config) {
+        return new Decoded(config, 0, 0, NO_ATTRIBUTES, null, null);
+    }
+
+    private static void writeChemicalState(DataOutputStream out, @Nullable Environment environment, @Nullable CompoundContainer compounds) throws IOException {
+        int flags = (environment != null ? HAS_ENVIRONMENT : 0) | (compounds != null ? HAS_COMPOUNDS : 0);
+        out.writeByte(flags);
+        if (environment != null) {
+            out.writeDouble(environment.getTemperature());
+            out.writeDouble(environment.getPressure());
+            out.writeDouble(environment.getHumidity());
+            out.writeDouble(environment.getRadiation());
+        }
+
+        if (compounds != null) {
+            // the container may be modified by its machine while it is being saved, write a snapshot
+            CompoundContainer snapshot = compounds.copy();
+            int[] ids = snapshot.ids();
+            writeVarInt(out, ids.length);
+            for (int id : ids) {
+                writeString(out, CompoundIds.nameOf(id));
+                out.writeDouble(snapshot.getMass(id));
+            }
+        }
+    }
+
+    private static void writeSection(DataOutputStream out, Map<String, Object> values) throws IOException {
+        writeVarInt(out, values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(TAG_NULL);
+            case String string -> {
+                out.writeByte(TAG_STRING);
+                writeString(out, string);
+            }
+            case Integer i -> {
+                out.writeByte(TAG_INT);
+                out.writeInt(i);
+            }
+            case Short s -> {
+                out.writeByte(TAG_INT);
+                out.writeInt(s);
+            }
+            case Byte b -> {
+                out.writeByte(TAG_INT);
+                out.writeInt(b);
+            }
+            case Long l -> {
+                out.writeByte(TAG_LONG);
+                out.writeLong(l);
+            }
+            case Double d -> {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble(d);
+            }
+            case Float f -> {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble(f);
+            }
+            case Boolean b -> {
+                out.writeByte(TAG_BOOLEAN);
+                out.writeBoolean(b);
+            }
+            case ConfigurationSection section -> {
+                out.writeByte(TAG_SECTION);
+                writeSection(out, section.getValues(false));
+            }
+            case Map<?, ?> map -> {
+                out.writeByte(TAG_SECTION);
+                writeSection(out, toStringKeys(map));
+            }
+            case List<?> list -> {
+                out.writeByte(TAG_LIST);
+                writeVarInt(out, list.size());
+                for (Object element : list) {
+                    writeValue(out, element);
+                }
+            }
+            case ConfigurationSerializable serializable -> {
+                out.writeByte(TAG_SERIALIZABLE);
+                writeString(out, ConfigurationSerialization.getAlias(serializable.getClass()));
+                writeSection(out, serializable.serialize());
+            }
+            default -> {
+                out.writeByte(TAG_STRING);
+                writeString(out, value.toString());
+            }
+        }
+    }
+
+    private static void readSection(DataInputStream in, ConfigurationSection section) throws IOException {
+        int count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            byte tag = in.readByte();
+            if (tag == TAG_SECTION) {
+                readSection(in, section.createSection(key));
+            } else {
+                section.set(key, readValue(in, tag));
+            }
+        }
+    }
+
+    private static Object readValue(DataInputStream in, byte tag) throws IOException {
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(in);
+            case TAG_INT -> in.readInt();
+            case TAG_LONG -> in.readLong();
+            case TAG_DOUBLE -> in.readDouble();
+            case TAG_BOOLEAN -> in.readBoolean();
+            case TAG_SECTION -> readMap(in);
+            case TAG_LIST -> {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, in.readByte()));
+                }
+                yield list;
+            }
+            case TAG_SERIALIZABLE -> {
+                String alias = readString(in);
+                Map<String, Object> map = readMap(in);
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                yield ConfigurationSerialization.deserializeObject(map);
+            }
+            default -> throw new IOException("Unknown tag: " + tag);
+        };
+    }
+
+    private static Map<String, Object> readMap(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        Map<String, Object> map = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in, in.readByte()));
+        }
+        return map;
+    }
+
+    private static Map<String, Object> toStringKeys(Map<?, ?> map) {
+        Map<String, Object> result = new LinkedHashMap<>(map.size() * 2);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            result.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 35) {
+                throw new IOException("VarInt too long");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Decoded block data.
+     *
+     * @param config      the config of the block
+     * @param energy      the energy stored in the block
+     * @param progress    the progress of the block
+     * @param attributes  the attributes of the block, trailing unused slots are omitted
+     * @param environment the environment inside the block, if it has one
+     * @param compounds   the compounds in the block, if it holds any
+     */
+    public record Decoded(@NotNull TrackedYamlConfiguration config, long energy, int progress, long @NotNull [] attributes,
+                          @Nullable Environment environment, @Nullable CompoundContainer compounds) {
+    }
+}
@@ -10,11 +10,13 @@ import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.data.runtime.TrackedYamlConfiguration;
 import org.jetbrains.annotations.ApiStatus;
 
-import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 
 /**
  * BlockRecord class represents a record of block data in the database.
@@ -26,6 +28,11 @@ import java.io.StringReader;
 @AllArgsConstructor
 @ApiStatus.Internal
 public class BlockRecord {
+    /**
+     * The columns of the table, in the order {@link #bind(PreparedStatement, int)} binds them.
+     */
+    public static final String COLUMNS = "id, world, x, y, z, data, chunkX, chunkZ, binaryData";
+
     /**
      * Unique identifier of the block.
      */
@@ -61,11 +68,32 @@ public class BlockRecord {
     private int z;
 
     /**
-     * Data associated with the block, stored as a string.
+     * Data associated with the block, stored as a YAML string.
+     * Only present in records saved before {@link #binaryData} was introduced.
      */
     @Column
     private String data;
 
+    /**
+     * X coordinate of the chunk the block is located in, derived from {@link #x}.
+     * Used to query all blocks of a chunk at once. Null for records saved before it was introduced.
+     */
+    @Column
+    private Integer chunkX;
+
+    /**
+     * Z coordinate of the chunk the block is located in, derived from {@link #z}.
+     * Used to query all blocks of a chunk at once. Null for records saved before it was introduced.
+     */
+    @Column
+    private Integer chunkZ;
+
+    /**
+     * Data associated with the block, encoded by {@link BlockDataCodec}.
+     */
+    @Column
+    private byte[] binaryData;
+
     /**
      * Creates a new BlockRecord instance from a Location and NamespacedKey.
      *
@@ -74,7 +102,7 @@ public class BlockRecord {
      * @return A BlockRecord instance.
      */
     public static BlockRecord warp(Location location, NamespacedKey id) {
-        return new BlockRecord(id.toString(), location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), "");
+        return new BlockRecord(id.toString(), location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), "", location.getBlockX() >> 4, location.getBlockZ() >> 4, null);
     }
 
     /**
@@ -84,7 +112,42 @@ public class BlockRecord {
      * @return A BlockRecord instance.
      */
     public static BlockRecord warp(IRBlockData blockData) {
-        return new BlockRecord(blockData.getId().toString(), blockData.getLocation().getWorld().getName(), blockData.getLocation().getBlockX(), blockData.getLocation().getBlockY(), blockData.getLocation().getBlockZ(), blockData.getData().saveToString());
+        Location location = blockData.getLocation();
+        return new BlockRecord(blockData.getId().toString(), location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), "", location.getBlockX() >> 4, location.getBlockZ() >> 4, BlockDataCodec.encode(blockData));
+    }
+
+    /**
+     * Binds the values of this record to the parameters of a statement, in the order of {@link #COLUMNS}.
+     *
+     * @param statement the statement
+     * @param index     the index of the first parameter
+     * @throws SQLException if a parameter cannot be bound
+     */
+    public void bind(PreparedStatement statement, int index) throws SQLException {
+        statement.setString(index, id);
+        bindKey(statement, index + 1, world, x, y, z);
+        statement.setString(index + 5, data);
+        statement.setObject(index + 6, chunkX, Types.INTEGER);
+        statement.setObject(index + 7, chunkZ, Types.INTEGER);
+        statement.setBytes(index + 8, binaryData);
+    }
+
+    /**
+     * Binds the position of a block to the parameters of a statement, in the order of the primary key: world, x, y, z.
+     *
+     * @param statement the statement
+     * @param index     the index of the first parameter
+     * @param world     the name of the world of the block
+     * @param x         the x coordinate of the block
+     * @param y         the y coordinate of the block
+     * @param z         the z coordinate of the block
+     * @throws SQLException if a parameter cannot be bound
+     */
+    public static void bindKey(PreparedStatement statement, int index, String world, int x, int y, int z) throws SQLException {
+        statement.setString(index, world);
+        statement.setInt(index + 1, x);
+        statement.setInt(index + 2, y);
+        statement.setInt(index + 3, z);
     }
 
     /**
@@ -97,6 +160,15 @@ public class BlockRecord {
         return bk == null ? new Location(null, x, y, z) : new Location(bk, x, y, z);
     }
 
+    /**
+     * Gets the name of the world the block is located in, the world does not have to be loaded.
+     *
+     * @return The world name.
+     */
+    public String getWorldName() {
+        return world;
+    }
+
     /**
      * Sets the location of the block based on a given Location object.
      *
@@ -107,6 +179,18 @@ public class BlockRecord {
         this.x = location.getBlockX();
         this.y = location.getBlockY();
         this.z = location.getBlockZ();
+        this.chunkX = this.x >> 4;
+        this.chunkZ = this.z >> 4;
+    }
+
+    /**
+     * Checks whether the chunk coordinates of this record are missing,
+     * which is the case for records saved before they were introduced.
+     *
+     * @return true if the record has to be saved again to be found by chunk queries
+     */
+    public boolean isChunkKeyMissing() {
+        return chunkX == null || chunkZ == null;
     }
 
     /**
@@ -124,7 +208,30 @@ public class BlockRecord {
      * @return The block data as a ConfigurationSection.
      */
     public ConfigurationSection getData() {
-        StringReader reader = new StringReader(data);
-        return YamlConfiguration.loadConfiguration(reader);
+        return getDecodedData().config();
+    }
+
+    /**
+     * Gets the block's data together with its hot fields.
+     *
+     * @return The decoded block data.
+     */
+    public BlockDataCodec.Decoded getDecodedData() {
+        if (binaryData != null && binaryData.length > 0) {
+            return BlockDataCodec.decode(binaryData);
+        }
+
+        // saved before the binary format existed
+        return BlockDataCodec.withoutHotFields(TrackedYamlConfiguration.parse(data == null ? "" : data));
+    }
+
+    /**
+     * Checks whether the data of this record is still stored as YAML.
+     * Such records are converted to the binary format the next time they are saved.
+     *
+     * @return true if the record has to be saved again in the binary format
+     */
+    public boolean isLegacyData() {
+        return (binaryData == null || binaryData.length == 0) && data != null && !data.isEmpty();
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package org.irmc.industrialrevival.api.elements.compounds;
 
 import com.google.common.base.Preconditions;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import net.kyori.adventure.text.Component;
 import org.irmc.industrialrevival.api.elements.ElementType;
 import org.irmc.industrialrevival.api.elements.compounds.types.IonCompound;
@@ -13,7 +15,6 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -31,6 +32,13 @@ public class ChemicalCompound {
     public final String name;
     @NotNull
     public final Map<Compound, Double> compounds;
+    /**
+     * Computed from {@link #compounds} when the compound is created.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @NotNull
+    private final CompoundProperties properties;
 
     /**
      * Creates a new chemical compound with the given name and compounds.
@@ -56,6 +64,8 @@ public class ChemicalCompound {
 
         this.name = name;
         this.compounds = compounds;
+        this.properties = CompoundProperties.compute(name, compounds);
+        CompoundIds.idOf(this);
         if (register) {
             IndustrialRevival.getInstance().getRegistry().getChemicalCompounds().put(name, this);
         }
@@ -91,21 +101,16 @@ public class ChemicalCompound {
     }
 
     /**
-     * Calculates the molar mass of this chemical compound.
+     * Gets the molar mass of this chemical compound.
      * <p>
-     * The molar mass is calculated by summing the molar masses of all constituent compounds,
-     * weighted by their stoichiometric coefficients.
+     * The molar mass is the sum of the molar masses of all constituent compounds,
+     * weighted by their stoichiometric coefficients, see {@link CompoundProperties#molarMass()}.
      * </p>
      *
      * @return the molar mass of the compound in g/mol
      */
     public double getMolarMass() {
-        double mass = 0;
-        for (var entry : compounds.entrySet()) {
-            mass += entry.getKey().getMolarMass() * entry.getValue();
-        }
-
-        return mass;
+        return properties.molarMass();
     }
 
     /**
@@ -116,29 +121,23 @@ public class ChemicalCompound {
      * the stoichiometric coefficients of all constituent compounds.
      * </p>
      *
-     * @return a map representing the atomic composition of the compound
+     * @return a new map representing the atomic composition of the compound
+     * @see CompoundProperties#atomic()
      */
     public Map<ElementType, Double> toAtomic() {
-        Map<ElementType, Double> atomic = new HashMap<>();
-        for (var entry : compounds.entrySet()) {
-            for (var atomicEntry : entry.getKey().toAtomic().entrySet()) {
-                atomic.merge(atomicEntry.getKey(), atomicEntry.getValue() * entry.getValue(), Double::sum);
-            }
-        }
-
-        return atomic;
+        return properties.toAtomicMap();
     }
 
     /**
      * Gets a human-readable name for this chemical compound.
      * <p>
-     * This method removes underscores from the compound name to make it more readable.
+     * This is the compound name without underscores.
      * </p>
      *
      * @return a human-readable name for the compound
      */
     public String getHumanizedName() {
-        return name.replaceAll("_", "");
+        return properties.humanizedName();
     }
 
     /**
@@ -43,8 +43,8 @@ import java.util.stream.Collectors;
  * @see ChemicalCompound
  * @see ReactCondition
  */
-@EqualsAndHashCode(exclude = {"id"})
-@ToString(exclude = {"input", "output"})
+@EqualsAndHashCode(exclude = {"id", "coefficients"})
+@ToString(exclude = {"input", "output", "coefficients"})
 @Data
 public class ChemicalFormula {
     public static final Pattern NUMBER_PATTERN = Pattern.compile("^(\\d+)");
@@ -55,6 +55,7 @@ public class ChemicalFormula {
     private @NotNull Map<ChemicalCompound, Integer> input; // molar mass of each compound
     private @NotNull Map<ChemicalCompound, Integer> output; // molar mass of each compound
     private @NotNull Set<ReactCondition> conditions;
+    private volatile @Nullable Coefficients coefficients;
 
     /**
      * Creates a new ChemicalFormula with the specified ID and formula.
@@ -201,6 +202,31 @@ public class ChemicalFormula {
         return compounds;
     }
 
+    public void setInput(@NotNull Map<ChemicalCompound, Integer> input) {
+        this.input = input;
+        this.coefficients = null;
+    }
+
+    public void setOutput(@NotNull Map<ChemicalCompound, Integer> output) {
+        this.output = output;
+        this.coefficients = null;
+    }
+
+    /**
+     * Gets the coefficients of the formula as arrays, computed once after the inputs or outputs change.
+     *
+     * @return the coefficients
+     */
+    @NotNull
+    public Coefficients getCoefficients() {
+        Coefficients current = coefficients;
+        if (current == null) {
+            current = Coefficients.of(input, output);
+            coefficients = current;
+        }
+        return current;
+    }
+
     /**
      * Registers this chemical formula in the global registry.
      *
@@ -286,6 +312,58 @@ public class ChemicalFormula {
         }
     }
 
+    /**
+     * The inputs and outputs of a formula as parallel arrays, in the order of the formula.
+     * <p>
+     * The mass factors are normalized by the total molar mass of the inputs: reacting a proportion
+     * {@code p} of the formula consumes {@code p * inputMassFactors[i]} of every input and produces
+     * {@code p * outputMassFactors[i]} of every output. The arrays must not be modified.
+     * </p>
+     *
+     * @param inputs             the input compounds
+     * @param inputIds           the {@link CompoundIds ids} of the inputs
+     * @param inputCoefficients  the stoichiometric coefficients of the inputs
+     * @param inputMassFactors   the consumed mass of every input per reacted proportion
+     * @param outputs            the output compounds
+     * @param outputMassFactors  the produced mass of every output per reacted proportion
+     */
+    public record Coefficients(
+            @NotNull ChemicalCompound[] inputs,
+            int @NotNull [] inputIds,
+            double @NotNull [] inputCoefficients,
+            double @NotNull [] inputMassFactors,
+            @NotNull ChemicalCompound[] outputs,
+            double @NotNull [] outputMassFactors
+    ) {
+        @NotNull
+        static Coefficients of(@NotNull Map<ChemicalCompound, Integer> input, @NotNull Map<ChemicalCompound, Integer> output) {
+            ChemicalCompound[] inputs = input.keySet().toArray(new ChemicalCompound[0]);
+            int[] inputIds = new int[inputs.length];
+            double[] inputCoefficients = new double[inputs.length];
+            double totalMolarMass = 0;
+            for (int i = 0; i < inputs.length; i++) {
+                inputIds[i] = CompoundIds.idOf(inputs[i]);
+                inputCoefficients[i] = input.get(inputs[i]);
+                totalMolarMass += inputCoefficients[i] * inputs[i].getMolarMass();
+            }
+
+            double[] inputMassFactors = new double[inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                /* coefficient * proportion = Molar mass */
+                /* Molar mass / totalMolarMass * compound.getMolarMass() = Real mass */
+                inputMassFactors[i] = inputCoefficients[i] / totalMolarMass * inputs[i].getMolarMass();
+            }
+
+            ChemicalCompound[] outputs = output.keySet().toArray(new ChemicalCompound[0]);
+            double[] outputMassFactors = new double[outputs.length];
+            for (int i = 0; i < outputs.length; i++) {
+                outputMassFactors[i] = output.get(outputs[i]) / totalMolarMass * outputs[i].getMolarMass();
+            }
+
+            return new Coefficients(inputs, inputIds, inputCoefficients, inputMassFactors, outputs, outputMassFactors);
+        }
+    }
+
     /**
      * Functional interface for sensing reaction conditions based on the environment.
      * <p>
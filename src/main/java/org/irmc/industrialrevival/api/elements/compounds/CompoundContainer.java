@@ -1,6 +1,8 @@
 package org.irmc.industrialrevival.api.elements.compounds;
 
-import lombok.Data;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import lombok.NoArgsConstructor;
 import org.irmc.industrialrevival.api.elements.reaction.ReactCondition;
 import org.irmc.industrialrevival.api.elements.reaction.ReactHelper;
@@ -8,57 +10,238 @@ import org.irmc.industrialrevival.api.elements.reaction.ReactResult;
 import org.irmc.industrialrevival.api.machines.process.Environment;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.ObjDoubleConsumer;
 
 /**
+ * The masses of the compounds in a mixture, e.g. the contents of a reactor.
+ * <p>
+ * Masses are stored by {@link CompoundIds compound id}: ids below {@link #DENSE_LIMIT} index a
+ * {@code double[]} which grows up to the highest id present, higher ids are kept in a sparse
+ * primitive map. Compounds without mass are not part of the mixture.
+ * </p>
+ *
  * @author balugaq
  */
 @NoArgsConstructor
-@Data
 public class CompoundContainer {
-    private final Map<ChemicalCompound, Double> mixed = new HashMap<>();
+    /**
+     * Compound ids from this one on are stored sparsely.
+     */
+    public static final int DENSE_LIMIT = 256;
+    private static final double[] EMPTY = new double[0];
+
+    private double[] dense = EMPTY;
+    private Int2DoubleOpenHashMap sparse;
+    private int size;
+
+    /**
+     * Gets the mass of a compound.
+     *
+     * @param compound the compound
+     * @return the mass, 0 if the compound is not in the mixture
+     */
+    public double getMass(@NotNull ChemicalCompound compound) {
+        return getMass(CompoundIds.idOf(compound));
+    }
+
+    /**
+     * Gets the mass of a compound.
+     *
+     * @param id the id of the compound
+     * @return the mass, 0 if the compound is not in the mixture
+     */
+    public double getMass(int id) {
+        if (id < DENSE_LIMIT) {
+            return id < dense.length ? dense[id] : 0.0D;
+        }
+        return sparse == null ? 0.0D : sparse.get(id);
+    }
+
+    /**
+     * Sets the mass of a compound, a mass of 0 or less removes the compound.
+     *
+     * @param id   the id of the compound
+     * @param mass the mass
+     */
+    public void setMass(int id, double mass) {
+        double value = mass > 0.0D ? mass : 0.0D;
+        double old;
+        if (id < DENSE_LIMIT) {
+            if (id >= dense.length) {
+                if (value == 0.0D) {
+                    return;
+                }
+                dense = Arrays.copyOf(dense, Math.min(DENSE_LIMIT, Math.max(id + 1, dense.length * 2)));
+            }
+            old = dense[id];
+            dense[id] = value;
+        } else {
+            if (sparse == null) {
+                if (value == 0.0D) {
+                    return;
+                }
+                sparse = new Int2DoubleOpenHashMap();
+            }
+            old = value == 0.0D ? sparse.remove(id) : sparse.put(id, value);
+        }
+
+        if (old == 0.0D && value != 0.0D) {
+            size++;
+        } else if (old != 0.0D && value == 0.0D) {
+            size--;
+        }
+    }
+
+    /**
+     * Adds mass to a compound, negative masses are taken away down to 0.
+     *
+     * @param id   the id of the compound
+     * @param mass the mass to add
+     */
+    public void addMass(int id, double mass) {
+        setMass(id, getMass(id) + mass);
+    }
+
+    /**
+     * Removes a compound from the mixture.
+     *
+     * @param compound the compound
+     * @return the mass the compound had
+     */
+    public double remove(@NotNull ChemicalCompound compound) {
+        int id = CompoundIds.idOf(compound);
+        double mass = getMass(id);
+        setMass(id, 0.0D);
+        return mass;
+    }
+
+    /**
+     * Gets the amount of compounds in the mixture.
+     *
+     * @return the amount of compounds
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Iterates over the ids and masses of all compounds in the mixture.
+     *
+     * @param consumer receives the id and the mass of every compound
+     */
+    public void forEachId(@NotNull MassConsumer consumer) {
+        for (int id = 0; id < dense.length; id++) {
+            if (dense[id] != 0.0D) {
+                consumer.accept(id, dense[id]);
+            }
+        }
+
+        if (sparse != null) {
+            for (Int2DoubleMap.Entry entry : sparse.int2DoubleEntrySet()) {
+                consumer.accept(entry.getIntKey(), entry.getDoubleValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the ids of all compounds in the mixture.
+     *
+     * @return the ids
+     */
+    public int @NotNull [] ids() {
+        IntArrayList ids = new IntArrayList(size);
+        forEachId((id, _) -> ids.add(id));
+        return ids.toIntArray();
+    }
+
+    /**
+     * Iterates over the compounds in the mixture, skipping those whose compound is not registered (anymore).
+     *
+     * @param consumer receives every compound and its mass
+     */
+    public void forEach(@NotNull ObjDoubleConsumer<ChemicalCompound> consumer) {
+        forEachId((id, mass) -> {
+            ChemicalCompound compound = CompoundIds.byId(id);
+            if (compound != null) {
+                consumer.accept(compound, mass);
+            }
+        });
+    }
+
+    /**
+     * Gets a copy of the mixture as a map.
+     *
+     * @return the masses of the compounds in the mixture
+     */
+    @NotNull
+    public Map<ChemicalCompound, Double> getMixed() {
+        Map<ChemicalCompound, Double> mixed = new HashMap<>(size * 2);
+        forEach(mixed::put);
+        return mixed;
+    }
+
+    @NotNull
+    public CompoundContainer copy() {
+        CompoundContainer copy = new CompoundContainer();
+        copy.dense = dense.clone();
+        copy.sparse = sparse == null ? null : new Int2DoubleOpenHashMap(sparse);
+        copy.size = size;
+        return copy;
+    }
 
     public CompoundContainer mix(Map<ChemicalCompound, Double> other) {
         for (var entry : other.entrySet()) {
-            mixed.merge(entry.getKey(), entry.getValue(), Double::sum);
+            addMass(CompoundIds.idOf(entry.getKey()), entry.getValue());
         }
         return this;
     }
 
     public CompoundContainer mix(CompoundContainer other) {
-        return mix(other.mixed);
+        other.forEachId(this::addMass);
+        return this;
     }
 
     public CompoundContainer consume(Map<ChemicalCompound, Double> other) {
         for (var entry : other.entrySet()) {
-            mixed.merge(entry.getKey(), -entry.getValue(), (a, b) -> Math.max(a + b, 0));
-            if (mixed.get(entry.getKey()) <= 0.0D) {
-                mixed.remove(entry.getKey());
-            }
+            addMass(CompoundIds.idOf(entry.getKey()), -entry.getValue());
         }
-
         return this;
     }
 
     public CompoundContainer consume(CompoundContainer other) {
-        return consume(other.mixed);
+        other.forEachId((id, mass) -> addMass(id, -mass));
+        return this;
     }
 
     @NotNull
     public ReactResult react(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions) {
-        return ReactHelper.react0(environment, conditions, mixed);
+        return ReactHelper.react0(environment, conditions, this);
     }
 
     @NotNull
     public List<ReactResult> reactBalanced(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions) {
-        return ReactHelper.reactBalanced(environment, conditions, mixed);
+        return ReactHelper.reactBalanced(environment, conditions, this);
     }
 
     @NotNull
     public ReactResult reactAll(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull ChemicalFormula formula) {
-        return ReactHelper.reactAll(environment, conditions, mixed, formula);
+        return ReactHelper.reactAll(environment, conditions, this, formula);
+    }
+
+    /**
+     * Receives the id and the mass of a compound.
+     */
+    @FunctionalInterface
+    public interface MassConsumer {
+        void accept(int id, double mass);
     }
 }
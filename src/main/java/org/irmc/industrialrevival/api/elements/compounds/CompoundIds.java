@@ -0,0 +1,103 @@
+package org.irmc.industrialrevival.api.elements.compounds;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Assigns every {@link ChemicalCompound} a dense integer id, so compounds can be used as
+ * indexes into primitive arrays and bitsets instead of as keys of hash maps.
+ * <p>
+ * Ids are assigned by compound name on first use, start at 0 and are never reused.
+ * A name can get an id before its compound is registered, e.g. while saved block data is loaded;
+ * the compound is then looked up by {@link ChemicalCompound#forName(String)} once it is needed.
+ * Ids are only valid while the server is running and must not be persisted,
+ * persist the {@link #nameOf(int) name} instead.
+ * </p>
+ */
+@UtilityClass
+public class CompoundIds {
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static final List<String> names = new CopyOnWriteArrayList<>();
+    private static final List<ChemicalCompound> compounds = new CopyOnWriteArrayList<>();
+
+    /**
+     * Gets the id of a compound, which is assigned when the compound is created.
+     *
+     * @param compound the compound
+     * @return the id of the compound
+     */
+    public static int idOf(@NotNull ChemicalCompound compound) {
+        int id = compound.getProperties().id();
+        if (compounds.get(id) == null) {
+            compounds.set(id, compound);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a compound name, assigning one if the name has none yet.
+     *
+     * @param name the name of the compound
+     * @return the id of the compound
+     */
+    public static int idOf(@NotNull String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        return ids.computeIfAbsent(name, _ -> {
+            synchronized (names) {
+                names.add(name);
+                compounds.add(null);
+                return names.size() - 1;
+            }
+        });
+    }
+
+    /**
+     * Gets the compound of an id.
+     *
+     * @param id the id
+     * @return the compound the id has been assigned to, null if no compound of its name is registered
+     * @throws IndexOutOfBoundsException if the id has not been assigned
+     */
+    @Nullable
+    public static ChemicalCompound byId(int id) {
+        ChemicalCompound compound = compounds.get(id);
+        if (compound == null) {
+            compound = ChemicalCompound.forName(names.get(id));
+            if (compound != null) {
+                compounds.set(id, compound);
+            }
+        }
+        return compound;
+    }
+
+    /**
+     * Gets the compound name of an id.
+     *
+     * @param id the id
+     * @return the name the id has been assigned to
+     * @throws IndexOutOfBoundsException if the id has not been assigned
+     */
+    @NotNull
+    public static String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Gets the amount of ids assigned so far, all ids are below it.
+     *
+     * @return the amount of assigned ids
+     */
+    public static int size() {
+        return names.size();
+    }
+}
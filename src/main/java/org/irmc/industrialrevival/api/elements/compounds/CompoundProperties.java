@@ -0,0 +1,67 @@
+package org.irmc.industrialrevival.api.elements.compounds;
+
+import org.irmc.industrialrevival.api.elements.ElementType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The physical properties of a {@link ChemicalCompound}, computed once when the compound is created.
+ *
+ * @param id            the {@link CompoundIds id} of the compound
+ * @param molarMass     the molar mass of the compound in g/mol
+ * @param atomic        the amount of atoms of every element, indexed by {@link ElementType#ordinal()}; must not be modified
+ * @param humanizedName the human-readable name of the compound
+ * @see ChemicalCompound#getProperties()
+ */
+public record CompoundProperties(int id, double molarMass, double @NotNull [] atomic, @NotNull String humanizedName) {
+    private static final ElementType[] ELEMENTS = ElementType.values();
+
+    /**
+     * Computes the properties of a compound from its constituents.
+     *
+     * @param name      the name of the compound
+     * @param compounds the constituents of the compound and their amounts
+     * @return the properties
+     */
+    @NotNull
+    static CompoundProperties compute(@NotNull String name, @NotNull Map<Compound, Double> compounds) {
+        double molarMass = 0;
+        double[] atomic = new double[ELEMENTS.length];
+        for (var entry : compounds.entrySet()) {
+            molarMass += entry.getKey().getMolarMass() * entry.getValue();
+            for (var atomicEntry : entry.getKey().toAtomic().entrySet()) {
+                atomic[atomicEntry.getKey().ordinal()] += atomicEntry.getValue() * entry.getValue();
+            }
+        }
+
+        return new CompoundProperties(CompoundIds.idOf(name), molarMass, atomic, name.replaceAll("_", ""));
+    }
+
+    /**
+     * Gets the amount of atoms of an element in the compound.
+     *
+     * @param element the element
+     * @return the amount of atoms, 0 if the compound does not contain the element
+     */
+    public double atomicAmount(@NotNull ElementType element) {
+        return atomic[element.ordinal()];
+    }
+
+    /**
+     * Gets the atomic composition as a map, only containing the elements in the compound.
+     *
+     * @return a new map of the elements and their amounts of atoms
+     */
+    @NotNull
+    public Map<ElementType, Double> toAtomicMap() {
+        Map<ElementType, Double> map = new EnumMap<>(ElementType.class);
+        for (int i = 0; i < atomic.length; i++) {
+            if (atomic[i] != 0) {
+                map.put(ELEMENTS[i], atomic[i]);
+            }
+        }
+        return map;
+    }
+}
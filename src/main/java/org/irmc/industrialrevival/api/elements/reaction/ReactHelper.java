@@ -1,14 +1,15 @@
 package org.irmc.industrialrevival.api.elements.reaction;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.bukkit.inventory.ItemStack;
 import org.irmc.industrialrevival.api.elements.compounds.ChemicalCompound;
 import org.irmc.industrialrevival.api.elements.compounds.ChemicalFormula;
+import org.irmc.industrialrevival.api.elements.compounds.CompoundContainer;
 import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
 import org.irmc.industrialrevival.api.items.attributes.ChemicalCompoundContainer;
 import org.irmc.industrialrevival.api.machines.process.Environment;
 
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
-import org.irmc.industrialrevival.utils.JavaUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -16,11 +17,37 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author balugaq
  */
 public class ReactHelper {
+    private static volatile ReactionIndex index;
+
+    /**
+     * Discards the compiled index of the registered formulas, it is rebuilt on the next reaction.
+     * Must be called whenever a formula is registered or unregistered.
+     */
+    public static synchronized void invalidateIndex() {
+        index = null;
+    }
+
+    @NotNull
+    private static ReactionIndex index() {
+        ReactionIndex current = index;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (ReactHelper.class) {
+            if (index == null) {
+                index = new ReactionIndex(IndustrialRevival.getInstance().getRegistry().getChemicalFormulas().values());
+            }
+            return index;
+        }
+    }
+
     /**
      * React the items with the conditions
      *
@@ -76,23 +103,27 @@ public class ReactHelper {
      */
     @NotNull
     public static ReactResult react0(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull Map<ChemicalCompound, Double> reactants) {
-        List<ChemicalFormula> formulas = new ArrayList<>(IndustrialRevival.getInstance().getRegistry().getChemicalFormulas().values());
-
-        // shuffle the formulas, ensure that every reaction occurs uniformly
-        formulas = JavaUtil.shuffle(formulas);
-        for (ChemicalFormula formula : formulas) {
-            if (!conditionSatisfied(environment, reactants, formula.getConditions(), conditions)) {
-                continue;
-            }
-
-            if (!inputsSatisfied(environment, formula.getInput(), reactants.keySet())) {
-                continue;
-            }
+        return react0(environment, conditions, new CompoundContainer().mix(reactants));
+    }
 
-            return calculateOutput(environment, conditions, reactants, formula);
+    /**
+     * React a mixture with the conditions
+     *
+     * @param conditions the conditions of the reaction
+     * @param mixture    the mixture of the reactants
+     * @return the getProduce of the reaction
+     */
+    @NotNull
+    public static ReactResult react0(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull CompoundContainer mixture) {
+        ReactionIndex index = index();
+        IntArrayList satisfied = index.findSatisfied(mixture, conditions);
+        if (satisfied.isEmpty()) {
+            return ReactResult.FAILED;
         }
 
-        return ReactResult.FAILED;
+        // pick one of the satisfied formulas, ensure that every reaction occurs uniformly
+        ChemicalFormula formula = index.formula(satisfied.getInt(ThreadLocalRandom.current().nextInt(satisfied.size())));
+        return calculateOutput(environment, conditions, mixture, formula, false);
     }
 
     /**
@@ -104,22 +135,30 @@ public class ReactHelper {
      */
     @NotNull
     public static List<ReactResult> reactBalanced(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull Map<ChemicalCompound, Double> reactants) {
-        List<ChemicalFormula> formulas = new ArrayList<>(IndustrialRevival.getInstance().getRegistry().getChemicalFormulas().values());
-
-        // shuffle the formulas, ensure that every reaction occurs uniformly
-        formulas = JavaUtil.shuffle(formulas);
-
-        List<ReactResult> results = new ArrayList<>();
-        for (ChemicalFormula formula : formulas) {
-            if (!conditionSatisfied(environment, reactants, formula.getConditions(), conditions)) {
-                continue;
-            }
+        return reactBalanced(environment, conditions, new CompoundContainer().mix(reactants));
+    }
 
-            if (!inputsSatisfied(environment, formula.getInput(), reactants.keySet())) {
-                continue;
-            }
+    /**
+     * React a mixture with the conditions, once with every satisfied formula
+     *
+     * @param conditions the conditions of the reaction
+     * @param mixture    the mixture of the reactants
+     * @return the getProduce of every reaction
+     */
+    @NotNull
+    public static List<ReactResult> reactBalanced(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull CompoundContainer mixture) {
+        ReactionIndex index = index();
+        IntArrayList satisfied = index.findSatisfied(mixture, conditions);
+        List<ReactResult> results = new ArrayList<>(satisfied.size());
+        if (satisfied.isEmpty()) {
+            return results;
+        }
 
-            results.add(calculateOutput(environment, conditions, reactants, formula));
+        // start at a random formula instead of shuffling, ensure that every reaction occurs uniformly
+        int start = ThreadLocalRandom.current().nextInt(satisfied.size());
+        for (int i = 0; i < satisfied.size(); i++) {
+            ChemicalFormula formula = index.formula(satisfied.getInt((start + i) % satisfied.size()));
+            results.add(calculateOutput(environment, conditions, mixture, formula, false));
         }
 
         return results;
@@ -189,18 +228,50 @@ public class ReactHelper {
      */
     @NotNull
     public static ReactResult calculateOutput(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull Map<ChemicalCompound, Double> reactants, @NotNull ChemicalFormula formula, boolean reactAll) {
+        ChemicalFormula.Coefficients coefficients = formula.getCoefficients();
+        double[] masses = new double[coefficients.inputs().length];
+        for (int i = 0; i < masses.length; i++) {
+            masses[i] = reactants.getOrDefault(coefficients.inputs()[i], 0.0D);
+        }
+        return calculateOutput(environment, conditions, masses, formula, reactAll);
+    }
+
+    /**
+     * Calculate the output of a reaction
+     *
+     * @param conditions the conditions of the reaction
+     * @param mixture    the mixture of the reactants
+     * @param formula    the chemical formula of the reaction
+     * @param reactAll   if true, the reaction will react all the reactants
+     * @return the getProduce of the reaction
+     */
+    @NotNull
+    public static ReactResult calculateOutput(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull CompoundContainer mixture, @NotNull ChemicalFormula formula, boolean reactAll) {
+        ChemicalFormula.Coefficients coefficients = formula.getCoefficients();
+        double[] masses = new double[coefficients.inputIds().length];
+        for (int i = 0; i < masses.length; i++) {
+            masses[i] = mixture.getMass(coefficients.inputIds()[i]);
+        }
+        return calculateOutput(environment, conditions, masses, formula, reactAll);
+    }
+
+    /**
+     * Calculate the output of a reaction from the masses of its inputs,
+     * given in the order of {@link ChemicalFormula.Coefficients#inputs()}
+     */
+    @NotNull
+    private static ReactResult calculateOutput(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, double @NotNull [] masses, @NotNull ChemicalFormula formula, boolean reactAll) {
+        ChemicalFormula.Coefficients coefficients = formula.getCoefficients();
+
         // input
-        var proportion = formula.getInput();
-        Double maxProportion = Double.MAX_VALUE;
-        for (ChemicalCompound compound : proportion.keySet()) {
-            maxProportion = Math.min(maxProportion, reactants.get(compound) / proportion.get(compound));
+        double[] proportion = coefficients.inputCoefficients();
+        double max = Double.MAX_VALUE;
+        for (int i = 0; i < proportion.length; i++) {
+            max = Math.min(max, masses[i] / proportion[i]);
         }
 
         // reaction should react slowly instead of output all the products directly
-        double max = maxProportion;
-        if (!reactAll) {
-            maxProportion /= 6;
-        }
+        Double maxProportion = reactAll ? max : max / 6;
 
         // some reaction will be faster with the higher temperature
         if (formula.getConditionSensor() != null) {
@@ -213,27 +284,20 @@ public class ReactHelper {
         }
 
         // normalize
-        if (maxProportion > max) {
-            maxProportion = max;
-        }
-
-        var totalMolarMass = 0.0;
-        for (ChemicalCompound compound : proportion.keySet()) {
-            totalMolarMass += proportion.get(compound) * compound.getMolarMass();
-        }
+        double reacted = Math.min(maxProportion, max);
 
-        var finalConsume = new HashMap<ChemicalCompound, Double>();
-        for (ChemicalCompound compound : proportion.keySet()) {
-            /* proportion.get(compound) * maxProportion = Molar mass */
-            /* Molar mass / totalMolarMass * compound.getMolarMass() = Real mass */
-            finalConsume.put(compound, proportion.get(compound) * maxProportion / totalMolarMass * compound.getMolarMass());
+        ChemicalCompound[] inputs = coefficients.inputs();
+        double[] inputMassFactors = coefficients.inputMassFactors();
+        var finalConsume = new HashMap<ChemicalCompound, Double>(inputs.length * 2);
+        for (int i = 0; i < inputs.length; i++) {
+            finalConsume.put(inputs[i], reacted * inputMassFactors[i]);
         }
 
-        var finalResult = new HashMap<ChemicalCompound, Double>();
-        for (ChemicalCompound compound : formula.getOutput().keySet()) {
-            /* formula.getOutput().get(compound) * maxProportion = Molar mass */
-            /* Molar mass / totalMolarMass * compound.getMolarMass() = Real mass */
-            finalResult.put(compound, formula.getOutput().get(compound) * maxProportion / totalMolarMass * compound.getMolarMass());
+        ChemicalCompound[] outputs = coefficients.outputs();
+        double[] outputMassFactors = coefficients.outputMassFactors();
+        var finalResult = new HashMap<ChemicalCompound, Double>(outputs.length * 2);
+        for (int i = 0; i < outputs.length; i++) {
+            finalResult.put(outputs[i], reacted * outputMassFactors[i]);
         }
 
         return new ReactResult(formula, finalConsume, finalResult);
@@ -251,4 +315,30 @@ public class ReactHelper {
 
         return calculateOutput(environment, conditions, reactants, formula, true);
     }
+
+    /**
+     * React a mixture with the conditions, with as many reactants as possible
+     *
+     * @param conditions the conditions of the reaction
+     * @param mixture    the mixture of the reactants
+     * @param formula    the chemical formula of the reaction
+     * @return the getProduce of the reaction
+     */
+    @NotNull
+    public static ReactResult reactAll(@NotNull Environment environment, @NotNull Set<ReactCondition> conditions, @NotNull CompoundContainer mixture, @NotNull ChemicalFormula formula) {
+        for (int id : formula.getCoefficients().inputIds()) {
+            if (mixture.getMass(id) <= 0.0D) {
+                return ReactResult.FAILED;
+            }
+        }
+
+        for (ReactCondition required : formula.getConditions()) {
+            if (!conditions.contains(required)
+                    && (required.getType() != ReactCondition.Type.CATALYZER || mixture.getMass(required.getCatalyst()) <= 0.0D)) {
+                return ReactResult.FAILED;
+            }
+        }
+
+        return calculateOutput(environment, conditions, mixture, formula, true);
+    }
 }
@@ -0,0 +1,178 @@
+package org.irmc.industrialrevival.api.elements.reaction;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.irmc.industrialrevival.api.elements.compounds.ChemicalFormula;
+import org.irmc.industrialrevival.api.elements.compounds.CompoundContainer;
+import org.irmc.industrialrevival.api.elements.compounds.CompoundIds;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable index of the registered {@link ChemicalFormula}s.
+ * <p>
+ * The inputs of every formula are compiled into a bitset over {@link CompoundIds}, and its
+ * conditions into a bit mask of {@link ReactCondition.Type}s plus the ids of its catalysts.
+ * Every formula is filed under one of its inputs, the anchor, so only formulas whose anchor
+ * is in the mixture are considered; those are then checked with a word-wise subset test of
+ * their inputs against the bitset of the mixture.
+ * Formulas without inputs, whose compounds could not be parsed, are not indexed.
+ * </p>
+ *
+ * @see ReactHelper
+ */
+final class ReactionIndex {
+    private static final int[] NO_FORMULAS = new int[0];
+
+    private final ChemicalFormula[] formulas;
+    private final long[][] requiredInputs;
+    private final int[] requiredConditions;
+    private final ReactCondition[][] catalyzers;
+    private final int[][] catalystIds;
+    /**
+     * The formulas filed under every anchor compound id.
+     */
+    private final Int2ObjectMap<int[]> byAnchor;
+
+    ReactionIndex(@NotNull Collection<ChemicalFormula> registered) {
+        List<ChemicalFormula> indexed = new ArrayList<>();
+        for (ChemicalFormula formula : registered) {
+            if (!formula.getInput().isEmpty()) {
+                indexed.add(formula);
+            }
+        }
+        indexed.sort(Comparator.comparingInt(ChemicalFormula::getId));
+
+        int size = indexed.size();
+        this.formulas = indexed.toArray(new ChemicalFormula[0]);
+        this.requiredInputs = new long[size][];
+        this.requiredConditions = new int[size];
+        this.catalyzers = new ReactCondition[size][];
+        this.catalystIds = new int[size][];
+
+        Int2ObjectMap<IntArrayList> anchors = new Int2ObjectOpenHashMap<>();
+        for (int f = 0; f < size; f++) {
+            ChemicalFormula formula = formulas[f];
+            int anchor = -1;
+            long[] bits = new long[0];
+            for (int id : formula.getCoefficients().inputIds()) {
+                bits = set(bits, id);
+                // file under the input with the fewest formulas so far
+                if (anchor < 0 || countOf(anchors, id) < countOf(anchors, anchor)) {
+                    anchor = id;
+                }
+            }
+            requiredInputs[f] = bits;
+            anchors.computeIfAbsent(anchor, _ -> new IntArrayList()).add(f);
+
+            List<ReactCondition> formulaCatalyzers = new ArrayList<>();
+            IntArrayList ids = new IntArrayList();
+            for (ReactCondition condition : formula.getConditions()) {
+                if (condition.getType() == ReactCondition.Type.CATALYZER) {
+                    formulaCatalyzers.add(condition);
+                    ids.add(CompoundIds.idOf(condition.getCatalyst()));
+                } else {
+                    requiredConditions[f] |= 1 << condition.getType().ordinal();
+                }
+            }
+            catalyzers[f] = formulaCatalyzers.toArray(new ReactCondition[0]);
+            catalystIds[f] = ids.toIntArray();
+        }
+
+        this.byAnchor = new Int2ObjectOpenHashMap<>(anchors.size());
+        for (Int2ObjectMap.Entry<IntArrayList> entry : anchors.int2ObjectEntrySet()) {
+            byAnchor.put(entry.getIntKey(), entry.getValue().toIntArray());
+        }
+    }
+
+    private static int countOf(Int2ObjectMap<IntArrayList> anchors, int id) {
+        IntArrayList list = anchors.get(id);
+        return list == null ? 0 : list.size();
+    }
+
+    private static long[] set(long[] bits, int id) {
+        int word = id >>> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, word + 1);
+        }
+        bits[word] |= 1L << id;
+        return bits;
+    }
+
+    private static boolean isSet(long[] bits, int id) {
+        int word = id >>> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * Finds all formulas whose inputs and conditions are satisfied, in the order of their ids.
+     *
+     * @param reactants  the mixture of the reactants
+     * @param conditions the current conditions
+     * @return the indexes of the satisfied formulas
+     */
+    @NotNull
+    IntArrayList findSatisfied(@NotNull CompoundContainer reactants, @NotNull Set<ReactCondition> conditions) {
+        long[] mixture = new long[0];
+        int[] present = reactants.ids();
+        for (int id : present) {
+            mixture = set(mixture, id);
+        }
+
+        int currentConditions = 0;
+        for (ReactCondition condition : conditions) {
+            if (condition.getType() != ReactCondition.Type.CATALYZER) {
+                currentConditions |= 1 << condition.getType().ordinal();
+            }
+        }
+
+        IntArrayList satisfied = new IntArrayList();
+        for (int id : present) {
+            for (int f : byAnchor.getOrDefault(id, NO_FORMULAS)) {
+                if (isSubset(requiredInputs[f], mixture)
+                        && (requiredConditions[f] & ~currentConditions) == 0
+                        && catalyzersSatisfied(f, mixture, conditions)) {
+                    satisfied.add(f);
+                }
+            }
+        }
+
+        // keep a stable order, every formula is filed under exactly one anchor so there are no duplicates
+        satisfied.sort(null);
+        return satisfied;
+    }
+
+    private static boolean isSubset(long[] required, long[] mixture) {
+        if (required.length > mixture.length) {
+            return false;
+        }
+
+        for (int w = 0; w < required.length; w++) {
+            if ((required[w] & ~mixture[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean catalyzersSatisfied(int f, long[] mixture, Set<ReactCondition> conditions) {
+        for (int c = 0; c < catalystIds[f].length; c++) {
+            if (!isSet(mixture, catalystIds[f][c]) && !conditions.contains(catalyzers[f][c])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    ChemicalFormula formula(int index) {
+        return formulas[index];
+    }
+}
@@ -31,7 +31,14 @@ public class BlockTickEvent extends Event implements Cancellable, RelatedIRItem
     private boolean cancelled;
 
     public BlockTickEvent(Block block, MachineMenu menu, IndustrialRevivalItem iritem, IRBlockData blockData) {
-        super(true);
+        this(block, menu, iritem, blockData, true);
+    }
+
+    /**
+     * @param async whether the event is fired off the owning thread, synchronized tickers are ticked on the owning thread
+     */
+    public BlockTickEvent(Block block, MachineMenu menu, IndustrialRevivalItem iritem, IRBlockData blockData, boolean async) {
+        super(async);
         this.block = block;
         this.menu = menu;
         this.iritem = iritem;
@@ -1,5 +1,6 @@
 package org.irmc.industrialrevival.api.events.ir;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bukkit.Location;
 import org.bukkit.event.Event;
@@ -9,6 +10,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Event triggered at the start of a tick cycle in the industrial revival system.
@@ -20,17 +22,34 @@ import java.util.Map;
 @Getter
 public class TickStartEvent extends Event {
     private static final HandlerList handlers = new HandlerList();
-    private final Map<Location, IRBlockData> blockDataMap;
+    @Getter(AccessLevel.NONE)
+    private final Supplier<Map<Location, IRBlockData>> blockDataSupplier;
     private final int checkInterval;
     private final long ticked;
 
     public TickStartEvent(Map<Location, IRBlockData> blockDataMap, int checkInterval, long ticked) {
+        this(() -> new HashMap<>(blockDataMap), checkInterval, ticked);
+    }
+
+    /**
+     * @param blockDataSupplier supplies a snapshot of the block data, only invoked when a listener asks for it
+     */
+    public TickStartEvent(Supplier<Map<Location, IRBlockData>> blockDataSupplier, int checkInterval, long ticked) {
         super(true);
-        this.blockDataMap = new HashMap<>(blockDataMap);
+        this.blockDataSupplier = blockDataSupplier;
         this.checkInterval = checkInterval;
         this.ticked = ticked;
     }
 
+    /**
+     * Gets a snapshot of all the block data. The snapshot is taken on every call.
+     *
+     * @return a snapshot of all the block data
+     */
+    public Map<Location, IRBlockData> getBlockDataMap() {
+        return blockDataSupplier.get();
+    }
+
     public static @NotNull HandlerList getHandlerList() {
         return handlers;
     }
@@ -2,31 +2,37 @@ package org.irmc.industrialrevival.api.items.attributes;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import org.bukkit.Location;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
 import org.irmc.industrialrevival.api.elements.compounds.ChemicalCompound;
 import org.irmc.industrialrevival.api.elements.compounds.CompoundContainer;
+import org.irmc.industrialrevival.utils.DataUtil;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * A block which holds a mixture of compounds.
+ * <p>
+ * The mixture is kept in the {@link IRBlockData#getCompounds() block data} of the block and saved along with it.
+ * Modifying it through this interface marks the block data as changed.
+ * </p>
+ *
  * @author balugaq
  */
 public interface CompoundContainerHolder extends ItemAttribute {
-    Map<Location, CompoundContainer> COMPOUND_CONTAINER = new HashMap<>();
-
     @CanIgnoreReturnValue
     default CompoundContainerHolder clearCompounds(Location location) {
-        COMPOUND_CONTAINER.remove(location);
+        removeCompoundContainer(location);
         return this;
     }
 
     @CanIgnoreReturnValue
     default CompoundContainerHolder clearCompounds(Location location, Set<ChemicalCompound> take) {
-        var all = getOrNewCompoundContainer(location).getMixed();
+        var container = getOrNewCompoundContainer(location);
         for (var compound : take) {
-            all.remove(compound);
+            container.remove(compound);
         }
+        markChanged(location);
         return this;
     }
 
@@ -34,6 +40,7 @@ public interface CompoundContainerHolder extends ItemAttribute {
     default CompoundContainerHolder mixCompounds(Location location, CompoundContainer other) {
         var container = getOrNewCompoundContainer(location);
         container.mix(other);
+        markChanged(location);
         return this;
     }
 
@@ -41,6 +48,7 @@ public interface CompoundContainerHolder extends ItemAttribute {
     default CompoundContainerHolder mixCompounds(Location location, Map<ChemicalCompound, Double> other) {
         var container = getOrNewCompoundContainer(location);
         container.mix(other);
+        markChanged(location);
         return this;
     }
 
@@ -53,6 +61,7 @@ public interface CompoundContainerHolder extends ItemAttribute {
     default CompoundContainerHolder consumeCompounds(Location location, CompoundContainer other) {
         var container = getOrNewCompoundContainer(location);
         container.consume(other);
+        markChanged(location);
         return this;
     }
 
@@ -60,11 +69,13 @@ public interface CompoundContainerHolder extends ItemAttribute {
     default CompoundContainerHolder consumeCompounds(Location location, Map<ChemicalCompound, Double> other) {
         var container = getOrNewCompoundContainer(location);
         container.consume(other);
+        markChanged(location);
         return this;
     }
 
     default CompoundContainer getCompoundContainer(Location location) {
-        return COMPOUND_CONTAINER.get(location);
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        return blockData == null ? null : blockData.getCompounds();
     }
 
     default CompoundContainer newCompoundContainer() {
@@ -72,15 +83,43 @@ public interface CompoundContainerHolder extends ItemAttribute {
     }
 
     default CompoundContainer removeCompoundContainer(Location location) {
-        return COMPOUND_CONTAINER.remove(location);
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData == null) {
+            return null;
+        }
+
+        CompoundContainer removed = blockData.getCompounds();
+        if (removed != null) {
+            blockData.setCompounds(null);
+        }
+        return removed;
     }
 
+    /**
+     * Gets the mixture of a block, creating an empty one if it has none.
+     * Outside of placed blocks the new mixture is not kept.
+     *
+     * @param location the location of the block
+     * @return the mixture
+     */
     default CompoundContainer getOrNewCompoundContainer(Location location) {
-        var v = getCompoundContainer(location);
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData == null) {
+            return newCompoundContainer();
+        }
+
+        var v = blockData.getCompounds();
         if (v == null) {
             v = newCompoundContainer();
-            COMPOUND_CONTAINER.put(location, v);
+            blockData.setCompounds(v);
         }
         return v;
     }
+
+    private static void markChanged(Location location) {
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData != null) {
+            blockData.markDirty();
+        }
+    }
 }
@@ -3,10 +3,10 @@ package org.irmc.industrialrevival.api.items.attributes;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
 import org.irmc.industrialrevival.api.menu.MachineMenu;
 import org.irmc.industrialrevival.api.machines.EnergyNetComponentType;
 import org.irmc.industrialrevival.api.machines.GeneratorType;
-import org.irmc.industrialrevival.utils.Constants;
 import org.irmc.industrialrevival.utils.DataUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -40,18 +40,32 @@ public interface EnergyNetProvider extends EnergyNetComponent {
      */
     @CanIgnoreReturnValue
     default long addEnergyProduction(@NotNull Location location, long energyProduction) {
-        long existingEnergyProduction = 0;
-        final String dataExistingEnergyProduction = DataUtil.getData(location, Constants.Keys.ENERGY_CHARGE_KEY);
-        if (dataExistingEnergyProduction != null) {
-            try {
-                existingEnergyProduction = Long.parseLong(dataExistingEnergyProduction);
-            } catch (NumberFormatException ignored) {
-            }
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData == null) {
+            return 0;
         }
-        long capacity = getCapacity();
-        long charged = Math.min(capacity - existingEnergyProduction, energyProduction);
-        long finalEnergy = existingEnergyProduction + charged;
-        DataUtil.setData(location, Constants.Keys.ENERGY_CHARGE_KEY, String.valueOf(finalEnergy));
+
+        return addEnergyProduction(blockData, energyProduction);
+    }
+
+    /**
+     * This method can be called by the machine's tick to add energy production to the network.
+     * Prefer this over {@link #addEnergyProduction(Location, long)} when the block data is at hand,
+     * e.g. from {@link org.irmc.industrialrevival.api.events.ir.BlockTickEvent#getBlockData()}.
+     *
+     * @param blockData        the machine's block data
+     * @param energyProduction the amount of energy production to add to the network
+     * @return the total energy production added to the network
+     */
+    @CanIgnoreReturnValue
+    default long addEnergyProduction(@NotNull IRBlockData blockData, long energyProduction) {
+        long existingEnergyProduction = blockData.getEnergy();
+        long charged = Math.min(getCapacity() - existingEnergyProduction, energyProduction);
+        if (charged <= 0) {
+            return 0;
+        }
+
+        blockData.setEnergy(existingEnergyProduction + charged);
         return charged;
     }
 
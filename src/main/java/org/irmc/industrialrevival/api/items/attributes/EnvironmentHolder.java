@@ -2,42 +2,71 @@ package org.irmc.industrialrevival.api.items.attributes;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import org.bukkit.Location;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
 import org.irmc.industrialrevival.api.machines.process.Environment;
+import org.irmc.industrialrevival.utils.DataUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
+ * A block which has an {@link Environment} inside.
+ * <p>
+ * The environment is kept in the {@link IRBlockData#getEnvironment() block data} of the block and saved along with it.
+ * Modifying it through this interface marks the block data as changed.
+ * </p>
+ *
  * @author balugaq
  */
 public interface EnvironmentHolder extends ItemAttribute {
     double AIR_PRESSURE = 101300;
-    Map<Location, Environment> ENVIRONMENT_CONTAINER = new HashMap<>();
 
     @NotNull
     default Environment newEnvironment() {
         return new Environment();
     }
 
-    @NotNull
+    @Nullable
     default Environment removeEnvironment(@NotNull Location location) {
-        return ENVIRONMENT_CONTAINER.remove(location);
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData == null) {
+            return null;
+        }
+
+        Environment removed = blockData.getEnvironment();
+        if (removed != null) {
+            blockData.setEnvironment(null);
+        }
+        return removed;
     }
 
     @Nullable
     default Environment getEnvironment(@NotNull Location location) {
-        return ENVIRONMENT_CONTAINER.get(location);
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        return blockData == null ? null : blockData.getEnvironment();
     }
 
     @ParametersAreNonnullByDefault
     @CanIgnoreReturnValue
     default Environment setEnvironment(Location location, Environment environment) {
-        return ENVIRONMENT_CONTAINER.put(location, environment);
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData == null) {
+            return null;
+        }
+
+        Environment previous = blockData.getEnvironment();
+        blockData.setEnvironment(environment);
+        return previous;
     }
 
+    /**
+     * Gets the environment of a block, creating a {@link #newEnvironment() new} one if it has none.
+     * Outside of placed blocks the new environment is not kept.
+     *
+     * @param location the location of the block
+     * @return the environment
+     */
     default Environment getOrNewEnvironment(@NotNull Location location) {
         var exist = getEnvironment(location);
         if (exist != null) {
@@ -67,21 +96,32 @@ public interface EnvironmentHolder extends ItemAttribute {
 
     default EnvironmentHolder setTemperature(@NotNull Location location, double temperature) {
         getOrNewEnvironment(location).setTemperature(temperature);
+        markChanged(location);
         return this;
     }
 
     default EnvironmentHolder setPressure(@NotNull Location location, double pressure) {
         getOrNewEnvironment(location).setPressure(pressure);
+        markChanged(location);
         return this;
     }
 
     default EnvironmentHolder setHumidity(@NotNull Location location, double humidity) {
         getOrNewEnvironment(location).setHumidity(humidity);
+        markChanged(location);
         return this;
     }
 
     default EnvironmentHolder setRadiation(@NotNull Location location, double radiation) {
         getOrNewEnvironment(location).setRadiation(radiation);
+        markChanged(location);
         return this;
     }
+
+    private static void markChanged(Location location) {
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        if (blockData != null) {
+            blockData.markDirty();
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package org.irmc.industrialrevival.api.machines;
 
 import lombok.Getter;
+import org.bukkit.Location;
 import org.bukkit.inventory.ItemStack;
 import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
 import org.irmc.industrialrevival.api.machines.recipes.MachineRecipe;
@@ -8,7 +9,9 @@ import org.irmc.industrialrevival.api.machines.recipes.MachineRecipes;
 import org.irmc.industrialrevival.api.objects.ItemStackReference;
 import org.irmc.industrialrevival.api.recipes.RecipeType;
 import org.irmc.industrialrevival.utils.CleanedItemGetter;
+import org.jetbrains.annotations.NotNull;
 
+import javax.annotation.OverridingMethodsMustInvokeSuper;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
@@ -108,6 +111,16 @@ public abstract class AbstractMachine extends IndustrialRevivalItem {
         return this;
     }
 
+    /**
+     * Called when a block of this machine has been removed, forgets the state kept for its location.
+     *
+     * @param location the location of the removed block
+     */
+    @OverridingMethodsMustInvokeSuper
+    public void onBlockRemoved(@NotNull Location location) {
+        machineRecipes.clearLastMatch(location);
+    }
+
     /**
      * Finds the input items required to produce a specific output item.
      * <p>
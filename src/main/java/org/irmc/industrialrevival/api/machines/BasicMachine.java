@@ -30,7 +30,6 @@ import java.util.Map;
  * @author balugaq
  */
 public abstract class BasicMachine extends AbstractMachine implements ProcessorHolder<MachineOperation>, InventoryBlock {
-    private final Map<Location, MachineRecipe> lastMatches = new HashMap<>();
     private final MachineProcessor<MachineOperation> processor = new MachineProcessor<>();
 
     private int[] INPUT_SLOTS = null;
@@ -57,6 +56,11 @@ public abstract class BasicMachine extends AbstractMachine implements ProcessorH
                     return getOutputSlots();
                 }
             }
+
+            @Override
+            public boolean hasItemIndependentSlots() {
+                return true;
+            }
         }.register();
     }
 
@@ -73,13 +77,13 @@ public abstract class BasicMachine extends AbstractMachine implements ProcessorH
         MachineMenu menu = event.getMenu();
         if (menu == null) {
             processor.stopProcess(block.getLocation());
+            machineRecipes.clearLastMatch(block.getLocation());
             return;
         }
 
         Location location = block.getLocation();
         MachineOperation operation = processor.getProcess(location);
         if (operation == null) {
-            MachineRecipe lastMatch = lastMatches.get(location);
             Map<ItemStack, Integer> inputs = new HashMap<>();
             for (int slot : menu.getPreset().getSlotsByItemFlow(ItemFlow.INSERT)) {
                 ItemStack stack = menu.getItem(slot);
@@ -87,14 +91,10 @@ public abstract class BasicMachine extends AbstractMachine implements ProcessorH
                     inputs.merge(stack, stack.getAmount(), Integer::sum);
                 }
             }
+            // tries the recipe matched last time at this location first, then the recipe index
+            MachineRecipe lastMatch = this.machineRecipes.findNextRecipe(location, inputs);
             if (lastMatch == null) {
-                lastMatches.put(location, this.machineRecipes.findNextRecipe(inputs));
                 return;
-            } else {
-                if (!lastMatch.isMatch(inputs)) {
-                    lastMatches.remove(location);
-                    return;
-                }
             }
             processor.startProcess(location, new MachineOperation(lastMatch));
             for (ItemStackReference item : lastMatch.getInputs().keySet()) {
@@ -9,7 +9,7 @@ import org.jetbrains.annotations.NotNull;
 public abstract class ElectricAutonomousGenerator extends AbstractElectricGenerator {
     @Override
     protected void tick(BlockTickEvent event) {
-        addEnergyProduction(event.getMenu().getLocation(), getEnergyProduction(event.getBlock(), event.getMenu()));
+        addEnergyProduction(event.getBlockData(), getEnergyProduction(event.getBlock(), event.getMenu()));
     }
 
     @Override
@@ -15,9 +15,9 @@ public abstract class ElectricSolarGenerator extends AbstractElectricGenerator {
         MachineMenu menu = event.getMenu();
         byte lightLevel = block.getLightFromSky();
         if (isDay(block, menu, lightLevel)) {
-            addEnergyProduction(menu.getLocation(), getDayEnergyProduction(block, menu, lightLevel));
+            addEnergyProduction(event.getBlockData(), getDayEnergyProduction(block, menu, lightLevel));
         } else {
-            addEnergyProduction(menu.getLocation(), getNightEnergyProduction(block, menu, lightLevel));
+            addEnergyProduction(event.getBlockData(), getNightEnergyProduction(block, menu, lightLevel));
         }
     }
 
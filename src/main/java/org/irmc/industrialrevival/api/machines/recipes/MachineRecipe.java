@@ -186,33 +186,22 @@ public class MachineRecipe {
     }
 
     public boolean isMatch(Map<ItemStack, Integer> items) {
-        for (ItemStackReference itemStackReference : inputs.keySet()) {
-            if (itemStackReference.getReferenceType() == ItemStackReference.ReferenceType.DICTIONARY) {
-                boolean found = false;
-                for (ItemStack incoming : items.keySet()) {
-                    if (itemStackReference.itemsMatch(incoming)) {
-                        if (items.get(incoming) < inputs.get(itemStackReference)) {
-                            return false;
-                        }
-
-                        found = true;
-                        break;
-                    }
-                }
-                if (!found) {
-                    return false;
-                }
-            } else {
-                for (ItemStack incoming : items.keySet()) {
-                    if (itemStackReference.itemsMatch(incoming)) {
-                        if (items.get(incoming) < inputs.get(itemStackReference)) {
-                            return false;
-                        }
-
-                        break;
+        for (Map.Entry<ItemStackReference, Integer> input : inputs.entrySet()) {
+            ItemStackReference itemStackReference = input.getKey();
+            boolean found = false;
+            for (Map.Entry<ItemStack, Integer> incoming : items.entrySet()) {
+                if (itemStackReference.itemsMatch(incoming.getKey())) {
+                    if (incoming.getValue() < input.getValue()) {
+                        return false;
                     }
+
+                    found = true;
+                    break;
                 }
             }
+            if (!found) {
+                return false;
+            }
         }
         return true;
     }
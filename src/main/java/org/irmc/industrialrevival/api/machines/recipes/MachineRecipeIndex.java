@@ -0,0 +1,141 @@
+package org.irmc.industrialrevival.api.machines.recipes;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.bukkit.inventory.ItemStack;
+import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.objects.ItemFingerprint;
+import org.irmc.industrialrevival.api.objects.ItemStackReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of recipes by the identity of their inputs.
+ * <p>
+ * The identity of an item is its {@link ItemFingerprint#identity()}: its IndustrialRevival id if it has one,
+ * or its {@link org.bukkit.Material} otherwise.
+ * Dictionary inputs are fanned out to the ids of all items of the dictionary.
+ * A recipe is only a candidate for some items if the identity of every input is among them,
+ * so finding the candidates costs one lookup per item instead of a match attempt per recipe.
+ * Candidates are then verified with {@link MachineRecipe#isMatch(Map)} in the order of the recipe list.
+ * </p>
+ *
+ * @see MachineRecipes
+ */
+final class MachineRecipeIndex {
+    private static final long[] NO_POSTINGS = new long[0];
+
+    private final List<MachineRecipe> recipes;
+    /**
+     * For every identity the recipes having an input of it, as {@code recipe << 32 | input}.
+     */
+    private final Map<Object, long[]> postings;
+    /**
+     * For every recipe the bits of all its inputs, see {@link #inputBit(int)}.
+     */
+    private final long[] requiredInputs;
+    private final int[] inputlessRecipes;
+
+    MachineRecipeIndex(@NotNull List<MachineRecipe> recipes) {
+        this.recipes = List.copyOf(recipes);
+        this.requiredInputs = new long[this.recipes.size()];
+
+        Map<Object, LongArrayList> lists = new HashMap<>();
+        IntArrayList inputless = new IntArrayList();
+        for (int recipe = 0; recipe < this.recipes.size(); recipe++) {
+            Map<ItemStackReference, Integer> inputs = this.recipes.get(recipe).getInputs();
+            if (inputs.isEmpty()) {
+                inputless.add(recipe);
+                continue;
+            }
+
+            int input = 0;
+            for (ItemStackReference reference : inputs.keySet()) {
+                for (Object key : keysOf(reference)) {
+                    lists.computeIfAbsent(key, _ -> new LongArrayList()).add(((long) recipe << 32) | input);
+                }
+                requiredInputs[recipe] |= inputBit(input);
+                input++;
+            }
+        }
+
+        this.postings = new HashMap<>(lists.size() * 2);
+        for (Map.Entry<Object, LongArrayList> entry : lists.entrySet()) {
+            this.postings.put(entry.getKey(), entry.getValue().toLongArray());
+        }
+        this.inputlessRecipes = inputless.toIntArray();
+    }
+
+    private static List<Object> keysOf(ItemStackReference reference) {
+        if (reference.getReferenceType() == ItemStackReference.ReferenceType.DICTIONARY) {
+            List<Object> keys = new ArrayList<>();
+            for (IndustrialRevivalItem item : reference.getDictionary().getItems()) {
+                keys.add(item.getId());
+            }
+            return keys;
+        }
+
+        return List.of(reference.getFingerprint().identity());
+    }
+
+    /**
+     * Recipes with more than 64 inputs share the last bit, which only makes the pre-filter less strict.
+     */
+    private static long inputBit(int input) {
+        return 1L << Math.min(input, 63);
+    }
+
+    /**
+     * Finds the first recipe, in the order of the recipe list, which matches the items.
+     *
+     * @param items the items and their amounts
+     * @return the first matching recipe, or null if no recipe matches
+     */
+    @Nullable
+    MachineRecipe findRecipe(@NotNull Map<ItemStack, Integer> items) {
+        Int2LongMap presentInputs = new Int2LongOpenHashMap();
+        List<Object> seenKeys = new ArrayList<>(items.size());
+        for (ItemStack item : items.keySet()) {
+            if (item == null || item.getType().isAir()) {
+                continue;
+            }
+
+            Object key = ItemFingerprint.of(item).identity();
+            if (seenKeys.contains(key)) {
+                continue;
+            }
+            seenKeys.add(key);
+
+            for (long posting : postings.getOrDefault(key, NO_POSTINGS)) {
+                int recipe = (int) (posting >>> 32);
+                presentInputs.put(recipe, presentInputs.get(recipe) | inputBit((int) posting));
+            }
+        }
+
+        IntArrayList candidates = new IntArrayList(inputlessRecipes);
+        for (Int2LongMap.Entry entry : presentInputs.int2LongEntrySet()) {
+            long required = requiredInputs[entry.getIntKey()];
+            if ((entry.getLongValue() & required) == required) {
+                candidates.add(entry.getIntKey());
+            }
+        }
+
+        // keep the priority of the recipe list
+        IntArrays.quickSort(candidates.elements(), 0, candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            MachineRecipe recipe = recipes.get(candidates.getInt(i));
+            if (recipe.isMatch(items)) {
+                return recipe;
+            }
+        }
+        return null;
+    }
+}
@@ -1,26 +1,47 @@
 package org.irmc.industrialrevival.api.machines.recipes;
 
-import lombok.Getter;
+import org.bukkit.Location;
 import org.bukkit.inventory.ItemStack;
 import org.irmc.industrialrevival.utils.ItemUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Machine recipes are unordered by default.
+ * <p>
+ * Lookups go through an index of the recipes by the identity of their inputs, which is rebuilt
+ * lazily after the recipes changed, and the last recipe matched at a location is tried first.
+ * The recipes can only be changed through this class, so every change invalidates the index,
+ * while holding the same lock the index is built with.
+ * </p>
  *
  * @author balugaq
  */
-@Getter
 public class MachineRecipes {
     private final List<MachineRecipe> recipes = new ArrayList<>();
+    private final Map<Location, MachineRecipe> lastMatches = new ConcurrentHashMap<>();
+    private volatile MachineRecipeIndex index;
 
     public MachineRecipes() {
     }
 
+    /**
+     * Gets the recipes, use the methods of this class to change them.
+     *
+     * @return an unmodifiable view of the recipes
+     */
+    @NotNull
+    public List<MachineRecipe> getRecipes() {
+        return Collections.unmodifiableList(recipes);
+    }
+
     public MachineRecipe findNextRecipe(List<ItemStack> items) {
         Map<ItemStack, Integer> itemsMap = new HashMap<>();
         for (ItemStack item : items) {
@@ -30,24 +51,78 @@ public class MachineRecipes {
     }
 
     public MachineRecipe findNextRecipe(Map<ItemStack, Integer> items) {
-        for (MachineRecipe recipe : recipes) {
-            if (recipe.isMatch(items)) {
-                return recipe;
+        return getIndex().findRecipe(items);
+    }
+
+    /**
+     * Finds the next recipe of a machine, trying the recipe matched last time at the location first.
+     *
+     * @param location the location of the machine
+     * @param items    the input items and their amounts
+     * @return the matching recipe, or null if no recipe matches
+     */
+    @Nullable
+    public MachineRecipe findNextRecipe(@NotNull Location location, @NotNull Map<ItemStack, Integer> items) {
+        MachineRecipe lastMatch = lastMatches.get(location);
+        if (lastMatch != null && lastMatch.isMatch(items)) {
+            return lastMatch;
+        }
+
+        MachineRecipe recipe = findNextRecipe(items);
+        if (recipe == null) {
+            lastMatches.remove(location);
+        } else {
+            lastMatches.put(location, recipe);
+        }
+        return recipe;
+    }
+
+    /**
+     * Forgets the recipe matched last time at a location, must be called when the machine is removed.
+     *
+     * @param location the location of the machine
+     */
+    public void clearLastMatch(@NotNull Location location) {
+        lastMatches.remove(location);
+    }
+
+    /**
+     * Marks the index as outdated. Only needed after adding items to a dictionary used by a recipe,
+     * changing the recipes through this class does it already.
+     */
+    public void invalidateIndex() {
+        index = null;
+    }
+
+    private MachineRecipeIndex getIndex() {
+        MachineRecipeIndex current = index;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = index;
+            if (current == null) {
+                current = new MachineRecipeIndex(recipes);
+                index = current;
             }
+            return current;
         }
-        return null;
     }
 
-    public void addAll(MachineRecipes recipes) {
+    public synchronized void addAll(MachineRecipes recipes) {
         this.recipes.addAll(recipes.recipes);
+        invalidateIndex();
     }
 
-    public void addAll(List<MachineRecipe> recipes) {
+    public synchronized void addAll(List<MachineRecipe> recipes) {
         this.recipes.addAll(recipes);
+        invalidateIndex();
     }
 
-    public void addRecipe(MachineRecipe recipe) {
+    public synchronized void addRecipe(MachineRecipe recipe) {
         recipes.add(recipe);
+        invalidateIndex();
     }
 
     public void addRecipe(int processTime, int energyCost, ItemStack[] input, ItemStack[] output) {
@@ -59,7 +134,7 @@ public class MachineRecipes {
         for (ItemStack outputItem : output) {
             outputsMap.put(ItemUtils.cloneItem(outputItem, 1), outputItem.getAmount());
         }
-        recipes.add(new MachineRecipe(processTime, energyCost, inputsMap, outputsMap));
+        addRecipe(new MachineRecipe(processTime, energyCost, inputsMap, outputsMap));
     }
 
     public void addRecipe(int processTime, int energyCost, List<ItemStack> inputs, List<ItemStack> outputs) {
@@ -71,10 +146,12 @@ public class MachineRecipes {
         for (ItemStack output : outputs) {
             outputsMap.put(ItemUtils.cloneItem(output, 1), output.getAmount());
         }
-        recipes.add(new MachineRecipe(processTime, energyCost, inputsMap, outputsMap));
+        addRecipe(new MachineRecipe(processTime, energyCost, inputsMap, outputsMap));
     }
 
-    public void removeRecipe(MachineRecipe recipe) {
+    public synchronized void removeRecipe(MachineRecipe recipe) {
         recipes.remove(recipe);
+        invalidateIndex();
+        lastMatches.values().removeIf(lastMatch -> lastMatch == recipe);
     }
 }
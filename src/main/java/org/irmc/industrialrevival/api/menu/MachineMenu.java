@@ -18,6 +18,7 @@ import org.irmc.industrialrevival.api.menu.handlers.MenuCloseHandler;
 import org.irmc.industrialrevival.api.menu.handlers.MenuOpenHandler;
 import org.irmc.industrialrevival.api.menu.handlers.OutsideClickHandler;
 import org.irmc.industrialrevival.api.objects.ItemStackReference;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
 import org.irmc.industrialrevival.implementation.items.CustomItemStack;
 import org.irmc.industrialrevival.utils.ItemUtils;
 import org.jetbrains.annotations.NotNull;
@@ -181,11 +182,21 @@ public class MachineMenu extends SimpleMenu {
         return consumedCount;
     }
 
+    /**
+     * Displays the progress of an operation, only rendered while the menu is viewed.
+     *
+     * @param slot            the slot of the progress bar
+     * @param remainingTicks  the remaining ticks of the operation
+     * @param totalTicks      the total ticks of the operation
+     * @param progressBarItem the item to display the progress on
+     * @see #setDisplayItem(int, java.util.function.Supplier)
+     */
     public void setProgressItem(@Range(from = 0, to = 53) int slot, int remainingTicks, int totalTicks, @NotNull ItemStack progressBarItem) {
-        if (!this.hasViewer()) {
-            return;
-        }
+        setDisplayItem(slot, () -> renderProgressItem(remainingTicks, totalTicks, progressBarItem));
+    }
 
+    @NotNull
+    private static ItemStack renderProgressItem(int remainingTicks, int totalTicks, @NotNull ItemStack progressBarItem) {
         ItemStack item = progressBarItem.clone();
         ItemMeta im = item.getItemMeta();
         im.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
@@ -198,8 +209,12 @@ public class MachineMenu extends SimpleMenu {
         im.setLore(Arrays.asList(
                 getProgressBar(remainingTicks, totalTicks), "", ChatColor.GRAY + getRemainingTime(remainingTicks / 2)));
         item.setItemMeta(im);
+        return item;
+    }
 
-        setItem(slot, item);
+    @Override
+    protected void scheduleRender(@NotNull Runnable render) {
+        IndustrialRevival.getInstance().getFoliaLibImpl().getScheduler().runAtLocation(location, _ -> render.run());
     }
 
     @Nullable
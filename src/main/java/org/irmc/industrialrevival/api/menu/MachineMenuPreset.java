@@ -1,5 +1,6 @@
 package org.irmc.industrialrevival.api.menu;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
@@ -25,6 +26,8 @@ public class MachineMenuPreset extends SimpleMenu {
     private final NamespacedKey id;
 
     private boolean locked;
+    @Getter(AccessLevel.NONE)
+    private final int[][] slotTables = new int[ItemFlow.values().length][];
 
     public MachineMenuPreset(@NotNull NamespacedKey id, @NotNull String title) {
         this(id, LegacyComponentSerializer.legacyAmpersand().deserialize(title));
@@ -129,10 +132,47 @@ public class MachineMenuPreset extends SimpleMenu {
         return getSlotsByItemFlow(itemFlow, null);
     }
 
+    /**
+     * Gets the slots an item may be inserted into or withdrawn from.
+     * Override this to restrict the slots per item; item routing asks for the slots of every batch of similar items
+     * then, unless {@link #hasItemIndependentSlots()} is overridden to return true.
+     *
+     * @param itemFlow  the item flow
+     * @param itemStack the item, or null for any item
+     * @return the slots
+     */
     public int[] getSlotsByItemFlow(@NotNull ItemFlow itemFlow, @Nullable ItemStack itemStack) {
         return new int[0];
     }
 
+    /**
+     * Whether {@link #getSlotsByItemFlow(ItemFlow, ItemStack)} returns the same slots for every item,
+     * so item routing may use the {@link #getSlotTable(ItemFlow) slot tables} instead of asking for every item.
+     * Presets ignoring the item should override this to return true.
+     *
+     * @return true if the slots do not depend on the item
+     */
+    public boolean hasItemIndependentSlots() {
+        return false;
+    }
+
+    /**
+     * Gets the slots of an item flow for any item, asked from {@link #getSlotsByItemFlow(ItemFlow)} only once.
+     * Item routing uses this table instead of asking for the slots of every item,
+     * if the preset {@link #hasItemIndependentSlots() has item independent slots}.
+     *
+     * @param itemFlow the item flow
+     * @return the slots, must not be modified
+     */
+    public int[] getSlotTable(@NotNull ItemFlow itemFlow) {
+        int[] table = slotTables[itemFlow.ordinal()];
+        if (table == null) {
+            table = getSlotsByItemFlow(itemFlow);
+            slotTables[itemFlow.ordinal()] = table;
+        }
+        return table;
+    }
+
     public MachineMenuPreset withMenuDrawer(@NotNull MatrixMenuDrawer drawer) {
         this.drawers.add(drawer);
         return this;
@@ -1,6 +1,8 @@
 package org.irmc.industrialrevival.api.menu;
 
 import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import lombok.Getter;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
@@ -12,6 +14,7 @@ import org.irmc.industrialrevival.api.menu.handlers.ClickHandler;
 import org.irmc.industrialrevival.api.menu.handlers.MenuCloseHandler;
 import org.irmc.industrialrevival.api.menu.handlers.MenuOpenHandler;
 import org.irmc.industrialrevival.api.menu.handlers.OutsideClickHandler;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
 import org.irmc.industrialrevival.utils.Debug;
 import org.irmc.industrialrevival.utils.MenuUtil;
 import org.jetbrains.annotations.NotNull;
@@ -21,6 +24,8 @@ import org.jetbrains.annotations.Range;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 public class SimpleMenu implements IRInventoryHolder {
@@ -38,6 +43,11 @@ public class SimpleMenu implements IRInventoryHolder {
     @Getter
     private OutsideClickHandler outsideClickHandler = (player, menu) -> {
     };
+    /**
+     * The renderers of display slots waiting for the next render, see {@link #setDisplayItem(int, Supplier)}.
+     */
+    private final Int2ObjectMap<Supplier<ItemStack>> pendingDisplays = new Int2ObjectOpenHashMap<>();
+    private boolean renderScheduled;
 
     public SimpleMenu(@NotNull String title) {
         this(Component.text(title));
@@ -245,7 +255,88 @@ public class SimpleMenu implements IRInventoryHolder {
     }
 
     public boolean hasViewer() {
-        return !getViewers().isEmpty();
+        Inventory current = this.inventory;
+        return current != null && !current.getViewers().isEmpty();
+    }
+
+    /**
+     * Updates a slot which only displays information, like a progress bar or a status icon.
+     * <p>
+     * Nothing is done while nobody views the menu, the renderer is not even called.
+     * Otherwise the update is rendered on the next tick, where only the last renderer given for
+     * every slot is called, and the slot is only sent to the viewers if its item has changed.
+     * As machines update their display slots every tick, a menu shows them after it has been opened
+     * within a tick. May be called from any thread.
+     * </p>
+     *
+     * @param slot     the slot
+     * @param renderer creates the item to display
+     */
+    public void setDisplayItem(@Range(from = 0, to = 53) int slot, @NotNull Supplier<ItemStack> renderer) {
+        if (!hasViewer()) {
+            return;
+        }
+
+        synchronized (pendingDisplays) {
+            pendingDisplays.put(slot, renderer);
+            if (renderScheduled) {
+                return;
+            }
+            renderScheduled = true;
+        }
+        scheduleRender(this::renderDisplays);
+    }
+
+    /**
+     * Schedules the rendering of the pending display slots on a thread which may modify the inventory.
+     *
+     * @param render renders the pending display slots
+     */
+    protected void scheduleRender(@NotNull Runnable render) {
+        IndustrialRevival.getInstance().getFoliaLibImpl().getScheduler().runNextTick(_ -> render.run());
+    }
+
+    private void renderDisplays() {
+        Int2ObjectMap<Supplier<ItemStack>> rendering;
+        synchronized (pendingDisplays) {
+            rendering = new Int2ObjectOpenHashMap<>(pendingDisplays);
+            pendingDisplays.clear();
+            renderScheduled = false;
+        }
+
+        if (!hasViewer()) {
+            return;
+        }
+
+        for (Int2ObjectMap.Entry<Supplier<ItemStack>> entry : rendering.int2ObjectEntrySet()) {
+            updateItem(entry.getIntKey(), entry.getValue().get());
+        }
+    }
+
+    /**
+     * Sets the item of a slot only if it differs from the current one, so unchanged slots are not sent to the viewers.
+     * The click handler of the slot is kept.
+     *
+     * @param slot the slot
+     * @param item the item, null or air to empty the slot
+     * @return true if the slot has been changed
+     */
+    public boolean updateItem(@Range(from = 0, to = 53) int slot, @Nullable ItemStack item) {
+        if (item != null && item.getType() == Material.AIR) {
+            item = null;
+        }
+
+        ItemStack current = getItem(slot);
+        if (current != null && current.getType() == Material.AIR) {
+            current = null;
+        }
+
+        if (Objects.equals(current, item)) {
+            return false;
+        }
+
+        getInventory().setItem(slot, item);
+        return true;
     }
 
     public void setOutsideClickHandler(@NotNull OutsideClickHandler outsideClickHandler) {
@@ -8,6 +8,7 @@ import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
 import org.irmc.industrialrevival.api.menu.MatrixMenuDrawer;
 import org.irmc.industrialrevival.api.menu.handlers.ClickHandler;
 import org.irmc.industrialrevival.api.player.PlayerProfile;
+import org.irmc.industrialrevival.core.guide.GuideSearchIndex;
 
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
 import org.irmc.industrialrevival.utils.GuideUtil;
@@ -17,16 +18,24 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 public class SearchMenu extends PageableMenu<IndustrialRevivalItem> {
     private final String searchTerm;
 
     public SearchMenu(Component title, @NotNull String searchTerm, Player player, @NotNull PlayerProfile playerProfile, int currentPage) {
-        super(title, player, playerProfile, currentPage, searchItems(player, searchTerm), new HashMap<>());
+        this(title, searchTerm, player, playerProfile, currentPage, searchItems(player, searchTerm), new HashMap<>());
+    }
+
+    /**
+     * Creates a page of a search, sharing the found items and the pages of the search with its other pages.
+     */
+    private SearchMenu(Component title, @NotNull String searchTerm, Player player, @NotNull PlayerProfile playerProfile, int currentPage,
+                       List<IndustrialRevivalItem> items, Map<Integer, PageableMenu<IndustrialRevivalItem>> pages) {
+        super(title, player, playerProfile, currentPage, items, pages);
         this.searchTerm = searchTerm;
         drawer.addExplain(objSymbol, "Item");
         List<IndustrialRevivalItem> cropped = crop(currentPage);
@@ -52,24 +61,12 @@ public class SearchMenu extends PageableMenu<IndustrialRevivalItem> {
     }
 
     public static @NotNull List<IndustrialRevivalItem> searchItems(Player player, @NotNull String searchTerm) {
-        var c = Component.text(searchTerm);
-        List<IndustrialRevivalItem> items = new ArrayList<>();
-        for (var item : IndustrialRevival.getInstance().getRegistry().getItems().values()) {
-            if (item.isDisabled()) {
-                continue;
-            }
-
-            if (item.getItemName().contains(c)) {
-                items.add(item);
-            }
-        }
-
-        return items;
+        return GuideSearchIndex.search(IndustrialRevival.getInstance().getLanguageManager().getLanguage(player), searchTerm);
     }
 
     @Override
     public PageableMenu<IndustrialRevivalItem> newMenu(@NotNull PageableMenu<IndustrialRevivalItem> menu, int newPage) {
-        return new SearchMenu(menu.getTitle(), searchTerm, menu.getPlayer(), menu.getPlayerProfile(), newPage);
+        return new SearchMenu(menu.getTitle(), searchTerm, menu.getPlayer(), menu.getPlayerProfile(), newPage, menu.getItems(), menu.getPages());
     }
 
     public @Nullable ItemStack getDisplayItem(@NotNull IndustrialRevivalItem item) {
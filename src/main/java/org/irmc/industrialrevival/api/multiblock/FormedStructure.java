@@ -0,0 +1,59 @@
+package org.irmc.industrialrevival.api.multiblock;
+
+import lombok.Getter;
+import org.bukkit.Location;
+import org.bukkit.Rotation;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A multiblock which has been found valid at a location, with the rotation it was found in
+ * and the box around the blocks it consists of.
+ *
+ * @see FormedStructures
+ */
+@Getter
+public final class FormedStructure {
+    private final MultiBlock multiBlock;
+    private final Location center;
+    private final Rotation rotation;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    /**
+     * Whether a block inside the box has changed since the structure was last validated.
+     */
+    private volatile boolean stale;
+
+    FormedStructure(@NotNull MultiBlock multiBlock, @NotNull Location center, @NotNull Rotation rotation) {
+        this.multiBlock = multiBlock;
+        this.center = center;
+        this.rotation = rotation;
+
+        int[] bounds = multiBlock.getStructure().getBounds(rotation);
+        this.minX = center.getBlockX() + bounds[0];
+        this.minY = center.getBlockY() + bounds[1];
+        this.minZ = center.getBlockZ() + bounds[2];
+        this.maxX = center.getBlockX() + bounds[3];
+        this.maxY = center.getBlockY() + bounds[4];
+        this.maxZ = center.getBlockZ() + bounds[5];
+    }
+
+    /**
+     * Checks whether a block is inside the box of the structure.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return true if the block is inside the box
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    void setStale(boolean stale) {
+        this.stale = stale;
+    }
+}
@@ -0,0 +1,193 @@
+package org.irmc.industrialrevival.api.multiblock;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Rotation;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.irmc.industrialrevival.core.listeners.MultiblockTicker;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the multiblocks which have been formed, so their structure is not validated again
+ * as long as no block inside their box changes.
+ * <p>
+ * A structure is formed when a player interacts with a valid multiblock. Block changes inside
+ * its box mark it stale, and it is validated again, in the rotation it was formed in, on the
+ * next tick of the region owning its center. If it is no longer valid it is forgotten and
+ * {@link MultiblockTicker} stops ticking it. Until then, checking whether a structure is formed
+ * does not read the world.
+ * </p>
+ *
+ * @see org.irmc.industrialrevival.core.listeners.MultiBlockListener
+ */
+@UtilityClass
+public class FormedStructures {
+    private static final Map<Location, FormedStructure> byCenter = new ConcurrentHashMap<>();
+    /**
+     * The formed structures overlapping every chunk, only accessed by the server thread(s) while synchronized.
+     */
+    private static final Map<World, Long2ObjectMap<List<FormedStructure>>> byChunk = new HashMap<>();
+
+    /**
+     * Validates a multiblock at a location and remembers it if it is valid.
+     *
+     * @param multiBlock the multiblock
+     * @param center     the location of the center piece
+     * @return the formed structure, or null if the structure is not valid
+     */
+    @Nullable
+    public static FormedStructure form(@NotNull MultiBlock multiBlock, @NotNull Location center) {
+        Rotation rotation = multiBlock.getStructure().findRotation(center);
+        if (rotation == null) {
+            return null;
+        }
+
+        FormedStructure formed = new FormedStructure(multiBlock, center.clone(), rotation);
+        FormedStructure previous = byCenter.put(formed.getCenter(), formed);
+        synchronized (byChunk) {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(formed);
+        }
+        return formed;
+    }
+
+    /**
+     * Gets the structure formed at a location.
+     *
+     * @param center the location of the center piece
+     * @return the formed structure, or null if none is formed or it has to be validated again
+     */
+    @Nullable
+    public static FormedStructure getFormed(@NotNull Location center) {
+        FormedStructure formed = byCenter.get(center);
+        return formed == null || formed.isStale() ? null : formed;
+    }
+
+    /**
+     * Checks whether a structure is formed at a location, without reading the world.
+     *
+     * @param center the location of the center piece
+     * @return true if a valid structure is formed there
+     */
+    public static boolean isFormed(@NotNull Location center) {
+        return getFormed(center) != null;
+    }
+
+    /**
+     * Forgets the structure formed at a location and stops ticking it.
+     *
+     * @param center the location of the center piece
+     */
+    public static void unform(@NotNull Location center) {
+        FormedStructure formed = byCenter.remove(center);
+        if (formed == null) {
+            return;
+        }
+
+        synchronized (byChunk) {
+            unindex(formed);
+        }
+        MultiblockTicker.removeTickable(center);
+    }
+
+    /**
+     * Marks the structures whose box contains a block stale and schedules their validation.
+     * Must be called by the thread owning the block.
+     *
+     * @param block the block which has changed or is about to change
+     */
+    public static void blockChanged(@NotNull Block block) {
+        if (byCenter.isEmpty()) {
+            return;
+        }
+
+        List<FormedStructure> affected = null;
+        synchronized (byChunk) {
+            Long2ObjectMap<List<FormedStructure>> worldChunks = byChunk.get(block.getWorld());
+            if (worldChunks == null) {
+                return;
+            }
+
+            List<FormedStructure> structures = worldChunks.get(Chunk.getChunkKey(block.getX() >> 4, block.getZ() >> 4));
+            if (structures == null) {
+                return;
+            }
+
+            for (FormedStructure formed : structures) {
+                if (!formed.isStale() && formed.contains(block.getX(), block.getY(), block.getZ())) {
+                    formed.setStale(true);
+                    if (affected == null) {
+                        affected = new ArrayList<>(1);
+                    }
+                    affected.add(formed);
+                }
+            }
+        }
+
+        if (affected != null) {
+            for (FormedStructure formed : affected) {
+                // the change only takes effect after the event, validate on the next tick
+                IndustrialRevival.getInstance().getFoliaLibImpl().getScheduler().runAtLocation(formed.getCenter(), _ -> revalidate(formed));
+            }
+        }
+    }
+
+    private static void revalidate(FormedStructure formed) {
+        if (byCenter.get(formed.getCenter()) != formed) {
+            return;
+        }
+
+        if (formed.getMultiBlock().getStructure().validateRotation(formed.getCenter(), formed.getRotation())) {
+            formed.setStale(false);
+        } else {
+            unform(formed.getCenter());
+        }
+    }
+
+    private static void index(FormedStructure formed) {
+        Long2ObjectMap<List<FormedStructure>> worldChunks = byChunk.computeIfAbsent(formed.getCenter().getWorld(), _ -> new Long2ObjectOpenHashMap<>());
+        for (int chunkX = formed.getMinX() >> 4; chunkX <= formed.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = formed.getMinZ() >> 4; chunkZ <= formed.getMaxZ() >> 4; chunkZ++) {
+                worldChunks.computeIfAbsent(Chunk.getChunkKey(chunkX, chunkZ), _ -> new ArrayList<>(1)).add(formed);
+            }
+        }
+    }
+
+    private static void unindex(FormedStructure formed) {
+        World world = formed.getCenter().getWorld();
+        Long2ObjectMap<List<FormedStructure>> worldChunks = byChunk.get(world);
+        if (worldChunks == null) {
+            return;
+        }
+
+        for (int chunkX = formed.getMinX() >> 4; chunkX <= formed.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = formed.getMinZ() >> 4; chunkZ <= formed.getMaxZ() >> 4; chunkZ++) {
+                long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+                List<FormedStructure> structures = worldChunks.get(chunkKey);
+                if (structures != null) {
+                    structures.remove(formed);
+                    if (structures.isEmpty()) {
+                        worldChunks.remove(chunkKey);
+                    }
+                }
+            }
+        }
+        if (worldChunks.isEmpty()) {
+            byChunk.remove(world);
+        }
+    }
+}
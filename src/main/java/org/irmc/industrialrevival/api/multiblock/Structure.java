@@ -1,17 +1,24 @@
 package org.irmc.industrialrevival.api.multiblock;
 
 import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import lombok.Getter;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Rotation;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.multiblock.piece.AnyStructurePiece;
 import org.irmc.industrialrevival.api.multiblock.piece.IRBlockStructurePiece;
 import org.irmc.industrialrevival.api.multiblock.piece.MaterialStructurePiece;
 import org.irmc.industrialrevival.api.multiblock.piece.StructurePiece;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Represents a multi-block structure in the IndustrialRevival system.
  * <p>
@@ -32,6 +39,19 @@ public class Structure {
     final int[] center;
     private @Getter
     final int[] size;
+    /**
+     * The pieces which can fail to match, in the order they are checked.
+     */
+    private final StructurePiece[] checkedPieces;
+    /**
+     * For every rotation of {@link #ROTATIONS} the offsets of the checked pieces from the center, as {@code dx, dy, dz} triples.
+     */
+    private final int[][] rotatedOffsets;
+    /**
+     * For every rotation of {@link #ROTATIONS} the smallest and largest offsets of the checked pieces,
+     * as {@code minX, minY, minZ, maxX, maxY, maxZ}.
+     */
+    private final int[][] rotatedBounds;
 
     /**
      * Constructs a multi-block structure with the specified pieces and center.
@@ -64,6 +84,65 @@ public class Structure {
         this.structure = structure;
         this.center = center;
         this.size = new int[]{structure.length, structure[0].length, structure[0][0].length};
+
+        // precompile the offsets of every rotation, pieces matching any block never need to be checked
+        List<StructurePiece> pieces = new ArrayList<>();
+        IntArrayList offsets = new IntArrayList();
+        for (int layer = 0; layer < structure.length; layer++) {
+            for (int z = 0; z < structure[layer].length; z++) {
+                for (int x = 0; x < structure[layer][z].length; x++) {
+                    StructurePiece piece = structure[layer][z][x];
+                    if (piece instanceof AnyStructurePiece) {
+                        continue;
+                    }
+
+                    pieces.add(piece);
+                    offsets.add(x - center[2]);
+                    offsets.add(layer - center[0]);
+                    offsets.add(z - center[1]);
+                }
+            }
+        }
+
+        this.checkedPieces = pieces.toArray(new StructurePiece[0]);
+        this.rotatedOffsets = new int[ROTATIONS.length][];
+        for (int r = 0; r < ROTATIONS.length; r++) {
+            int[] table = offsets.toIntArray();
+            for (int i = 0; i < table.length; i += 3) {
+                int dx = table[i];
+                int dz = table[i + 2];
+                switch (ROTATIONS[r]) {
+                    case CLOCKWISE -> {
+                        table[i] = -dz;
+                        table[i + 2] = dx;
+                    }
+                    case FLIPPED -> {
+                        table[i] = -dx;
+                        table[i + 2] = -dz;
+                    }
+                    case COUNTER_CLOCKWISE -> {
+                        table[i] = dz;
+                        table[i + 2] = -dx;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            this.rotatedOffsets[r] = table;
+        }
+
+        this.rotatedBounds = new int[ROTATIONS.length][];
+        for (int r = 0; r < ROTATIONS.length; r++) {
+            int[] table = rotatedOffsets[r];
+            int[] bounds = new int[6];
+            for (int i = 0; i < table.length; i += 3) {
+                for (int axis = 0; axis < 3; axis++) {
+                    bounds[axis] = Math.min(bounds[axis], table[i + axis]);
+                    bounds[axis + 3] = Math.max(bounds[axis + 3], table[i + axis]);
+                }
+            }
+            this.rotatedBounds[r] = bounds;
+        }
     }
 
     /**
@@ -151,12 +230,33 @@ public class Structure {
      * @return true if the structure is valid, false otherwise
      */
     public boolean isValid(@NotNull Location center) {
+        return findRotation(center) != null;
+    }
+
+    /**
+     * Finds the rotation in which the structure at the given location is valid.
+     *
+     * @param center the center of the structure
+     * @return the first valid rotation, or null if the structure is not valid in any rotation
+     */
+    @Nullable
+    public Rotation findRotation(@NotNull Location center) {
         for (Rotation rotation : ROTATIONS) {
             if (validateRotation(center, rotation)) {
-                return true;
+                return rotation;
             }
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Gets the offsets of the corners of the box around all pieces which have to match, relative to the center.
+     *
+     * @param rotation the rotation of the structure
+     * @return {@code minX, minY, minZ, maxX, maxY, maxZ}, the maximum inclusive
+     */
+    public int @NotNull [] getBounds(@NotNull Rotation rotation) {
+        return rotatedBounds[indexOf(rotation)].clone();
     }
 
     /**
@@ -167,12 +267,7 @@ public class Structure {
      * @return true if the structure is valid for the rotation, false otherwise
      */
     public boolean validateRotation(@NotNull Location center, @NotNull Rotation rotation) {
-        for (int layer = 0; layer < structure.length; layer++) {
-            if (validateLayer(center, layer, rotation) != null) {
-                return false;
-            }
-        }
-        return true;
+        return firstMismatch(center, rotation) < 0;
     }
 
     /**
@@ -183,54 +278,48 @@ public class Structure {
      * @return the incorrect location of the structure for the rotation, or null if the structure is valid
      */
     public String getIncorrect(@NotNull Location center, @NotNull Rotation rotation) {
-        for (int layer = 0; layer < structure.length; layer++) {
-            Location location = validateLayer(center, layer, rotation);
-            if (location != null) {
-                return location.toVector().toString();
-            }
+        int mismatch = firstMismatch(center, rotation);
+        if (mismatch < 0) {
+            return null;
         }
-        return null;
+
+        int[] offsets = offsetsOf(rotation);
+        return center.clone().add(offsets[mismatch * 3], offsets[mismatch * 3 + 1], offsets[mismatch * 3 + 2]).toVector().toString();
     }
 
     /**
-     * Validates a specific layer of the structure for a specific rotation.
+     * Checks the pieces against the world using the precompiled offsets of a rotation.
      *
-     * @param centerLocation the center of the structure
-     * @param layerLevel     the layer to check
-     * @param rotation       the rotation to check
-     * @return the incorrect location of the structure for the rotation, or null if the layer is valid
+     * @param center   the center of the structure
+     * @param rotation the rotation to check
+     * @return the index of the first piece which does not match, or -1 if all match
      */
-    @Nullable
-    private Location validateLayer(@NotNull Location centerLocation, int layerLevel, @NotNull Rotation rotation) {
-        final StructurePiece[][] layer = structure[layerLevel];
-        for (int z = 0; z < layer.length; z++) {
-            for (int x = 0; x < layer[z].length; x++) {
-                int dy = layerLevel - center[0];
-                int dz = z - center[1];
-                int dx = x - center[2];
-                int temp;
-                switch (rotation) {
-                    case CLOCKWISE -> {
-                        temp = dx;
-                        dx = -dz;
-                        dz = temp;
-                    }
-                    case FLIPPED -> {
-                        dx = -dx;
-                        dz = -dz;
-                    }
-                    case COUNTER_CLOCKWISE -> {
-                        temp = dx;
-                        dx = dz;
-                        dz = -temp;
-                    }
-                }
-                final Location location = centerLocation.clone().add(dx, dy, dz);
-                if (!layer[z][x].matches(location.getBlock())) {
-                    return location;
-                }
+    private int firstMismatch(@NotNull Location center, @NotNull Rotation rotation) {
+        int[] offsets = offsetsOf(rotation);
+        World world = center.getWorld();
+        int x = center.getBlockX();
+        int y = center.getBlockY();
+        int z = center.getBlockZ();
+        for (int i = 0; i < checkedPieces.length; i++) {
+            Block block = world.getBlockAt(x + offsets[i * 3], y + offsets[i * 3 + 1], z + offsets[i * 3 + 2]);
+            if (!checkedPieces[i].matches(block)) {
+                return i;
             }
         }
-        return null;
+        return -1;
+    }
+
+    private int[] offsetsOf(@NotNull Rotation rotation) {
+        return rotatedOffsets[indexOf(rotation)];
+    }
+
+    private static int indexOf(@NotNull Rotation rotation) {
+        for (int r = 0; r < ROTATIONS.length; r++) {
+            if (ROTATIONS[r] == rotation) {
+                return r;
+            }
+        }
+        // other rotations are not supported and checked unrotated
+        return 0;
     }
 }
@@ -18,6 +18,11 @@ public class IRBlockStructurePiece extends StructurePiece {
         this.iritem = iritem;
     }
 
+    @NotNull
+    public IndustrialRevivalItem getItem() {
+        return iritem;
+    }
+
     @Override
     public boolean matches(Block b) {
         return matches(b.getLocation());
@@ -1,10 +1,12 @@
 package org.irmc.industrialrevival.api.multiblock.piece;
 
+import lombok.Getter;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
 public class MaterialStructurePiece extends StructurePiece {
+    @Getter
     private final Material material;
 
     public MaterialStructurePiece(Material material) {
@@ -0,0 +1,78 @@
+package org.irmc.industrialrevival.api.objects;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataType;
+import org.irmc.industrialrevival.utils.Constants;
+import org.irmc.industrialrevival.utils.ItemUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The identity of an item: its material and, for IndustrialRevival items, its id.
+ * <p>
+ * A fingerprint is computed without cloning the item meta, so it can be used to reject
+ * items which cannot be similar before {@link ItemUtils#isItemSimilar(ItemStack, ItemStack)}
+ * compares the metas: items with a different material or id never are.
+ * Fingerprints of templates (recipe inputs, recipe choices) are computed once and kept.
+ * </p>
+ *
+ * @param material the material of the item
+ * @param id       the id of the IndustrialRevival item, or null for other items
+ * @see ItemUtils#isItemSimilar(ItemStack, ItemStack)
+ */
+public record ItemFingerprint(@NotNull Material material, @Nullable NamespacedKey id) {
+    /**
+     * Computes the fingerprint of an item.
+     *
+     * @param item the item
+     * @return the fingerprint of the item
+     */
+    @NotNull
+    public static ItemFingerprint of(@NotNull ItemStack item) {
+        return new ItemFingerprint(item.getType(), idOf(item));
+    }
+
+    /**
+     * Reads the IndustrialRevival id of an item without cloning its meta.
+     *
+     * @param item the item
+     * @return the id of the item, or null if it is not an IndustrialRevival item
+     */
+    @Nullable
+    public static NamespacedKey idOf(@NotNull ItemStack item) {
+        if (!item.hasItemMeta()) {
+            return null;
+        }
+
+        String id = item.getPersistentDataContainer().get(Constants.ItemStackKeys.ITEM_ID_KEY, PersistentDataType.STRING);
+        return id == null ? null : NamespacedKey.fromString(id);
+    }
+
+    /**
+     * Gets the key items are grouped by: the id of IndustrialRevival items, the material of others.
+     *
+     * @return the id or the material
+     */
+    @NotNull
+    public Object identity() {
+        return id != null ? id : material;
+    }
+
+    /**
+     * Checks whether an item may be similar to the item of this fingerprint.
+     * A false result is definite, a true result still has to be confirmed by a full comparison.
+     *
+     * @param item the item to check
+     * @return false if the item cannot be similar
+     */
+    public boolean mayMatch(@Nullable ItemStack item) {
+        if (item == null || item.getType() != material) {
+            return false;
+        }
+
+        NamespacedKey otherId = idOf(item);
+        return id == null ? otherId == null : id.equals(otherId);
+    }
+}
@@ -31,6 +31,10 @@ public class ItemStackReference {
     private final ReferenceType referenceType;
     private ItemDictionary dictionary;
     private ItemStack itemStack;
+    /**
+     * The fingerprint of {@link #itemStack}, null for dictionary references.
+     */
+    private ItemFingerprint fingerprint;
 
     /**
      * Creates a new ItemStackReference from an ItemStack.
@@ -45,6 +49,7 @@ public class ItemStackReference {
         this.referenceType = ReferenceType.ITEMSTACK;
         this.itemStack = new ItemStack(itemStack.getType(), itemStack.getAmount());
         this.itemStack.setItemMeta(itemStack.getItemMeta());
+        this.fingerprint = ItemFingerprint.of(this.itemStack);
     }
 
     /**
@@ -101,7 +106,8 @@ public class ItemStackReference {
      */
     public boolean itemsMatch(@NotNull ItemStack incomingItemStack) {
         if (this.referenceType == ReferenceType.ITEMSTACK) {
-            return ItemUtils.isItemSimilar(this.itemStack, incomingItemStack);
+            // most items are rejected by material or id before the metas are compared
+            return fingerprint.mayMatch(incomingItemStack) && ItemUtils.isItemSimilar(this.itemStack, incomingItemStack);
         }
 
         if (this.referenceType == ReferenceType.DICTIONARY) {
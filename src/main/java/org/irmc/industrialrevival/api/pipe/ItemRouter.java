@@ -0,0 +1,254 @@
+package org.irmc.industrialrevival.api.pipe;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.irmc.industrialrevival.api.machines.ItemFlow;
+import org.irmc.industrialrevival.api.menu.MachineMenu;
+import org.irmc.industrialrevival.api.menu.MachineMenuPreset;
+import org.irmc.industrialrevival.api.objects.ItemFingerprint;
+import org.irmc.industrialrevival.api.pipe.servers.Puller;
+import org.irmc.industrialrevival.api.pipe.servers.Pusher;
+import org.irmc.industrialrevival.utils.DataUtil;
+import org.irmc.industrialrevival.utils.ItemUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans and performs the transfer of a puller to the pushers of its route.
+ * <p>
+ * The withdraw slots of the source are scanned once and their stacks are aggregated into
+ * batches of similar items, grouped by {@link ItemFingerprint#identity()} so a stack is only
+ * compared with batches of the same identity. The filter of the puller is evaluated once per
+ * batch. Each batch is then moved in bulk: it fills the insert slots of a pusher, and the same
+ * amount is taken from the source slots. The slots come from the slot tables of the presets,
+ * see {@link MachineMenuPreset#getSlotTable(ItemFlow)}. Presets whose slots depend on the item are
+ * asked for the slots of every batch instead, and every slot of the source is scanned for them.
+ * </p>
+ * <p>
+ * Pushers are served round-robin: every batch starts at the pusher after the one which
+ * received the previous batch, and the position is kept across ticks by the {@link PipeRoot}.
+ * </p>
+ */
+final class ItemRouter {
+    private ItemRouter() {
+    }
+
+    /**
+     * Moves the items a puller pulls to the pushers of its route.
+     *
+     * @param puller the puller
+     * @param route  the pushers the puller reaches
+     * @param start  the index of the pusher to serve first
+     * @return the index of the pusher to serve first in the next transfer
+     */
+    static int transfer(@NotNull Puller puller, @NotNull Pusher[] route, int start) {
+        if (route.length == 0) {
+            return 0;
+        }
+
+        MachineMenu source = DataUtil.getMachineMenu(puller.getConnectedContainerLocation());
+        if (source == null) {
+            return start;
+        }
+
+        List<Batch> batches = collect(source, Filter.of(puller));
+        if (batches.isEmpty()) {
+            return start;
+        }
+
+        MachineMenu[] targets = new MachineMenu[route.length];
+        Filter[] filters = new Filter[route.length];
+        for (int i = 0; i < route.length; i++) {
+            targets[i] = DataUtil.getMachineMenu(route[i].getConnectedContainerLocation());
+            if (targets[i] != null) {
+                filters[i] = Filter.of(route[i]);
+            }
+        }
+
+        int next = start % route.length;
+        for (Batch batch : batches) {
+            for (int k = 0; k < route.length && batch.amount > 0; k++) {
+                int index = (next + k) % route.length;
+                MachineMenu target = targets[index];
+                if (target == null || target == source || !filters[index].accepts(batch.template, batch.fingerprint)) {
+                    continue;
+                }
+
+                int moved = insert(target, getSlots(target.getPreset(), ItemFlow.INSERT, batch.template), batch.template, batch.amount);
+                if (moved > 0) {
+                    take(source, batch, moved);
+                    next = (index + 1) % route.length;
+                }
+            }
+        }
+        return next;
+    }
+
+    private static int[] getSlots(MachineMenuPreset preset, ItemFlow itemFlow, ItemStack item) {
+        return preset.hasItemIndependentSlots() ? preset.getSlotTable(itemFlow) : preset.getSlotsByItemFlow(itemFlow, item);
+    }
+
+    private static List<Batch> collect(MachineMenu source, Filter filter) {
+        MachineMenuPreset preset = source.getPreset();
+        boolean itemIndependent = preset.hasItemIndependentSlots();
+        // the withdraw slots of presets with item dependent slots are only known per item
+        int[] slots = itemIndependent ? preset.getSlotTable(ItemFlow.WITHDRAW) : allSlots(source);
+
+        Map<Object, List<Batch>> byIdentity = new LinkedHashMap<>();
+        List<Batch> accepted = new ArrayList<>();
+        for (int slot : slots) {
+            ItemStack stack = source.getItem(slot);
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+
+            ItemFingerprint fingerprint = ItemFingerprint.of(stack);
+            List<Batch> candidates = byIdentity.computeIfAbsent(fingerprint.identity(), _ -> new ArrayList<>(1));
+            Batch batch = null;
+            for (Batch candidate : candidates) {
+                if (ItemUtils.isItemSimilar(candidate.template, stack)) {
+                    batch = candidate;
+                    break;
+                }
+            }
+
+            if (batch == null) {
+                ItemStack template = ItemUtils.cloneItem(stack, 1);
+                IntSet withdrawSlots = itemIndependent ? null : new IntOpenHashSet(preset.getSlotsByItemFlow(ItemFlow.WITHDRAW, template));
+                batch = new Batch(template, fingerprint, filter.accepts(stack, fingerprint), withdrawSlots);
+                candidates.add(batch);
+                if (batch.accepted) {
+                    accepted.add(batch);
+                }
+            }
+
+            if (batch.accepted && (batch.withdrawSlots == null || batch.withdrawSlots.contains(slot))) {
+                batch.slots.add(slot);
+                batch.amount += stack.getAmount();
+            }
+        }
+        return accepted;
+    }
+
+    private static int[] allSlots(MachineMenu menu) {
+        int[] slots = new int[menu.getSize()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i;
+        }
+        return slots;
+    }
+
+    /**
+     * Tops up similar stacks first, then fills empty slots.
+     *
+     * @return the amount inserted
+     */
+    private static int insert(MachineMenu menu, int[] slots, ItemStack template, int amount) {
+        int maxStackSize = template.getMaxStackSize();
+        int left = amount;
+        for (int slot : slots) {
+            ItemStack existing = menu.getItem(slot);
+            if (existing == null || existing.getType() == Material.AIR || existing.getAmount() >= maxStackSize) {
+                continue;
+            }
+
+            if (ItemUtils.isItemSimilar(existing, template)) {
+                int received = Math.min(maxStackSize - existing.getAmount(), left);
+                existing.setAmount(existing.getAmount() + received);
+                menu.setItem(slot, existing);
+                left -= received;
+                if (left == 0) {
+                    return amount;
+                }
+            }
+        }
+
+        for (int slot : slots) {
+            ItemStack existing = menu.getItem(slot);
+            if (existing == null || existing.getType() == Material.AIR) {
+                int received = Math.min(maxStackSize, left);
+                menu.setItem(slot, ItemUtils.cloneItem(template, received));
+                left -= received;
+                if (left == 0) {
+                    break;
+                }
+            }
+        }
+        return amount - left;
+    }
+
+    private static void take(MachineMenu menu, Batch batch, int amount) {
+        int left = amount;
+        for (int i = 0; i < batch.slots.size() && left > 0; i++) {
+            int slot = batch.slots.getInt(i);
+            ItemStack stack = menu.getItem(slot);
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+
+            int taken = Math.min(stack.getAmount(), left);
+            stack.setAmount(stack.getAmount() - taken);
+            menu.setItem(slot, stack.getAmount() > 0 ? stack : null);
+            left -= taken;
+        }
+        batch.amount -= amount - left;
+    }
+
+    /**
+     * Similar stacks of the source, with the slots they are in.
+     */
+    private static final class Batch {
+        private final ItemStack template;
+        private final ItemFingerprint fingerprint;
+        private final boolean accepted;
+        /**
+         * The slots the item may be withdrawn from, null if the source has item independent slots.
+         */
+        private final IntSet withdrawSlots;
+        private final IntArrayList slots = new IntArrayList();
+        private int amount;
+
+        private Batch(ItemStack template, ItemFingerprint fingerprint, boolean accepted, IntSet withdrawSlots) {
+            this.template = template;
+            this.fingerprint = fingerprint;
+            this.accepted = accepted;
+            this.withdrawSlots = withdrawSlots;
+        }
+    }
+
+    /**
+     * The white- or blacklist of a server.
+     */
+    private record Filter(ItemStack[] contents, ItemFingerprint[] fingerprints, boolean whitelist) {
+        static Filter of(@NotNull PipeServer server) {
+            List<ItemStack> contents = server.getContents();
+            List<ItemStack> items = new ArrayList<>();
+            for (ItemStack item : contents == null ? List.<ItemStack>of() : contents) {
+                if (item != null && item.getType() != Material.AIR) {
+                    items.add(item);
+                }
+            }
+
+            ItemFingerprint[] fingerprints = new ItemFingerprint[items.size()];
+            for (int i = 0; i < fingerprints.length; i++) {
+                fingerprints[i] = ItemFingerprint.of(items.get(i));
+            }
+            return new Filter(items.toArray(new ItemStack[0]), fingerprints, server.isWhitelist());
+        }
+
+        boolean accepts(@NotNull ItemStack item, @NotNull ItemFingerprint fingerprint) {
+            boolean listed = false;
+            for (int i = 0; i < contents.length && !listed; i++) {
+                listed = fingerprints[i].equals(fingerprint) && ItemUtils.isItemSimilar(contents[i], item);
+            }
+            return listed == whitelist;
+        }
+    }
+}
@@ -2,30 +2,41 @@ package org.irmc.industrialrevival.api.pipe;
 
 import lombok.Getter;
 import org.bukkit.Location;
+import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 
 @Deprecated(forRemoval = true)
 @Getter
 public class Pipe {
-    private final PipeFaces pipeFaces = new PipeFaces();
+    private final PipeFaces pipeFaces;
     private final Location location;
+    /**
+     * The packed coordinates of the pipe, see {@link Block#getBlockKey(int, int, int)}.
+     */
+    private final long blockKey;
 
     public Pipe(@NotNull Location location) {
+        this(location, new PipeFaces());
+    }
+
+    public Pipe(@NotNull Location location, @NotNull PipeFaces pipeFaces) {
         this.location = location;
+        this.pipeFaces = pipeFaces;
+        this.blockKey = Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
     }
 
     public Pipe getRelative(PipeFace pipeFace) {
-        return PipeRecorder.getPipe(getRelativeLocation(pipeFace));
+        return PipeRecorder.getPipe(location.getWorld(), getRelativeKey(pipeFace));
+    }
+
+    public long getRelativeKey(PipeFace pipeFace) {
+        return Block.getBlockKey(
+                location.getBlockX() + pipeFace.getModX(),
+                location.getBlockY() + pipeFace.getModY(),
+                location.getBlockZ() + pipeFace.getModZ());
     }
 
     public Location getRelativeLocation(PipeFace pipeFace) {
-        return switch (pipeFace) {
-            case UP -> location.clone().add(0, 1, 0);
-            case DOWN -> location.clone().add(0, -1, 0);
-            case NORTH -> location.clone().add(0, 0, 1);
-            case SOUTH -> location.clone().add(0, 0, -1);
-            case EAST -> location.clone().add(1, 0, 0);
-            case WEST -> location.clone().add(-1, 0, 0);
-        };
+        return location.clone().add(pipeFace.getModX(), pipeFace.getModY(), pipeFace.getModZ());
     }
 }
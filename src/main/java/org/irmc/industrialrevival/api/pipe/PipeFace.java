@@ -1,11 +1,24 @@
 package org.irmc.industrialrevival.api.pipe;
 
+import lombok.Getter;
+
 @Deprecated(forRemoval = true)
+@Getter
 public enum PipeFace {
-    UP,
-    DOWN,
-    NORTH,
-    SOUTH,
-    EAST,
-    WEST
+    UP(0, 1, 0),
+    DOWN(0, -1, 0),
+    NORTH(0, 0, 1),
+    SOUTH(0, 0, -1),
+    EAST(1, 0, 0),
+    WEST(-1, 0, 0);
+
+    private final int modX;
+    private final int modY;
+    private final int modZ;
+
+    PipeFace(int modX, int modY, int modZ) {
+        this.modX = modX;
+        this.modY = modY;
+        this.modZ = modZ;
+    }
 }
@@ -2,14 +2,14 @@ package org.irmc.industrialrevival.api.pipe;
 
 import lombok.Getter;
 
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
 @Deprecated(forRemoval = true)
 @Getter
 public class PipeFaces {
-    private final Set<PipeFace> faces = new HashSet<>();
+    private final Set<PipeFace> faces = EnumSet.noneOf(PipeFace.class);
 
     public PipeFaces() {
 
@@ -19,6 +19,35 @@ public class PipeFaces {
         this.faces.addAll(faces);
     }
 
+    /**
+     * Creates the faces of a bit mask written by {@link #toMask()}.
+     *
+     * @param mask the bit mask, one bit per {@link PipeFace#ordinal()}
+     * @return the faces
+     */
+    public static PipeFaces fromMask(int mask) {
+        PipeFaces pipeFaces = new PipeFaces();
+        for (PipeFace face : PipeFace.values()) {
+            if ((mask & (1 << face.ordinal())) != 0) {
+                pipeFaces.faces.add(face);
+            }
+        }
+        return pipeFaces;
+    }
+
+    /**
+     * Gets the faces as a bit mask, one bit per {@link PipeFace#ordinal()}.
+     *
+     * @return the bit mask
+     */
+    public int toMask() {
+        int mask = 0;
+        for (PipeFace face : faces) {
+            mask |= 1 << face.ordinal();
+        }
+        return mask;
+    }
+
     public boolean isUp() {
         return faces.contains(PipeFace.UP);
     }
@@ -1,36 +1,377 @@
 package org.irmc.industrialrevival.api.pipe;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import lombok.Getter;
 import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
+import org.irmc.industrialrevival.utils.Constants;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
 
+/**
+ * Records all placed pipes by world and packed coordinates.
+ * <p>
+ * Adjacent pipes are grouped into {@link Network networks}, regardless of their faces.
+ * Every placed or broken pipe increases the version of the networks it touches, which
+ * {@link PipeRoot}s compare against to rebuild their cached graph only after a change in their own network.
+ * The pipes are saved to {@link Constants.Files#PIPES_FILE} in a small binary format;
+ * pipe servers can only be restored if their class has a {@link #registerFactory(Class, Function) factory}.
+ * </p>
+ *
+ * <pre>
+ * file := MAGIC version int(count) pipe*
+ * pipe := long(world msb) long(world lsb) long(block key) byte(faces) utf(class name)
+ * </pre>
+ */
 @Deprecated(forRemoval = true)
 @UtilityClass
 public class PipeRecorder {
-    // temp solution, will be replaced by database or file storage
-    private static final Map<Location, Pipe> pipes = new HashMap<>();
+    private static final int MAGIC = 0x49525050;
+    private static final byte VERSION = 1;
+
+    private static final Map<UUID, Long2ObjectMap<Pipe>> pipes = new HashMap<>();
+    private static final Map<UUID, Long2ObjectMap<Network>> networks = new HashMap<>();
+    private static final Map<String, Function<Location, ? extends Pipe>> factories = new HashMap<>();
+    /**
+     * Increased on every change of any pipe, only used to skip saving unchanged pipes.
+     */
+    private static long version;
+    private static long savedVersion;
+
+    static {
+        factories.put(Pipe.class.getName(), Pipe::new);
+    }
 
     public static boolean hasPipe(@NotNull Location location) {
         return getPipe(location) != null;
     }
 
     public static Pipe getPipe(@NotNull Location location) {
-        return pipes.get(location);
+        return getPipe(location.getWorld(), Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+    }
+
+    @Nullable
+    public static synchronized Pipe getPipe(@Nullable World world, long blockKey) {
+        if (world == null) {
+            return null;
+        }
+
+        Long2ObjectMap<Pipe> worldPipes = pipes.get(world.getUID());
+        return worldPipes == null ? null : worldPipes.get(blockKey);
+    }
+
+    /**
+     * Gets the network of the pipe at a location.
+     *
+     * @param world    the world of the pipe
+     * @param blockKey the packed coordinates of the pipe
+     * @return the network, or null if there is no pipe at the location
+     */
+    @Nullable
+    static synchronized Network getNetwork(@Nullable World world, long blockKey) {
+        if (world == null) {
+            return null;
+        }
+
+        Long2ObjectMap<Network> worldNetworks = networks.get(world.getUID());
+        return worldNetworks == null ? null : worldNetworks.get(blockKey);
+    }
+
+    public static synchronized void addPipe(@NotNull Location location, @NotNull Pipe pipe) {
+        UUID worldId = location.getWorld().getUID();
+        Pipe previous = pipes.computeIfAbsent(worldId, _ -> new Long2ObjectOpenHashMap<>()).put(pipe.getBlockKey(), pipe);
+        if (previous == null) {
+            connect(worldId, pipe);
+        } else {
+            networks.get(worldId).get(pipe.getBlockKey()).markChanged();
+        }
+        version++;
     }
 
-    public static void addPipe(@NotNull Location location, @NotNull Pipe pipe) {
-        pipes.put(location, pipe);
+    public static synchronized void removePipe(@NotNull Location location) {
+        UUID worldId = location.getWorld().getUID();
+        Long2ObjectMap<Pipe> worldPipes = pipes.get(worldId);
+        if (worldPipes == null) {
+            return;
+        }
+
+        Pipe removed = worldPipes.remove(Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        if (removed != null) {
+            disconnect(worldId, worldPipes, removed);
+            version++;
+        }
+        if (worldPipes.isEmpty()) {
+            pipes.remove(worldId);
+            networks.remove(worldId);
+        }
+    }
+
+    /**
+     * Marks a pipe as changed, must be called after the faces of a recorded pipe have been modified.
+     *
+     * @param pipe the modified pipe
+     */
+    public static synchronized void markChanged(@NotNull Pipe pipe) {
+        Network network = getNetwork(pipe.getLocation().getWorld(), pipe.getBlockKey());
+        if (network != null) {
+            network.markChanged();
+        }
+        version++;
     }
 
-    public static void removePipe(@NotNull Location location) {
-        pipes.remove(location);
+    /**
+     * Adds a newly recorded pipe to the network of its neighbours, merging their networks if it joins several.
+     */
+    private static void connect(UUID worldId, Pipe pipe) {
+        Long2ObjectMap<Network> worldNetworks = networks.computeIfAbsent(worldId, _ -> new Long2ObjectOpenHashMap<>());
+        Network network = null;
+        for (PipeFace face : PipeFace.values()) {
+            Network neighbour = worldNetworks.get(pipe.getRelativeKey(face));
+            if (neighbour == null || neighbour == network) {
+                continue;
+            }
+
+            if (network == null) {
+                network = neighbour;
+            } else if (network.pipes.size() >= neighbour.pipes.size()) {
+                merge(worldNetworks, neighbour, network);
+            } else {
+                merge(worldNetworks, network, neighbour);
+                network = neighbour;
+            }
+        }
+
+        if (network == null) {
+            network = new Network();
+        }
+        network.pipes.add(pipe.getBlockKey());
+        network.markChanged();
+        worldNetworks.put(pipe.getBlockKey(), network);
     }
 
-    public static void save() {
-        // todo
-        return;
+    private static void merge(Long2ObjectMap<Network> worldNetworks, Network from, Network into) {
+        for (long blockKey : from.pipes) {
+            worldNetworks.put(blockKey, into);
+        }
+        into.pipes.addAll(from.pipes);
+        from.pipes.clear();
+        from.markChanged();
+    }
+
+    /**
+     * Removes a pipe from its network, splitting off the pipes which are no longer connected to the rest.
+     * Only the network of the pipe is searched.
+     */
+    private static void disconnect(UUID worldId, Long2ObjectMap<Pipe> worldPipes, Pipe removed) {
+        Long2ObjectMap<Network> worldNetworks = networks.get(worldId);
+        Network network = worldNetworks.remove(removed.getBlockKey());
+        network.pipes.remove(removed.getBlockKey());
+        network.markChanged();
+
+        LongList neighbours = new LongArrayList();
+        for (PipeFace face : PipeFace.values()) {
+            long relativeKey = removed.getRelativeKey(face);
+            if (worldPipes.containsKey(relativeKey)) {
+                neighbours.add(relativeKey);
+            }
+        }
+        if (neighbours.size() < 2) {
+            return;
+        }
+
+        LongSet kept = connectedPipes(worldPipes, neighbours.getLong(0));
+        if (kept.size() == network.pipes.size()) {
+            return;
+        }
+
+        for (int i = 1; i < neighbours.size(); i++) {
+            long neighbour = neighbours.getLong(i);
+            if (kept.contains(neighbour) || worldNetworks.get(neighbour) != network) {
+                continue;
+            }
+
+            Network split = new Network();
+            split.pipes.addAll(connectedPipes(worldPipes, neighbour));
+            split.markChanged();
+            for (long blockKey : split.pipes) {
+                worldNetworks.put(blockKey, split);
+            }
+            network.pipes.removeAll(split.pipes);
+        }
+    }
+
+    private static LongSet connectedPipes(Long2ObjectMap<Pipe> worldPipes, long start) {
+        LongSet connected = new LongOpenHashSet();
+        connected.add(start);
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        queue.enqueue(start);
+        while (!queue.isEmpty()) {
+            Pipe pipe = worldPipes.get(queue.dequeueLong());
+            for (PipeFace face : PipeFace.values()) {
+                long relativeKey = pipe.getRelativeKey(face);
+                if (worldPipes.containsKey(relativeKey) && connected.add(relativeKey)) {
+                    queue.enqueue(relativeKey);
+                }
+            }
+        }
+        return connected;
+    }
+
+    /**
+     * Registers how pipes of a class are restored when the pipes are loaded.
+     *
+     * @param type    the class of the pipes
+     * @param factory creates a pipe at a location
+     */
+    public static synchronized void registerFactory(@NotNull Class<? extends Pipe> type, @NotNull Function<Location, ? extends Pipe> factory) {
+        factories.put(type.getName(), factory);
+    }
+
+    /**
+     * Saves all pipes if they have changed since they were last saved or loaded.
+     */
+    public static synchronized void save() {
+        if (version == savedVersion) {
+            return;
+        }
+
+        File file = Constants.Files.PIPES_FILE;
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            int count = 0;
+            for (Long2ObjectMap<Pipe> worldPipes : pipes.values()) {
+                count += worldPipes.size();
+            }
+            out.writeInt(count);
+
+            for (Map.Entry<UUID, Long2ObjectMap<Pipe>> entry : pipes.entrySet()) {
+                for (Pipe pipe : entry.getValue().values()) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeLong(pipe.getBlockKey());
+                    out.writeByte(pipe.getPipeFaces().toMask());
+                    out.writeUTF(pipe.getClass().getName());
+                }
+            }
+        } catch (IOException e) {
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Failed to save pipes", e);
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedVersion = version;
+        } catch (IOException e) {
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Failed to save pipes", e);
+        }
+    }
+
+    /**
+     * Loads the saved pipes, replacing the recorded ones.
+     * Pipes in unknown worlds or of classes without a factory are skipped.
+     */
+    public static synchronized void load() {
+        File file = Constants.Files.PIPES_FILE;
+        if (!file.exists()) {
+            return;
+        }
+
+        pipes.clear();
+        networks.clear();
+        List<String> unknownTypes = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a pipe file");
+            }
+            byte fileVersion = in.readByte();
+            if (fileVersion > VERSION) {
+                throw new IOException("Unsupported pipe file version " + fileVersion);
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID worldId = new UUID(in.readLong(), in.readLong());
+                long blockKey = in.readLong();
+                int faces = in.readByte();
+                String type = in.readUTF();
+
+                World world = Bukkit.getWorld(worldId);
+                Function<Location, ? extends Pipe> factory = factories.get(type);
+                if (world == null) {
+                    continue;
+                }
+                if (factory == null) {
+                    if (!unknownTypes.contains(type)) {
+                        unknownTypes.add(type);
+                    }
+                    continue;
+                }
+
+                Location location = new Location(world, Block.getBlockKeyX(blockKey), Block.getBlockKeyY(blockKey), Block.getBlockKeyZ(blockKey));
+                Pipe pipe = factory.apply(location);
+                pipe.getPipeFaces().getFaces().addAll(PipeFaces.fromMask(faces).getFaces());
+                if (pipes.computeIfAbsent(worldId, _ -> new Long2ObjectOpenHashMap<>()).put(blockKey, pipe) == null) {
+                    connect(worldId, pipe);
+                }
+            }
+        } catch (IOException e) {
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Failed to load pipes", e);
+        }
+
+        if (!unknownTypes.isEmpty()) {
+            IndustrialRevival.getInstance().getLogger().warning("Skipped pipes of unregistered types: " + unknownTypes);
+        }
+
+        version++;
+        savedVersion = version;
+    }
+
+    /**
+     * Pipes which are connected to each other by their position.
+     * The faces of the pipes are ignored, so a network contains every pipe a {@link PipeRoot} can reach, and possibly more.
+     */
+    static final class Network {
+        /**
+         * The packed coordinates of the pipes, guarded by {@link PipeRecorder}.
+         */
+        private final LongSet pipes = new LongOpenHashSet();
+        /**
+         * Increased on every change of the pipes of this network, and when the network is merged into another one.
+         */
+        @Getter
+        private volatile long version;
+
+        private void markChanged() {
+            version++;
+        }
     }
 }
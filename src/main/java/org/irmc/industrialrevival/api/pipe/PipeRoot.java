@@ -1,16 +1,15 @@
 package org.irmc.industrialrevival.api.pipe;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.inventory.ItemStack;
-import org.irmc.industrialrevival.api.menu.MachineMenu;
-import org.irmc.industrialrevival.api.machines.ItemFlow;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.irmc.industrialrevival.api.pipe.servers.Puller;
 import org.irmc.industrialrevival.api.pipe.servers.Pusher;
-import org.irmc.industrialrevival.utils.DataUtil;
-import org.irmc.industrialrevival.utils.MenuUtil;
-import org.irmc.industrialrevival.utils.ItemUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
@@ -20,168 +19,147 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
 
+/**
+ * The pipes reachable from a {@link PipeServer}, cached as a graph.
+ * <p>
+ * The graph is searched over packed block coordinates and only rebuilt when the
+ * {@link PipeRecorder.Network network} of the server has changed since the last search,
+ * so changes to unconnected pipes elsewhere do not affect it.
+ * For every puller the pushers it can reach are precomputed, nearest first,
+ * so a transfer only iterates the servers instead of walking the pipes.
+ * </p>
+ */
 @Deprecated(forRemoval = true)
 @Getter
 public class PipeRoot {
+    private static final Puller[] NO_PULLERS = new Puller[0];
+
     private final Map<Location, Pipe> pipes = new HashMap<>();
     private final Set<Location> pullers = new HashSet<>();
     private final Set<Location> pushers = new HashSet<>();
     private final PipeServer pipeServer;
     private final Pipe serverPipe;
+    @Getter(AccessLevel.NONE)
+    private PipeRecorder.Network graphNetwork;
+    @Getter(AccessLevel.NONE)
+    private long graphVersion = -1;
+    @Getter(AccessLevel.NONE)
+    private Puller[] routePullers = NO_PULLERS;
+    /**
+     * For every puller of {@link #routePullers} the pushers it reaches, nearest first.
+     */
+    @Getter(AccessLevel.NONE)
+    private Pusher[][] routes = new Pusher[0][];
+    /**
+     * For every puller of {@link #routePullers} the index of the pusher it serves first.
+     */
+    @Getter(AccessLevel.NONE)
+    private int[] cursors = new int[0];
 
     public PipeRoot(PipeServer pipeServer) {
         this.pipeServer = pipeServer;
         this.serverPipe = pipeServer.getPipe();
     }
 
-    public void searchPipes(Location from) {
-        Stack<Location> stack = new Stack<>();
-        stack.push(from);
-        while (!stack.isEmpty()) {
-            Location current = stack.pop();
-            Pipe pipe = PipeRecorder.getPipe(current);
-
-            if (pipe == null) {
-                continue;
+    /**
+     * Searches the pipes reachable from a location and precomputes the routes between their servers.
+     *
+     * @param from the location to start from
+     */
+    public synchronized void searchPipes(@NotNull Location from) {
+        World world = from.getWorld();
+        long start = Block.getBlockKey(from.getBlockX(), from.getBlockY(), from.getBlockZ());
+        PipeRecorder.Network network = PipeRecorder.getNetwork(world, start);
+        long version = versionOf(network);
+        pipes.clear();
+        pullers.clear();
+        pushers.clear();
+
+        List<Puller> foundPullers = new ArrayList<>();
+        Long2ObjectMap<Pipe> reachable = reachableFrom(world, start);
+        for (Pipe pipe : reachable.values()) {
+            pipes.put(pipe.getLocation(), pipe);
+            if (pipe instanceof Puller puller) {
+                pullers.add(pipe.getLocation());
+                foundPullers.add(puller);
+            } else if (pipe instanceof Pusher) {
+                pushers.add(pipe.getLocation());
             }
+        }
 
-            for (PipeFace face : pipe.getPipeFaces().getFaces()) {
-                Pipe relativePipe = pipe.getRelative(face);
-
-                if (relativePipe != null && !pipes.containsKey(relativePipe.getLocation())) {
-                    pipes.put(relativePipe.getLocation(), relativePipe);
-                }
-
-                if (relativePipe instanceof PipeServer server) {
-                    switch (server.getType()) {
-                        case PULL -> pullers.add(relativePipe.getLocation());
-                        case PUSH -> pushers.add(relativePipe.getLocation());
-                    }
-                }
-
-                if (relativePipe != null) {
-                    stack.push(relativePipe.getLocation());
+        Pusher[][] foundRoutes = new Pusher[foundPullers.size()][];
+        for (int i = 0; i < foundPullers.size(); i++) {
+            List<Pusher> targets = new ArrayList<>();
+            for (Pipe pipe : reachableFrom(world, foundPullers.get(i).getBlockKey()).values()) {
+                if (pipe instanceof Pusher pusher) {
+                    targets.add(pusher);
                 }
             }
+            foundRoutes[i] = targets.toArray(new Pusher[0]);
         }
-    }
 
-    public Map<Location, Pipe> getPipes() {
-        if (pipes != null && !pipes.isEmpty()) {
-            return Collections.unmodifiableMap(pipes);
-        } else {
-            searchPipes(serverPipe.getLocation());
-        }
-
-        return Collections.unmodifiableMap(pipes);
+        routePullers = foundPullers.toArray(NO_PULLERS);
+        routes = foundRoutes;
+        cursors = new int[foundRoutes.length];
+        graphNetwork = network;
+        graphVersion = version;
     }
 
-    public synchronized void tick() {
-        for (Location pullerLocation : pullers) {
-            Puller puller = (Puller) pipes.get(pullerLocation);
-
-            MachineMenu menu = DataUtil.getMachineMenu(puller.getConnectedContainerLocation());
-            if (menu == null) {
-                continue;
-            }
-
-            List<ItemStack> items = puller.getContents();
-            if (items == null || items.isEmpty()) {
-                continue;
-            }
-
-            boolean isWhitelist = puller.isWhitelist();
-            List<ItemStack> pulled = pullItems(menu, items, isWhitelist);
-
-            for (Location pusherLocation : pushers) {
-                Pusher pusher = (Pusher) pipes.get(pusherLocation);
+    /**
+     * Walks the faces of the pipes breadth first, so the pipes are ordered by their distance.
+     */
+    private static Long2ObjectMap<Pipe> reachableFrom(World world, long start) {
+        Long2ObjectMap<Pipe> reachable = new Long2ObjectLinkedOpenHashMap<>();
+        Pipe first = PipeRecorder.getPipe(world, start);
+        if (first == null) {
+            return reachable;
+        }
 
-                MachineMenu pushMenu = DataUtil.getMachineMenu(pusher.getConnectedContainerLocation());
-                if (pushMenu == null) {
+        reachable.put(start, first);
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        queue.enqueue(start);
+        while (!queue.isEmpty()) {
+            Pipe pipe = reachable.get(queue.dequeueLong());
+            for (PipeFace face : pipe.getPipeFaces().getFaces()) {
+                long relativeKey = pipe.getRelativeKey(face);
+                if (reachable.containsKey(relativeKey)) {
                     continue;
                 }
 
-                pushItems(pushMenu, pulled, isWhitelist);
-
-                pulled.removeIf(itemStack -> itemStack == null || itemStack.getAmount() <= 0 || itemStack.getType() == Material.AIR || itemStack.getType() == null);
-
-                if (pulled.isEmpty()) {
-                    break;
+                Pipe relativePipe = PipeRecorder.getPipe(world, relativeKey);
+                if (relativePipe != null) {
+                    reachable.put(relativeKey, relativePipe);
+                    queue.enqueue(relativeKey);
                 }
             }
         }
-        this.pipes.clear();
+        return reachable;
     }
 
-    @NotNull
-    public List<ItemStack> pullItems(@NotNull MachineMenu menu, @NotNull List<ItemStack> contents, boolean isWhitelist) {
-        List<ItemStack> result = new ArrayList<>();
-        for (ItemStack target : contents) {
-            Set<Integer> slots = new HashSet<>();
-            int[] allSlots = menu.getPreset().getSlotsByItemFlow(ItemFlow.WITHDRAW);
-            int[] whitelistSlots = menu.getPreset().getSlotsByItemFlow(ItemFlow.WITHDRAW, target);
-            if (isWhitelist) {
-                for (int slot : whitelistSlots) {
-                    slots.add(slot);
-                }
-            } else {
-                for (int slot : allSlots) {
-                    for (int wlSlot : whitelistSlots) {
-                        if (slot == wlSlot) {
-                            break;
-                        }
-                    }
-
-                    slots.add(slot);
-                }
-            }
-
-            for (int slot : slots) {
-                ItemStack stack = menu.getItem(slot);
-                if (stack == null || stack.getType() == Material.AIR) {
-                    continue;
-                }
+    private static long versionOf(PipeRecorder.Network network) {
+        return network == null ? 0 : network.getVersion();
+    }
 
-                if (ItemUtils.isItemSimilar(stack, target)) {
-                    result.add(stack);
-                }
-            }
+    private void ensureGraph() {
+        PipeRecorder.Network network = PipeRecorder.getNetwork(serverPipe.getLocation().getWorld(), serverPipe.getBlockKey());
+        if (network != graphNetwork || versionOf(network) != graphVersion) {
+            searchPipes(serverPipe.getLocation());
         }
-        return result;
     }
 
-    @NotNull
-    public void pushItems(@NotNull MachineMenu menu, @NotNull List<ItemStack> contents, boolean isWhitelist) {
-        for (ItemStack target : contents) {
-            Set<Integer> slots = new HashSet<>();
-            int[] allSlots = menu.getPreset().getSlotsByItemFlow(ItemFlow.WITHDRAW);
-            int[] whitelistSlots = menu.getPreset().getSlotsByItemFlow(ItemFlow.WITHDRAW, target);
-            if (isWhitelist) {
-                for (int slot : whitelistSlots) {
-                    slots.add(slot);
-                }
-            } else {
-                for (int slot : allSlots) {
-                    for (int wlSlot : whitelistSlots) {
-                        if (slot == wlSlot) {
-                            break;
-                        }
-                    }
-
-                    slots.add(slot);
-                }
-            }
-
-            int[] pushableSlots = new int[slots.size()];
-            int i = 0;
-            for (int slot : slots) {
-                pushableSlots[i] = slot;
-                i++;
-            }
+    public synchronized Map<Location, Pipe> getPipes() {
+        ensureGraph();
+        return Collections.unmodifiableMap(pipes);
+    }
 
-            MenuUtil.pushItem(menu, contents, pushableSlots);
+    /**
+     * Moves the items of every puller to the pushers it reaches, see {@link ItemRouter}.
+     */
+    public synchronized void tick() {
+        ensureGraph();
+        for (int i = 0; i < routePullers.length; i++) {
+            cursors[i] = ItemRouter.transfer(routePullers[i], routes[i], cursors[i]);
         }
     }
 }
@@ -1,10 +1,10 @@
 package org.irmc.industrialrevival.api.player;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
@@ -17,9 +17,14 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Contains information related to {@link Player} and Industrial Revival.
+ * <p>
+ * Profiles are loaded while players log in and cached until a while after they quit.
+ * Research changes are remembered and only the changes are written when the profile is {@link #save() saved}.
+ * </p>
  *
  * @author lijinhong11
  * @since 1.0
@@ -36,6 +41,12 @@ public class PlayerProfile {
 
     private final Map<NamespacedKey, Boolean> researchStatus;
 
+    /**
+     * The research changes since the last save, guarded by itself.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<NamespacedKey, Boolean> pendingResearches = new HashMap<>();
+
     protected PlayerProfile(
             String playerName,
             UUID playerUUID,
@@ -45,7 +56,7 @@ public class PlayerProfile {
         this.playerUUID = playerUUID;
         this.guideHistory = new GuideHistory(playerName);
         this.guideSettings = Objects.requireNonNullElse(guideSettings, GuideSettings.DEFAULT_SETTINGS);
-        this.researchStatus = researchStatus;
+        this.researchStatus = new ConcurrentHashMap<>(researchStatus);
     }
 
     @Nullable
@@ -55,22 +66,44 @@ public class PlayerProfile {
 
     @Nullable
     public static PlayerProfile getProfile(String playerName) {
-        return IndustrialRevival.getInstance().getDataManager().getPlayerProfiles().get(playerName);
+        return IndustrialRevival.getInstance().getDataManager().getPlayerProfile(playerName);
     }
 
+    /**
+     * Gets the cached profile of a player, loading it if it is not cached.
+     * Profiles of online players are cached, unless they joined before the plugin was enabled.
+     *
+     * @param name the name of the player
+     * @return the profile
+     */
     @NotNull
     @CanIgnoreReturnValue
     public static PlayerProfile getOrRequestProfile(String name) {
-        if (IndustrialRevival.getInstance().getDataManager().getPlayerProfiles().containsKey(name)) {
-            return IndustrialRevival.getInstance()
-                    .getDataManager()
-                    .getPlayerProfiles()
-                    .get(name);
+        PlayerProfile cached = getProfile(name);
+        if (cached != null) {
+            return cached;
         }
 
-        OfflinePlayer player = Bukkit.getOfflinePlayer(name);
+        Player online = Bukkit.getPlayerExact(name);
+        UUID playerUUID = online != null ? online.getUniqueId() : Bukkit.getOfflinePlayer(name).getUniqueId();
+        return loadProfile(name, playerUUID);
+    }
 
-        UUID playerUUID = player.getUniqueId();
+    /**
+     * Gets the cached profile of a player, loading it from the database if it is not cached.
+     * Blocks while loading, so it should be called asynchronously, e.g. while the player logs in.
+     *
+     * @param name       the name of the player
+     * @param playerUUID the UUID of the player
+     * @return the profile
+     */
+    @NotNull
+    @CanIgnoreReturnValue
+    public static PlayerProfile loadProfile(@NotNull String name, @NotNull UUID playerUUID) {
+        PlayerProfile cached = getProfile(name);
+        if (cached != null) {
+            return cached;
+        }
 
         GuideSettings guideSettings = GuideSettings.DEFAULT_SETTINGS;
         //IndustrialRevival.getInstance().getDataManager().getGuideSettings(name);
@@ -81,20 +114,58 @@ public class PlayerProfile {
         List<PlayerResearchRecord> researchRecords = IndustrialRevival.getInstance().getSQLDataManager().getPlayerResearchRecord(playerUUID);
 
         for (PlayerResearchRecord researchRecord : researchRecords) {
-            researchStatus.put(NamespacedKey.fromString(researchRecord.getNamespacedKey()), true);
+            NamespacedKey key = NamespacedKey.fromString(researchRecord.getNamespacedKey());
+            if (key != null) {
+                researchStatus.put(key, true);
+            }
         }
 
-        PlayerProfile profile = new PlayerProfile(name, playerUUID, guideSettings, researchStatus);
-        IndustrialRevival.getInstance().getDataManager().getPlayerProfiles().put(name, profile);
-
-        return profile;
+        return IndustrialRevival.getInstance().getDataManager()
+                .addPlayerProfile(new PlayerProfile(name, playerUUID, guideSettings, researchStatus));
     }
 
+    /**
+     * Writes the research changes since the last save. Blocks while writing.
+     */
     public void save() {
-        IndustrialRevival.getInstance().getSQLDataManager().deletePlayerResearchRecord(playerUUID);
+        Map<NamespacedKey, Boolean> changes;
+        synchronized (pendingResearches) {
+            if (pendingResearches.isEmpty()) {
+                return;
+            }
+
+            changes = new HashMap<>(pendingResearches);
+            pendingResearches.clear();
+        }
 
-        for (PlayerResearchRecord playerResearchRecord : PlayerResearchRecord.wrapAll(this)) {
-            IndustrialRevival.getInstance().getSQLDataManager().savePlayerResearchRecord(playerResearchRecord);
+        List<NamespacedKey> researched = new ArrayList<>();
+        List<NamespacedKey> unresearched = new ArrayList<>();
+        changes.forEach((key, status) -> (status ? researched : unresearched).add(key));
+        try {
+            IndustrialRevival.getInstance().getSQLDataManager().updatePlayerResearchRecords(playerUUID, researched, unresearched);
+        } catch (RuntimeException e) {
+            // keep the changes for the next save, unless they have been changed again meanwhile
+            synchronized (pendingResearches) {
+                changes.forEach(pendingResearches::putIfAbsent);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sets whether the player has researched a research, to be written on the next {@link #save() save}.
+     *
+     * @param key        the key of the research
+     * @param researched whether the research is researched
+     */
+    public void setResearched(@NotNull NamespacedKey key, boolean researched) {
+        synchronized (pendingResearches) {
+            if (researchStatus.getOrDefault(key, false) == researched) {
+                return;
+            }
+
+            researchStatus.put(key, researched);
+            pendingResearches.put(key, researched);
         }
     }
 
@@ -115,7 +186,7 @@ public class PlayerProfile {
         }
 
         player.giveExpLevels(-research.getRequiredExpLevel());
-        researchStatus.put(key, true);
+        setResearched(key, true);
 
         IndustrialRevival.getInstance()
                 .getLanguageManager()
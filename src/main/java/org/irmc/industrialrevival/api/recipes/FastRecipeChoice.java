@@ -2,14 +2,19 @@ package org.irmc.industrialrevival.api.recipes;
 
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.RecipeChoice;
+import org.irmc.industrialrevival.api.objects.ItemFingerprint;
 import org.irmc.industrialrevival.utils.ItemUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
 public class FastRecipeChoice extends RecipeChoice.ExactChoice {
+    /**
+     * The fingerprints of the choices, computed lazily as {@link #getChoices()} may still change.
+     */
+    private ItemFingerprint[] fingerprints;
+
     public FastRecipeChoice(@NotNull ItemStack stack) {
         this(List.of(stack));
     }
@@ -23,17 +28,27 @@ public class FastRecipeChoice extends RecipeChoice.ExactChoice {
     }
 
     public boolean test(@NotNull ItemStack t) {
-        Iterator<ItemStack> var2 = getChoices().iterator();
-
-        ItemStack match;
-        do {
-            if (!var2.hasNext()) {
-                return false;
+        List<ItemStack> choices = getChoices();
+        ItemFingerprint[] fingerprints = getFingerprints(choices);
+        ItemFingerprint fingerprint = ItemFingerprint.of(t);
+        for (int i = 0; i < fingerprints.length; i++) {
+            // only choices with the same material and id can be similar
+            if (fingerprints[i].equals(fingerprint) && ItemUtils.isItemSimilar(t, choices.get(i), true, true)) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            match = var2.next();
-        } while (!ItemUtils.isItemSimilar(t, match, true, true));
-
-        return true;
+    private ItemFingerprint[] getFingerprints(List<ItemStack> choices) {
+        ItemFingerprint[] current = fingerprints;
+        if (current == null || current.length != choices.size()) {
+            current = new ItemFingerprint[choices.size()];
+            for (int i = 0; i < current.length; i++) {
+                current[i] = ItemFingerprint.of(choices.get(i));
+            }
+            fingerprints = current;
+        }
+        return current;
     }
 }
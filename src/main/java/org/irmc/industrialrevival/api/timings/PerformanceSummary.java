@@ -8,6 +8,13 @@ import org.irmc.industrialrevival.api.objects.ChunkPosition;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The result of profiling the ticking blocks over a number of sampled ticks.
+ * <p>
+ * The plain timings ({@link #getData()}, {@link #getDataByID()}, ...) are averaged per sampled tick,
+ * the statistics ({@link #getStatisticsByID()}, {@link #getStatisticsByChunk()}) hold every sample.
+ * </p>
+ */
 @Getter
 public class PerformanceSummary {
     private final Map<ProfiledBlock, Long> data;
@@ -15,17 +22,30 @@ public class PerformanceSummary {
     private final Map<NamespacedKey, Long> dataByID;
     private final Map<ChunkPosition, Long> dataByChunk;
     private final Map<String, Long> dataByPlugin;
+    private final Map<NamespacedKey, TimingStatistics> statisticsByID;
+    private final Map<ChunkPosition, TimingStatistics> statisticsByChunk;
     private final long totalTime;
+    private final int sampledTicks;
+    private final long createdTime;
 
     public PerformanceSummary(Map<ProfiledBlock, Long> data, Map<NamespacedKey, Long> dataByID, Map<ChunkPosition, Long> dataByChunk, Map<String, Long> dataByPlugin, long totalTime) {
+        this(data, dataByID, dataByChunk, dataByPlugin, new HashMap<>(), new HashMap<>(), totalTime, 1);
+    }
+
+    public PerformanceSummary(Map<ProfiledBlock, Long> data, Map<NamespacedKey, Long> dataByID, Map<ChunkPosition, Long> dataByChunk, Map<String, Long> dataByPlugin,
+                              Map<NamespacedKey, TimingStatistics> statisticsByID, Map<ChunkPosition, TimingStatistics> statisticsByChunk, long totalTime, int sampledTicks) {
         this.data = data;
         this.dataByID = dataByID;
         this.dataByChunk = dataByChunk;
         this.dataByPlugin = dataByPlugin;
+        this.statisticsByID = statisticsByID;
+        this.statisticsByChunk = statisticsByChunk;
         this.dataByLocation = new HashMap<>();
         for (Map.Entry<ProfiledBlock, Long> entry : data.entrySet()) {
             this.dataByLocation.put(entry.getKey().getLocation(), entry.getValue());
         }
         this.totalTime = totalTime;
+        this.sampledTicks = sampledTicks;
+        this.createdTime = System.currentTimeMillis();
     }
 }
@@ -20,6 +20,13 @@ public class ProfiledBlock {
         this.plugin = this.item.getAddon().getPlugin().getName();
     }
 
+    public ProfiledBlock(Location location, ChunkPosition chunkPosition, IndustrialRevivalItem item) {
+        this.location = location;
+        this.chunkPosition = chunkPosition;
+        this.item = item;
+        this.plugin = item.getAddon().getPlugin().getName();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -0,0 +1,123 @@
+package org.irmc.industrialrevival.api.timings;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates timings of a number of slots in preallocated primitive arrays.
+ * <p>
+ * Recording a timing only updates a few array cells, so profiling does not allocate.
+ * The arrays only grow when a slot beyond the current capacity is recorded.
+ * An accumulator is not thread-safe, it must only be written by one thread at a time.
+ * </p>
+ *
+ * @see TimingStatistics
+ */
+public final class TimingAccumulator {
+    /**
+     * The amount of histogram buckets of every slot.
+     * Bucket 0 holds samples below 1µs, bucket {@code i} samples from 2^(i-1)µs to 2^iµs,
+     * and the last bucket everything above.
+     */
+    public static final int BUCKETS = 16;
+
+    private long[] counts;
+    private long[] totals;
+    private long[] maxes;
+    private long[] histograms;
+
+    public TimingAccumulator(int initialSlots) {
+        int capacity = Math.max(1, initialSlots);
+        this.counts = new long[capacity];
+        this.totals = new long[capacity];
+        this.maxes = new long[capacity];
+        this.histograms = new long[capacity * BUCKETS];
+    }
+
+    /**
+     * Gets the histogram bucket of a timing.
+     *
+     * @param nanos the timing in nanoseconds
+     * @return the bucket, from 0 to {@link #BUCKETS} (exclusive)
+     */
+    public static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Records a timing.
+     *
+     * @param slot  the slot to record to
+     * @param nanos the timing in nanoseconds
+     */
+    public void record(int slot, long nanos) {
+        if (slot >= counts.length) {
+            grow(slot + 1);
+        }
+
+        counts[slot]++;
+        totals[slot] += nanos;
+        if (nanos > maxes[slot]) {
+            maxes[slot] = nanos;
+        }
+        histograms[slot * BUCKETS + bucketOf(nanos)]++;
+    }
+
+    /**
+     * Gets the amount of timings recorded to a slot.
+     *
+     * @param slot the slot
+     * @return the amount of timings
+     */
+    public long getCount(int slot) {
+        return slot < counts.length ? counts[slot] : 0;
+    }
+
+    /**
+     * Gets the amount of slots which can be recorded without growing.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return counts.length;
+    }
+
+    /**
+     * Copies the statistics of a slot.
+     *
+     * @param slot the slot
+     * @return the statistics of the slot
+     */
+    @NotNull
+    public TimingStatistics toStatistics(int slot) {
+        if (slot >= counts.length) {
+            return new TimingStatistics(0, 0, 0, new long[BUCKETS]);
+        }
+
+        long[] histogram = Arrays.copyOfRange(histograms, slot * BUCKETS, (slot + 1) * BUCKETS);
+        return new TimingStatistics(counts[slot], totals[slot], maxes[slot], histogram);
+    }
+
+    /**
+     * Clears all slots, keeping the arrays.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0);
+        Arrays.fill(maxes, 0);
+        Arrays.fill(histograms, 0);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, counts.length * 2);
+        counts = Arrays.copyOf(counts, capacity);
+        totals = Arrays.copyOf(totals, capacity);
+        maxes = Arrays.copyOf(maxes, capacity);
+        histograms = Arrays.copyOf(histograms, capacity * BUCKETS);
+    }
+}
@@ -0,0 +1,22 @@
+package org.irmc.industrialrevival.api.timings;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Timing statistics of a group of samples, e.g. all ticks of one kind of machine.
+ *
+ * @param count     the amount of samples
+ * @param totalTime the sum of all samples, in nanoseconds
+ * @param maxTime   the longest sample, in nanoseconds
+ * @param histogram the amount of samples per bucket, see {@link TimingAccumulator#bucketOf(long)}
+ */
+public record TimingStatistics(long count, long totalTime, long maxTime, long @NotNull [] histogram) {
+    /**
+     * Gets the average time of a sample.
+     *
+     * @return the average time in nanoseconds, 0 if there are no samples
+     */
+    public long getAverageTime() {
+        return count == 0 ? 0 : totalTime / count;
+    }
+}
@@ -0,0 +1,267 @@
+package org.irmc.industrialrevival.core.energy;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.items.attributes.EnergyNetComponent;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the placed {@link EnergyNetComponent}s grouped into {@link EnergyNetwork}s and balances them every tick.
+ * <p>
+ * Two adjacent components are connected if at least one of them is a connector
+ * ({@link org.irmc.industrialrevival.api.machines.ElectricConnector} or
+ * {@link org.irmc.industrialrevival.api.machines.ElectricLimitedConnector}).
+ * Networks are maintained incrementally: a placed component joins the network of its neighbours
+ * and merges them if it connects several, the smaller ones being moved into the largest.
+ * A broken component only causes a search over the members of its own network, and only if it
+ * connected more than one neighbour, to find out whether the network has been split.
+ * </p>
+ * <p>
+ * Like the {@link org.irmc.industrialrevival.core.task.TickingIndex}, placing, breaking and loading
+ * only queue a change, which is applied by the ticker thread right before the networks are balanced.
+ * </p>
+ *
+ * @see EnergyNetwork
+ */
+public class EnergyNetManager {
+    private static final int[][] FACES = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+
+    private final Queue<Consumer<EnergyNetManager>> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final Map<World, Long2ObjectMap<EnergyNode>> nodes = new HashMap<>();
+    private final List<EnergyNetwork> networks = new ObjectArrayList<>();
+    /**
+     * Networks which lost a member connecting several others and may have been split.
+     */
+    private final Set<EnergyNetwork> brokenNetworks = new LinkedHashSet<>();
+    private int search;
+    private volatile int nodeCount;
+    private volatile int networkCount;
+
+    /**
+     * Queues a block to join the energy network, does nothing if its item is not an {@link EnergyNetComponent}.
+     *
+     * @param location  the location of the block
+     * @param blockData the data of the block
+     */
+    public void add(@NotNull Location location, @NotNull IRBlockData blockData) {
+        pendingChanges.add(manager -> manager.add0(location, blockData));
+    }
+
+    /**
+     * Queues a block to leave the energy network.
+     *
+     * @param location the location of the block
+     */
+    public void remove(@NotNull Location location) {
+        pendingChanges.add(manager -> manager.remove0(location));
+    }
+
+    /**
+     * Gets the amount of components in all networks.
+     *
+     * @return the amount of components
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the amount of networks.
+     *
+     * @return the amount of networks
+     */
+    public int getNetworkCount() {
+        return networkCount;
+    }
+
+    /**
+     * Applies all queued changes and balances every network.
+     * Must only be called by the ticker thread, never while blocks are being ticked.
+     */
+    @ApiStatus.Internal
+    public void tick() {
+        Consumer<EnergyNetManager> change;
+        while ((change = pendingChanges.poll()) != null) {
+            change.accept(this);
+        }
+
+        for (EnergyNetwork network : brokenNetworks) {
+            split(network);
+        }
+        brokenNetworks.clear();
+        networkCount = networks.size();
+
+        for (int i = 0; i < networks.size(); i++) {
+            networks.get(i).balance();
+        }
+    }
+
+    private void add0(Location location, IRBlockData blockData) {
+        remove0(location);
+
+        IndustrialRevivalItem item = IndustrialRevivalItem.getById(blockData.getId());
+        if (!(item instanceof EnergyNetComponent component)) {
+            return;
+        }
+
+        World world = location.getWorld();
+        long blockKey = Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        EnergyNode node = new EnergyNode(location, blockKey, blockData, component.getComponentType(), component.getCapacity());
+        Long2ObjectMap<EnergyNode> worldNodes = nodes.computeIfAbsent(world, _ -> new Long2ObjectOpenHashMap<>());
+        worldNodes.put(blockKey, node);
+        nodeCount++;
+
+        EnergyNetwork target = null;
+        for (EnergyNode neighbour : neighbours(worldNodes, node)) {
+            if (target == null || neighbour.network.size() > target.size()) {
+                target = neighbour.network;
+            }
+        }
+
+        if (target == null) {
+            target = newNetwork();
+        }
+        target.add(node);
+
+        for (EnergyNode neighbour : neighbours(worldNodes, node)) {
+            if (neighbour.network != target) {
+                merge(neighbour.network, target);
+            }
+        }
+    }
+
+    private void remove0(Location location) {
+        Long2ObjectMap<EnergyNode> worldNodes = nodes.get(location.getWorld());
+        if (worldNodes == null) {
+            return;
+        }
+
+        EnergyNode node = worldNodes.remove(Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        if (node == null) {
+            return;
+        }
+        if (worldNodes.isEmpty()) {
+            nodes.remove(location.getWorld());
+        }
+        nodeCount--;
+
+        EnergyNetwork network = node.network;
+        network.remove(node);
+        if (network.isEmpty()) {
+            removeNetwork(network);
+        } else if (neighbours(worldNodes, node).size() > 1) {
+            brokenNetworks.add(network);
+        }
+    }
+
+    /**
+     * Moves all members of a network into another one.
+     */
+    private void merge(EnergyNetwork from, EnergyNetwork into) {
+        while (!from.isEmpty()) {
+            EnergyNode member = from.member(from.size() - 1);
+            from.remove(member);
+            into.add(member);
+        }
+        removeNetwork(from);
+        if (brokenNetworks.remove(from)) {
+            brokenNetworks.add(into);
+        }
+    }
+
+    /**
+     * Searches the members of a network which may have been split, the first part found keeps the network.
+     */
+    private void split(EnergyNetwork network) {
+        if (network.slot < 0) {
+            // merged into another network in the meantime
+            return;
+        }
+
+        search++;
+        List<EnergyNode> members = new ObjectArrayList<>(network.size());
+        for (int i = 0; i < network.size(); i++) {
+            members.add(network.member(i));
+        }
+
+        boolean first = true;
+        Queue<EnergyNode> queue = new ArrayDeque<>();
+        for (EnergyNode start : members) {
+            if (start.visited == search) {
+                continue;
+            }
+
+            EnergyNetwork part = first ? network : newNetwork();
+            Long2ObjectMap<EnergyNode> worldNodes = nodes.get(start.getLocation().getWorld());
+            start.visited = search;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                EnergyNode current = queue.poll();
+                if (!first) {
+                    network.remove(current);
+                    part.add(current);
+                }
+                for (EnergyNode neighbour : neighbours(worldNodes, current)) {
+                    if (neighbour.visited != search) {
+                        neighbour.visited = search;
+                        queue.add(neighbour);
+                    }
+                }
+            }
+            first = false;
+        }
+    }
+
+    private List<EnergyNode> neighbours(Long2ObjectMap<EnergyNode> worldNodes, EnergyNode node) {
+        if (worldNodes == null) {
+            return List.of();
+        }
+
+        List<EnergyNode> result = new ObjectArrayList<>(FACES.length);
+        Location location = node.getLocation();
+        for (int[] face : FACES) {
+            EnergyNode neighbour = worldNodes.get(Block.getBlockKey(
+                    location.getBlockX() + face[0],
+                    location.getBlockY() + face[1],
+                    location.getBlockZ() + face[2]));
+            if (neighbour != null && node.connectsTo(neighbour)) {
+                result.add(neighbour);
+            }
+        }
+        return result;
+    }
+
+    private EnergyNetwork newNetwork() {
+        EnergyNetwork network = new EnergyNetwork();
+        network.slot = networks.size();
+        networks.add(network);
+        return network;
+    }
+
+    private void removeNetwork(EnergyNetwork network) {
+        int last = networks.size() - 1;
+        EnergyNetwork moved = networks.remove(last);
+        if (moved != network) {
+            networks.set(network.slot, moved);
+            moved.slot = network.slot;
+        }
+        network.slot = -1;
+    }
+}
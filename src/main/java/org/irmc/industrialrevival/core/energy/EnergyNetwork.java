@@ -0,0 +1,187 @@
+package org.irmc.industrialrevival.core.energy;
+
+import lombok.Getter;
+import org.irmc.industrialrevival.api.machines.EnergyNetComponentType;
+
+import java.util.Arrays;
+
+/**
+ * A set of energy components connected through connectors.
+ * <p>
+ * The members are kept in compact arrays together with their type and capacity, removed by
+ * swapping the last member into the freed slot. Balancing reads the stored energy of every
+ * member into a primitive array once, moves energy in that array and writes back only the
+ * members which changed.
+ * </p>
+ * <p>
+ * Every tick, the energy buffered by generators is delivered to consumers first, capacitors
+ * cover what the generators cannot, and what is left over charges the capacitors. Energy is
+ * shared in proportion to what each member needs or holds. Limited connectors cap the energy
+ * the network moves per tick to the smallest capacity among them.
+ * </p>
+ *
+ * @see EnergyNetManager
+ */
+public final class EnergyNetwork {
+    private static final EnergyNode[] EMPTY = new EnergyNode[0];
+    private static final byte GENERATOR = (byte) EnergyNetComponentType.GENERATOR.ordinal();
+    private static final byte CONSUMER = (byte) EnergyNetComponentType.CONSUMER.ordinal();
+    private static final byte CAPACITOR = (byte) EnergyNetComponentType.CAPACITOR.ordinal();
+    private static final byte LIMITED_CONNECTOR = (byte) EnergyNetComponentType.LIMITED_CONNECTOR.ordinal();
+
+    private EnergyNode[] members = EMPTY;
+    private byte[] types = new byte[0];
+    private long[] capacities = new long[0];
+    private long[] energy = new long[0];
+    private long[] weights = new long[0];
+    private int size;
+    /**
+     * The index of the network in the network list of the manager.
+     */
+    int slot;
+
+    /**
+     * The energy moved to consumers and capacitors in the last tick.
+     */
+    @Getter
+    private volatile long lastTransferred;
+
+    /**
+     * Gets the amount of components in the network.
+     *
+     * @return the amount of members
+     */
+    public int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    EnergyNode member(int index) {
+        return members[index];
+    }
+
+    void add(EnergyNode node) {
+        if (size == members.length) {
+            int capacity = Math.max(4, size * 2);
+            members = Arrays.copyOf(members, capacity);
+            types = Arrays.copyOf(types, capacity);
+            capacities = Arrays.copyOf(capacities, capacity);
+            energy = new long[capacity];
+            weights = new long[capacity];
+        }
+
+        node.network = this;
+        node.slot = size;
+        members[size] = node;
+        types[size] = (byte) node.getType().ordinal();
+        capacities[size] = node.getCapacity();
+        size++;
+    }
+
+    void remove(EnergyNode node) {
+        int slot = node.slot;
+        int last = --size;
+        EnergyNode moved = members[last];
+        members[slot] = moved;
+        types[slot] = types[last];
+        capacities[slot] = capacities[last];
+        moved.slot = slot;
+        members[last] = null;
+        node.network = null;
+    }
+
+    /**
+     * Moves energy between the members, must only be called by the ticker thread.
+     */
+    void balance() {
+        long produced = 0;
+        long stored = 0;
+        long storageSpace = 0;
+        long demand = 0;
+        long limit = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            long e = members[i].getBlockData().getEnergy();
+            energy[i] = e;
+            byte type = types[i];
+            if (type == GENERATOR) {
+                produced += e;
+            } else if (type == CAPACITOR) {
+                stored += e;
+                storageSpace += Math.max(0, capacities[i] - e);
+            } else if (type == CONSUMER) {
+                demand += Math.max(0, capacities[i] - e);
+            } else if (type == LIMITED_CONNECTOR) {
+                limit = Math.min(limit, capacities[i]);
+            }
+        }
+
+        long toConsumers = Math.min(Math.min(demand, produced + stored), limit);
+        long fromGenerators = Math.min(produced, toConsumers);
+        long fromCapacitors = toConsumers - fromGenerators;
+        long toCapacitors = Math.min(Math.min(produced - fromGenerators, storageSpace), limit - toConsumers);
+        lastTransferred = toConsumers + toCapacitors;
+        if (lastTransferred == 0) {
+            return;
+        }
+
+        // generators give what goes to consumers and capacitors
+        spread(GENERATOR, fromGenerators + toCapacitors, false);
+        // capacitors cover what the generators cannot
+        spread(CAPACITOR, fromCapacitors, false);
+        spread(CONSUMER, toConsumers, true);
+        spread(CAPACITOR, toCapacitors, true);
+
+        for (int i = 0; i < size; i++) {
+            // only marks the members which changed as dirty
+            members[i].getBlockData().setEnergy(energy[i]);
+        }
+    }
+
+    /**
+     * Adds energy to or takes energy from all members of a type, in proportion to their free space or stored energy.
+     */
+    private void spread(byte type, long amount, boolean charge) {
+        if (amount <= 0) {
+            return;
+        }
+
+        long weightSum = 0;
+        for (int i = 0; i < size; i++) {
+            long weight = 0;
+            if (types[i] == type) {
+                weight = charge ? Math.max(0, capacities[i] - energy[i]) : energy[i];
+            }
+            weights[i] = weight;
+            weightSum += weight;
+        }
+        if (weightSum <= 0) {
+            return;
+        }
+
+        long remaining = Math.min(amount, weightSum);
+        double ratio = (double) remaining / weightSum;
+        for (int i = 0; i < size && remaining > 0; i++) {
+            if (weights[i] > 0) {
+                long share = Math.min(remaining, Math.min(weights[i], (long) (weights[i] * ratio)));
+                move(i, share, charge);
+                remaining -= share;
+            }
+        }
+        // rounding leftovers
+        for (int i = 0; i < size && remaining > 0; i++) {
+            if (weights[i] > 0) {
+                long share = Math.min(remaining, weights[i]);
+                move(i, share, charge);
+                remaining -= share;
+            }
+        }
+    }
+
+    private void move(int i, long share, boolean charge) {
+        energy[i] += charge ? share : -share;
+        weights[i] -= share;
+    }
+}
@@ -0,0 +1,46 @@
+package org.irmc.industrialrevival.core.energy;
+
+import lombok.Getter;
+import org.bukkit.Location;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.machines.EnergyNetComponentType;
+
+/**
+ * A placed {@link org.irmc.industrialrevival.api.items.attributes.EnergyNetComponent} with its type and capacity resolved.
+ */
+@Getter
+final class EnergyNode {
+    private final Location location;
+    private final long blockKey;
+    private final IRBlockData blockData;
+    private final EnergyNetComponentType type;
+    private final long capacity;
+    EnergyNetwork network;
+    /**
+     * The index of the node in the member arrays of its network.
+     */
+    int slot;
+    /**
+     * The last search this node was visited by, see {@link EnergyNetManager}.
+     */
+    int visited;
+
+    EnergyNode(Location location, long blockKey, IRBlockData blockData, EnergyNetComponentType type, long capacity) {
+        this.location = location;
+        this.blockKey = blockKey;
+        this.blockData = blockData;
+        this.type = type;
+        this.capacity = capacity;
+    }
+
+    boolean isConnector() {
+        return type == EnergyNetComponentType.CONNECTOR || type == EnergyNetComponentType.LIMITED_CONNECTOR;
+    }
+
+    /**
+     * Two adjacent components are connected if at least one of them is a connector.
+     */
+    boolean connectsTo(EnergyNode other) {
+        return isConnector() || other.isConnector();
+    }
+}
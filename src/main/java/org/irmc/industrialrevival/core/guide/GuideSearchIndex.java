@@ -0,0 +1,188 @@
+package org.irmc.industrialrevival.core.guide;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.irmc.industrialrevival.api.enums.Language;
+import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.menu.gui.SearchMenu;
+import org.irmc.industrialrevival.core.services.ILanguageManager;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
+import org.jetbrains.annotations.NotNull;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * The index the guide {@link SearchMenu searches} items in, built once per language.
+ * <p>
+ * Every item is indexed by the plain text of its icon name and of its translated name,
+ * folded by {@link #normalize(String)}, in a character and a bigram index. Names in languages
+ * without spaces, like Chinese, are matched anywhere in the name, just like other names.
+ * A search looks up the rarest bigram of the search term and only checks the names of the items
+ * found there, instead of all registered items.
+ * </p>
+ * <p>
+ * The index of the configured language is built after the {@link org.irmc.industrialrevival.core.task.PostSetupTask post setup},
+ * the indexes of other languages on their first search. They are discarded whenever an item is registered
+ * or unregistered.
+ * </p>
+ */
+public final class GuideSearchIndex {
+    private static final Pattern LEGACY_FORMAT = Pattern.compile("§.");
+    private static final Map<Language, GuideSearchIndex> indexes = new ConcurrentHashMap<>();
+
+    private final IndustrialRevivalItem[] items;
+    private final String[] names;
+    private final Int2ObjectMap<IntArrayList> chars = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectMap<IntArrayList> bigrams = new Int2ObjectOpenHashMap<>();
+
+    private GuideSearchIndex(@NotNull Language language) {
+        ILanguageManager lm = IndustrialRevival.getInstance().getLanguageManager();
+        List<IndustrialRevivalItem> registered = new ArrayList<>(IndustrialRevival.getInstance().getRegistry().getItems().values());
+        this.items = registered.toArray(IndustrialRevivalItem[]::new);
+        this.names = new String[items.length];
+
+        for (int i = 0; i < items.length; i++) {
+            IndustrialRevivalItem item = items[i];
+            String name = plain(item.getItemName());
+            String translationKey = ILanguageManager.SCOPE_ITEM + item.getId().getKey() + ILanguageManager.NAME;
+            String translated = plain(lm.getItemNameByLanguage(language, item.getId().getKey()));
+            if (!translated.equals(translationKey) && !translated.equals(name)) {
+                name = name + '\n' + translated;
+            }
+
+            names[i] = normalize(name);
+            index(i, names[i]);
+        }
+    }
+
+    /**
+     * Searches the enabled items whose name contains a search term.
+     *
+     * @param language   the language of the names to search
+     * @param searchTerm the search term, compared after {@link #normalize(String) normalizing} it
+     * @return a new list of the items found, in the order of the registry
+     */
+    @NotNull
+    public static List<IndustrialRevivalItem> search(@NotNull Language language, @NotNull String searchTerm) {
+        GuideSearchIndex index = indexes.get(language);
+        if (index == null) {
+            index = build(language);
+        }
+
+        return index.search0(normalize(searchTerm));
+    }
+
+    /**
+     * Discards the indexes of all languages, they are rebuilt on the next search.
+     * Must be called whenever an item is registered or unregistered, or the languages are reloaded.
+     */
+    public static synchronized void invalidate() {
+        indexes.clear();
+    }
+
+    /**
+     * Builds the index of the configured language ahead of the first search.
+     */
+    public static synchronized void rebuild() {
+        indexes.clear();
+        build(IndustrialRevival.getInstance().getLanguageManager().getLanguage(null));
+    }
+
+    private static synchronized GuideSearchIndex build(Language language) {
+        GuideSearchIndex index = indexes.get(language);
+        if (index == null) {
+            index = new GuideSearchIndex(language);
+            indexes.put(language, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Folds a text for searching: compatibility characters like full-width letters are replaced by their
+     * common form, and letters are lower-cased.
+     *
+     * @param text the text
+     * @return the folded text
+     */
+    @NotNull
+    public static String normalize(@NotNull String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).strip();
+    }
+
+    private static String plain(Component component) {
+        return LEGACY_FORMAT.matcher(PlainTextComponentSerializer.plainText().serialize(component)).replaceAll("");
+    }
+
+    private static int bigram(String text, int index) {
+        return text.charAt(index) << 16 | text.charAt(index + 1);
+    }
+
+    private static void add(Int2ObjectMap<IntArrayList> postings, int key, int item) {
+        IntArrayList list = postings.get(key);
+        if (list == null) {
+            list = new IntArrayList(4);
+            postings.put(key, list);
+        }
+
+        // items are indexed in order, so a repeated gram of the same item is the last entry
+        if (list.isEmpty() || list.getInt(list.size() - 1) != item) {
+            list.add(item);
+        }
+    }
+
+    private void index(int item, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            add(chars, name.charAt(i), item);
+            if (i + 1 < name.length()) {
+                add(bigrams, bigram(name, i), item);
+            }
+        }
+    }
+
+    private List<IndustrialRevivalItem> search0(String query) {
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        IntArrayList candidates;
+        if (query.length() == 1) {
+            candidates = chars.get(query.charAt(0));
+        } else {
+            candidates = null;
+            for (int i = 0; i + 1 < query.length(); i++) {
+                IntArrayList postings = bigrams.get(bigram(query, i));
+                if (postings == null) {
+                    return new ArrayList<>();
+                }
+
+                if (candidates == null || postings.size() < candidates.size()) {
+                    candidates = postings;
+                }
+            }
+        }
+
+        List<IndustrialRevivalItem> found = new ArrayList<>();
+        if (candidates == null) {
+            return found;
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            int item = candidates.getInt(i);
+            if (names[item].contains(query) && !items[item].isDisabled()) {
+                found.add(items[item]);
+            }
+        }
+
+        return found;
+    }
+}
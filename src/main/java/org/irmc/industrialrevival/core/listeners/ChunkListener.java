@@ -0,0 +1,44 @@
+package org.irmc.industrialrevival.core.listeners;
+
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.irmc.industrialrevival.core.services.IIRDataManager;
+import org.irmc.industrialrevival.core.task.TickingIndex;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
+
+/**
+ * Pauses and resumes the ticking blocks of a chunk when it is unloaded and loaded,
+ * and loads the block data of chunks in worlds loaded after the plugin.
+ *
+ * @see TickingIndex
+ */
+public class ChunkListener implements Listener {
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        setChunkLoaded(event.getChunk(), true);
+
+        IIRDataManager dataManager = IndustrialRevival.getInstance().getDataManager();
+        if (dataManager != null) {
+            dataManager.loadChunkData(event.getChunk());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        setChunkLoaded(event.getChunk(), false);
+    }
+
+    private void setChunkLoaded(Chunk chunk, boolean loaded) {
+        IIRDataManager dataManager = IndustrialRevival.getInstance().getDataManager();
+        if (dataManager == null) {
+            // services are not set up yet, the index checks the chunk state itself when it is built
+            return;
+        }
+
+        dataManager.getTickingIndex().setChunkLoaded(chunk.getWorld(), chunk.getX(), chunk.getZ(), loaded);
+    }
+}
@@ -1,7 +1,6 @@
 package org.irmc.industrialrevival.core.listeners;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Tag;
 import org.bukkit.block.Block;
@@ -82,7 +81,7 @@ public class EventCreator implements Listener {
     public void onBlockExplodeIRBlock(BlockExplodeEvent e) {
         List<BlockExplodeIRBlockEvent> events = new ArrayList<>();
         for (Block block : e.blockList()) {
-            IRBlockData data = DataUtil.getBlockData(block.getLocation());
+            IRBlockData data = DataUtil.getBlockData(block);
             if (data == null) {
                 continue;
             }
@@ -103,8 +102,7 @@ public class EventCreator implements Listener {
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onEndermanMoveIRBlockEvent(EntityChangeBlockEvent e) {
         if (e.getEntity().getType() == EntityType.ENDERMAN) {
-            Location location = e.getBlock().getLocation();
-            IRBlockData data = DataUtil.getBlockData(location);
+            IRBlockData data = DataUtil.getBlockData(e.getBlock());
             if (data == null) {
                 return;
             }
@@ -123,8 +121,7 @@ public class EventCreator implements Listener {
 
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onEntityChangeIRBlock(EntityChangeBlockEvent e) {
-        Location location = e.getBlock().getLocation();
-        IRBlockData data = DataUtil.getBlockData(location);
+        IRBlockData data = DataUtil.getBlockData(e.getBlock());
         if (data == null) {
             return;
         }
@@ -143,7 +140,7 @@ public class EventCreator implements Listener {
     public void onEntityExplodeIRBlock(EntityExplodeEvent e) {
         List<EntityExplodeIRBlockEvent> events = new ArrayList<>();
         for (Block block : e.blockList()) {
-            IRBlockData data = DataUtil.getBlockData(block.getLocation());
+            IRBlockData data = DataUtil.getBlockData(block);
             if (data == null) {
                 continue;
             }
@@ -199,7 +196,7 @@ public class EventCreator implements Listener {
         if (block == null) {
             return;
         }
-        IRBlockData data = DataUtil.getBlockData(block.getLocation());
+        IRBlockData data = DataUtil.getBlockData(block);
         if (data == null) {
             return;
         }
@@ -216,8 +213,7 @@ public class EventCreator implements Listener {
 
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onIRBlockFromTo(BlockFromToEvent e) {
-        Location location = e.getBlock().getLocation();
-        IRBlockData data = DataUtil.getBlockData(location);
+        IRBlockData data = DataUtil.getBlockData(e.getBlock());
         if (data == null) {
             return;
         }
@@ -335,7 +331,7 @@ public class EventCreator implements Listener {
     public void onPistonExtendIRBlock(BlockPistonExtendEvent e) {
         List<PistonExtendIRBlockEvent> events = new ArrayList<>();
         for (Block block : e.getBlocks()) {
-            IRBlockData data = DataUtil.getBlockData(block.getLocation());
+            IRBlockData data = DataUtil.getBlockData(block);
             if (data == null) {
                 continue;
             }
@@ -359,7 +355,7 @@ public class EventCreator implements Listener {
     public void onPistonRetractIRBlock(BlockPistonRetractEvent e) {
         List<PistonRetractIRBlockEvent> events = new ArrayList<>();
         for (Block block : e.getBlocks()) {
-            IRBlockData data = DataUtil.getBlockData(block.getLocation());
+            IRBlockData data = DataUtil.getBlockData(block);
             if (data == null) {
                 continue;
             }
@@ -381,8 +377,7 @@ public class EventCreator implements Listener {
 
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onPlayerBucketEmpty(PlayerBucketEmptyEvent e) {
-        Location location = e.getBlockClicked().getLocation();
-        IRBlockData data = DataUtil.getBlockData(location);
+        IRBlockData data = DataUtil.getBlockData(e.getBlockClicked());
         if (data == null) {
             return;
         }
@@ -405,7 +400,7 @@ public class EventCreator implements Listener {
             return;
         }
 
-        IRBlockData data = DataUtil.getBlockData(block.getLocation());
+        IRBlockData data = DataUtil.getBlockData(block);
         if (data == null) {
             return;
         }
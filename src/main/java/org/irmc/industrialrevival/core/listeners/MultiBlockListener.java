@@ -1,20 +1,27 @@
 package org.irmc.industrialrevival.core.listeners;
 
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.multiblock.FormedStructure;
+import org.irmc.industrialrevival.api.multiblock.FormedStructures;
 import org.irmc.industrialrevival.api.multiblock.MultiBlock;
-import org.irmc.industrialrevival.api.multiblock.Structure;
-import org.irmc.industrialrevival.api.multiblock.piece.MaterialStructurePiece;
-import org.irmc.industrialrevival.api.multiblock.piece.StructurePiece;
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
-
+import org.irmc.industrialrevival.utils.DataUtil;
 
 import java.text.MessageFormat;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class MultiBlockListener implements Listener {
@@ -25,26 +32,27 @@ public class MultiBlockListener implements Listener {
             return;
         }
 
-        Set<MultiBlock> matched = new HashSet<>();
         Location location = block.getLocation();
-        Material material = block.getType();
-        IndustrialRevival.getInstance().getRegistry().getMultiBlocks().forEach((id, multiBlock) -> {
-            Structure structure = multiBlock.getStructure();
-            StructurePiece piece = structure.getCenterPiece();
-            if (piece instanceof MaterialStructurePiece msp) {
-                if (msp.matches(material)) {
-                    if (structure.isValid(location)) {
-                        matched.add(multiBlock);
-                    }
-                }
-            } else {
-                if (piece.matches(block)) {
-                    if (structure.isValid(location)) {
-                        matched.add(multiBlock);
-                    }
-                }
+        IRBlockData blockData = DataUtil.getBlockData(location);
+        List<MultiBlock> candidates = IndustrialRevival.getInstance().getRegistry()
+                .getMultiBlockCandidates(block.getType(), blockData == null ? null : blockData.getId());
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        FormedStructure formed = FormedStructures.getFormed(location);
+        Set<MultiBlock> matched = new HashSet<>();
+        for (MultiBlock multiBlock : candidates) {
+            if (formed != null && formed.getMultiBlock() == multiBlock) {
+                // nothing inside the structure has changed since it was validated
+                matched.add(multiBlock);
+                continue;
             }
-        });
+
+            if (multiBlock.getStructure().getCenterPiece().matches(block) && FormedStructures.form(multiBlock, location) != null) {
+                matched.add(multiBlock);
+            }
+        }
 
         if (matched.isEmpty()) {
             return;
@@ -63,4 +71,42 @@ public class MultiBlockListener implements Listener {
             multiBlock.onInteract(event);
         }
     }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        FormedStructures.blockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        FormedStructures.blockChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        event.blockList().forEach(FormedStructures::blockChanged);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        event.blockList().forEach(FormedStructures::blockChanged);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        FormedStructures.blockChanged(event.getBlock().getRelative(event.getDirection()));
+        for (Block block : event.getBlocks()) {
+            FormedStructures.blockChanged(block);
+            FormedStructures.blockChanged(block.getRelative(event.getDirection()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        FormedStructures.blockChanged(event.getBlock().getRelative(event.getDirection().getOppositeFace()));
+        for (Block block : event.getBlocks()) {
+            FormedStructures.blockChanged(block);
+            FormedStructures.blockChanged(block.getRelative(event.getDirection()));
+        }
+    }
 }
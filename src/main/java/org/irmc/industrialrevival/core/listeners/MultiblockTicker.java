@@ -6,10 +6,16 @@ import org.bukkit.event.Listener;
 import org.irmc.industrialrevival.api.items.attributes.ExtraTickable;
 import org.irmc.industrialrevival.api.events.ir.TickDoneEvent;
 import org.irmc.industrialrevival.api.events.ir.TickStartEvent;
+import org.irmc.industrialrevival.api.multiblock.FormedStructures;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Ticks the {@link ExtraTickable} multiblocks, skipping those whose structure is not formed.
+ *
+ * @see FormedStructures
+ */
 public class MultiblockTicker implements Listener {
     private static final Map<Location, ExtraTickable> tickable_tickstart = new ConcurrentHashMap<>();
     private static final Map<Location, ExtraTickable> tickables_tickdone = new ConcurrentHashMap<>();
@@ -40,15 +46,19 @@ public class MultiblockTicker implements Listener {
 
     @EventHandler
     public void onTickStart(TickStartEvent event) {
-        for (Location location : tickable_tickstart.keySet()) {
-            tickable_tickstart.get(location).tick(location);
+        for (Map.Entry<Location, ExtraTickable> entry : tickable_tickstart.entrySet()) {
+            if (FormedStructures.isFormed(entry.getKey())) {
+                entry.getValue().tick(entry.getKey());
+            }
         }
     }
 
     @EventHandler
     public void onTickDone(TickDoneEvent event) {
-        for (Location location : tickables_tickdone.keySet()) {
-            tickables_tickdone.get(location).tick(location);
+        for (Map.Entry<Location, ExtraTickable> entry : tickables_tickdone.entrySet()) {
+            if (FormedStructures.isFormed(entry.getKey())) {
+                entry.getValue().tick(entry.getKey());
+            }
         }
     }
 }
@@ -1,14 +1,48 @@
 package org.irmc.industrialrevival.core.listeners;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.PlayerInventory;
 import org.irmc.industrialrevival.api.player.PlayerProfile;
+import org.irmc.industrialrevival.implementation.IndustrialRevival;
 import org.irmc.industrialrevival.utils.Constants;
 
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Loads the {@link PlayerProfile} of a player while the player logs in, off the main thread,
+ * and saves and unloads it once the player has been offline for {@code options.profile-unload-delay} ticks,
+ * so quickly rejoining players keep their cached profile.
+ */
 public class PlayerJoinListener implements Listener {
+    private final long unloadDelay = IndustrialRevival.getInstance().getConfig().getLong("options.profile-unload-delay", 1200);
+    // player -> time of the quit which scheduled the unloading
+    private final Map<UUID, Long> pendingUnloads = new ConcurrentHashMap<>();
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent e) {
+        pendingUnloads.remove(e.getUniqueId());
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        try {
+            PlayerProfile.loadProfile(e.getName(), e.getUniqueId());
+        } catch (RuntimeException ex) {
+            // loaded again when the player joins
+            IndustrialRevival.getInstance().getLogger().log(Level.WARNING, "Failed to load the player profile of " + e.getName(), ex);
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent e) {
         Player p = e.getPlayer();
@@ -19,4 +53,50 @@ public class PlayerJoinListener implements Listener {
             inv.addItem(Constants.ItemStacks.GUIDE_BOOK_ITEM.clone());
         }
     }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        Player p = e.getPlayer();
+        String name = p.getName();
+        UUID uuid = p.getUniqueId();
+        long quitAt = System.nanoTime();
+        pendingUnloads.put(uuid, quitAt);
+        scheduleUnload(name, uuid, quitAt);
+    }
+
+    private void scheduleUnload(String name, UUID uuid, long quitAt) {
+        IndustrialRevival.getInstance().getFoliaLibImpl().getScheduler()
+                .runLaterAsync(_ -> unloadProfile(name, uuid, quitAt), unloadDelay);
+    }
+
+    private void unloadProfile(String name, UUID uuid, long quitAt) {
+        // the player has logged in or quit again since
+        if (!Long.valueOf(quitAt).equals(pendingUnloads.get(uuid)) || Bukkit.getPlayer(uuid) != null) {
+            return;
+        }
+
+        PlayerProfile profile = PlayerProfile.getProfile(name);
+        if (profile == null) {
+            pendingUnloads.remove(uuid, quitAt);
+            return;
+        }
+
+        try {
+            profile.save();
+        } catch (RuntimeException ex) {
+            // keeps the unload pending, the profile is only dropped once it has been saved
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Failed to save the player profile of " + name + ", retrying later", ex);
+            scheduleUnload(name, uuid, quitAt);
+            return;
+        }
+
+        // atomic with the pre-login of the player, which removes the pending unload before reusing the cached profile
+        pendingUnloads.computeIfPresent(uuid, (_, pendingQuitAt) -> {
+            if (pendingQuitAt == quitAt && Bukkit.getPlayer(uuid) == null) {
+                IndustrialRevival.getInstance().getDataManager().removePlayerProfile(profile);
+                return null;
+            }
+            return pendingQuitAt;
+        });
+    }
 }
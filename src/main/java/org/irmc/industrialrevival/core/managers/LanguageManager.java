@@ -1,5 +1,6 @@
 package org.irmc.industrialrevival.core.managers;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.TextDecoration;
@@ -14,6 +15,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.irmc.industrialrevival.api.enums.Language;
 import org.irmc.industrialrevival.api.language.MessageReplacement;
+import org.irmc.industrialrevival.core.guide.GuideSearchIndex;
 import org.irmc.industrialrevival.core.services.ILanguageManager;
 import org.irmc.industrialrevival.utils.ConfigFileUtil;
 import org.jetbrains.annotations.Nullable;
@@ -22,11 +24,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 
 /**
@@ -38,11 +42,20 @@ import java.util.jar.JarFile;
  */
 @Getter
 public final class LanguageManager implements ILanguageManager {
+    private static final Map<Locale, Language> localeLanguages = new ConcurrentHashMap<>();
     private final JavaPlugin plugin;
     private final Language defaultLanguage;
     private final Map<Language, YamlConfiguration> configurations;
     private boolean detectPlayerLocale;
     private YamlConfiguration defaultConfiguration;
+    /**
+     * The parsed messages by language and key, as the guide, menus and packets render them constantly.
+     * Cleared when the languages are loaded.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<Language, Map<String, MessageTemplate>> templates = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<Language, Map<String, List<MessageTemplate>>> templateLists = new ConcurrentHashMap<>();
 
     public LanguageManager(JavaPlugin plugin) {
         this(plugin, Language.ZH_CN);
@@ -64,7 +77,7 @@ public final class LanguageManager implements ILanguageManager {
     }
 
     public static Language toLanguage(Locale locale) {
-        return toLanguage(locale.toLanguageTag());
+        return localeLanguages.computeIfAbsent(locale, l -> toLanguage(l.toLanguageTag()));
     }
 
     public static Language toLanguage(String lang) {
@@ -121,6 +134,10 @@ public final class LanguageManager implements ILanguageManager {
             }
         }
 
+        templates.clear();
+        templateLists.clear();
+        // the search index holds the translated names
+        GuideSearchIndex.invalidate();
     }
 
     private Language convertLang(String unchecked) {
@@ -138,75 +155,85 @@ public final class LanguageManager implements ILanguageManager {
     }
 
     public Component getItemName(String id) {
-        return parseToComponent(getString(null, SCOPE_ITEM + id + NAME));
+        return getItemNameByLanguage(getLanguage(null), id);
     }
 
     public List<Component> getItemLore(String id) {
-        return parseToComponentList(getStringList(null, SCOPE_ITEM + id + LORE));
+        return getItemLoreByLanguage(getLanguage(null), id);
     }
 
     public Component getRecipeTypeName(NamespacedKey key) {
-        return parseToComponent(getString(null, SCOPE_RECIPE_TYPE + key.getKey() + NAME));
+        return getComponent(null, SCOPE_RECIPE_TYPE + key.getKey() + NAME);
     }
 
     public List<Component> getRecipeTypeLore(NamespacedKey key) {
-        return parseToComponentList(getStringList(null, SCOPE_RECIPE_TYPE + key.getKey() + LORE));
+        return getComponentList(null, SCOPE_RECIPE_TYPE + key.getKey() + LORE);
     }
 
     public Component getGroupName(String id) {
-        return parseToComponent(getString(null, SCOPE_GROUP + id + NAME));
+        return getComponent(null, SCOPE_GROUP + id + NAME);
     }
 
     public List<Component> getGroupLore(String id) {
-        return parseToComponentList(getStringList(null, SCOPE_GROUP + id + LORE));
+        return getComponentList(null, SCOPE_GROUP + id + LORE);
     }
 
     public Component getItemNameByLanguage(Language lang, String id) {
-        return parseToComponent(getByLanguage(lang, SCOPE_ITEM + id + NAME));
+        return getComponentByLanguage(lang, SCOPE_ITEM + id + NAME);
     }
 
     public List<Component> getItemLoreByLanguage(Language lang, String id) {
-        return parseToComponentList(getStringListByLanguage(lang, SCOPE_ITEM + id + LORE));
+        return getComponentListByLanguage(lang, SCOPE_ITEM + id + LORE);
     }
 
     public Component getRecipeTypeNameByLanguage(Language lang, NamespacedKey key) {
-        return parseToComponent(getByLanguage(lang, SCOPE_RECIPE_TYPE + key.getKey() + NAME));
+        return getComponentByLanguage(lang, SCOPE_RECIPE_TYPE + key.getKey() + NAME);
     }
 
     public List<Component> getRecipeTypeLoreByLanguage(Language lang, NamespacedKey key) {
-        return parseToComponentList(getStringListByLanguage(lang, SCOPE_RECIPE_TYPE + key.getKey() + LORE));
+        return getComponentListByLanguage(lang, SCOPE_RECIPE_TYPE + key.getKey() + LORE);
     }
 
     public Component getGroupNameByLanguage(Language lang, String id) {
-        return parseToComponent(getByLanguage(lang, SCOPE_GROUP + id + NAME));
+        return getComponentByLanguage(lang, SCOPE_GROUP + id + NAME);
     }
 
     public List<Component> getGroupLoreByLanguage(Language lang, String id) {
-        return parseToComponentList(getStringListByLanguage(lang, SCOPE_GROUP + id + LORE));
+        return getComponentListByLanguage(lang, SCOPE_GROUP + id + LORE);
     }
 
     public void sendMessage(CommandSender CommandSender, String key, MessageReplacement... args) {
-        CommandSender.sendMessage(parseToComponent(getString(CommandSender, key, args)));
+        CommandSender.sendMessage(getComponent(CommandSender, key, args));
     }
 
     public void consoleMessage(String key, MessageReplacement... args) {
-        Bukkit.getConsoleSender().sendMessage(parseToComponent(getString(null, key, args)));
+        Bukkit.getConsoleSender().sendMessage(getComponent(null, key, args));
     }
 
     public Component getComponent(@Nullable CommandSender commandSender, String key, MessageReplacement... args) {
-        return parseToComponent(getString(commandSender, key, args));
+        return getComponentByLanguage(getLanguage(commandSender), key, args);
     }
 
     public Component getComponentByLanguage(@Nullable Language lang, String key, MessageReplacement... args) {
-        return parseToComponent(getByLanguage(lang, key, args));
+        Language language = lang == null ? getLanguage(null) : lang;
+        return templates.computeIfAbsent(language, _ -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, _ -> MessageTemplate.compile(getByLanguage(language, key)))
+                .render(args);
     }
 
     public List<Component> getComponentList(@Nullable CommandSender CommandSender, String key, MessageReplacement... args) {
-        return parseToComponentList(getStringList(CommandSender, key, args));
+        return getComponentListByLanguage(getLanguage(CommandSender), key, args);
     }
 
     public List<Component> getComponentListByLanguage(@Nullable Language lang, String key, MessageReplacement... args) {
-        return parseToComponentList(getStringListByLanguage(lang, key, args));
+        Language language = lang == null ? getLanguage(null) : lang;
+        List<MessageTemplate> lines = templateLists.computeIfAbsent(language, _ -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, _ -> getStringListByLanguage(language, key).stream().map(MessageTemplate::compile).toList());
+        List<Component> rendered = new ArrayList<>(lines.size());
+        for (MessageTemplate line : lines) {
+            rendered.add(line.render(args));
+        }
+        return rendered;
     }
 
     public String getString(@Nullable CommandSender commandSender, String key, MessageReplacement... args) {
@@ -261,15 +288,18 @@ public final class LanguageManager implements ILanguageManager {
         loadLanguages();
     }
 
-    private Configuration getConfiguration(CommandSender p) {
-        if (detectPlayerLocale && p instanceof Player pl) {
-            return configurations.getOrDefault(toLanguage(pl.locale()), defaultConfiguration);
+    public Language getLanguage(@Nullable CommandSender sender) {
+        if (detectPlayerLocale && sender instanceof Player pl) {
+            return toLanguage(pl.locale());
         } else {
-            String lang = plugin.getConfig().getString("language", defaultLanguage.toTagRegionUpper());
-            return configurations.getOrDefault(toLanguage(lang), defaultConfiguration);
+            return toLanguage(plugin.getConfig().getString(CONFIG_LANGUAGE, defaultLanguage.toTagRegionUpper()));
         }
     }
 
+    private Configuration getConfiguration(CommandSender p) {
+        return configurations.getOrDefault(getLanguage(p), defaultConfiguration);
+    }
+
     public ConfigurationSection getSection(String key) {
         return getSection(null, key);
     }
@@ -0,0 +1,77 @@
+package org.irmc.industrialrevival.core.managers;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.irmc.industrialrevival.api.language.MessageReplacement;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A language message parsed once by MiniMessage, so rendering it only substitutes the arguments.
+ * <p>
+ * Placeholders like {@code %amount%} are kept as literal text when the message is parsed, and
+ * every {@link MessageReplacement} is substituted into the parsed component, inheriting the style
+ * around its placeholder. Arguments containing tags are parsed on their own, and the most recently
+ * used of them are kept parsed. A message without placeholders is rendered to the same component
+ * every time.
+ * </p>
+ *
+ * @see LanguageManager
+ */
+final class MessageTemplate {
+    private static final int PARSED_ARGUMENTS_LIMIT = 256;
+    /**
+     * The recently parsed arguments containing tags, like serialized item names, in access order.
+     */
+    private static final Map<String, Component> parsedArguments = new LinkedHashMap<>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+            return size() > PARSED_ARGUMENTS_LIMIT;
+        }
+    };
+    private final String raw;
+    private final Component component;
+
+    private MessageTemplate(String raw, Component component) {
+        this.raw = raw;
+        this.component = component;
+    }
+
+    @NotNull
+    static MessageTemplate compile(@NotNull String raw) {
+        return new MessageTemplate(raw, LanguageManager.parseToComponent(raw));
+    }
+
+    @NotNull
+    Component render(@NotNull MessageReplacement @NotNull ... args) {
+        Component rendered = component;
+        for (MessageReplacement arg : args) {
+            String placeholder = arg.left();
+            if (!raw.contains(placeholder)) {
+                continue;
+            }
+
+            Component value = argument(arg.right());
+            rendered = rendered.replaceText(builder -> builder.matchLiteral(placeholder).replacement(value));
+        }
+
+        return rendered;
+    }
+
+    private static Component argument(String value) {
+        if (value.indexOf('<') < 0) {
+            return Component.text(value);
+        }
+
+        synchronized (parsedArguments) {
+            Component parsed = parsedArguments.get(value);
+            if (parsed == null) {
+                parsed = MiniMessage.miniMessage().deserialize(value);
+                parsedArguments.put(value, parsed);
+            }
+            return parsed;
+        }
+    }
+}
@@ -2,21 +2,44 @@ package org.irmc.industrialrevival.core.packet;
 
 import com.github.retrooper.packetevents.event.PacketListener;
 import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.protocol.component.ComponentTypes;
+import com.github.retrooper.packetevents.protocol.component.builtin.item.ItemLore;
+import com.github.retrooper.packetevents.protocol.item.ItemStack;
+import com.github.retrooper.packetevents.protocol.nbt.NBTCompound;
 import com.github.retrooper.packetevents.protocol.packettype.PacketType;
 import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerSetSlot;
 import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerWindowItems;
 import io.github.retrooper.packetevents.util.SpigotConversionUtil;
+import net.kyori.adventure.text.Component;
+import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
+import org.irmc.industrialrevival.api.enums.Language;
 import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.core.services.ILanguageManager;
 import org.irmc.industrialrevival.core.translation.TranslateContext;
 
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
+import org.irmc.industrialrevival.utils.Constants;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
+/**
+ * Translates the name and lore of IR items sent to a player into the player's language.
+ * <p>
+ * The item id is read from the custom data of the packet item, so items which are not IR items
+ * are never converted to Bukkit items. The translations are parsed once per language and item
+ * and cached by the {@link ILanguageManager#getItemNameByLanguage(Language, String) language manager}
+ * until the languages are reloaded; only items with a {@link TranslateContext} are converted to
+ * Bukkit items to apply it.
+ * </p>
+ */
 //TODO: move to impl
 public class ItemPacketHandler implements PacketListener {
+    private static final String BUKKIT_VALUES = "PublicBukkitValues";
+    private static final String ITEM_ID_KEY = Constants.ItemStackKeys.ITEM_ID_KEY.toString();
+
     @Override
     public void onPacketSend(@NotNull PacketSendEvent e) {
         Player p = e.getPlayer();
@@ -25,63 +48,98 @@ public class ItemPacketHandler implements PacketListener {
             case PacketType.Play.Server.SET_SLOT -> {
                 WrapperPlayServerSetSlot packet = new WrapperPlayServerSetSlot(e);
                 if (packet.getWindowId() != 0) return;
-                ItemStack item = SpigotConversionUtil.toBukkitItemStack(packet.getItem());
-                if (isTarget(item)) {
-                    packet.setItem(SpigotConversionUtil.fromBukkitItemStack(rename(p, item)));
+                ItemStack item = packet.getItem();
+                String id = getItemId(item);
+                if (id == null) return;
+                ItemStack renamed = rename(p, IndustrialRevival.getInstance().getLanguageManager().getLanguage(p), item, id);
+                if (renamed != null) {
+                    packet.setItem(renamed);
+                    e.markForReEncode(true);
                 }
             }
             case PacketType.Play.Server.WINDOW_ITEMS -> {
                 WrapperPlayServerWindowItems packet = new WrapperPlayServerWindowItems(e);
                 if (packet.getWindowId() != 0) return;
                 var items = packet.getItems();
+                Language language = null;
                 boolean changed = false;
                 for (int i = 0; i < items.size(); i++) {
-                    ItemStack it = SpigotConversionUtil.toBukkitItemStack(items.get(i));
-                    if (isTarget(it)) {
-                        items.set(i, SpigotConversionUtil.fromBukkitItemStack(rename(p, it)));
+                    ItemStack item = items.get(i);
+                    String id = getItemId(item);
+                    if (id == null) {
+                        continue;
+                    }
+
+                    if (language == null) {
+                        language = IndustrialRevival.getInstance().getLanguageManager().getLanguage(p);
+                    }
+
+                    ItemStack renamed = rename(p, language, item, id);
+                    if (renamed != null) {
+                        items.set(i, renamed);
                         changed = true;
                     }
                 }
                 if (changed) {
                     packet.setItems(items);
+                    e.markForReEncode(true);
                 }
             }
             default -> {}
         }
     }
 
-    private boolean isTarget(ItemStack item) {
-        return item != null && !item.getType().isAir() && IndustrialRevivalItem.getByItem(item) != null;
-    }
-
-    private ItemStack rename(Player p, ItemStack item) {
-        ItemStack clone = item.clone();
-        ItemMeta meta = clone.getItemMeta();
-        if (meta == null) {
-            return clone;
+    /**
+     * Reads the IR item id from the custom data of a packet item.
+     *
+     * @param item the packet item
+     * @return the item id, or null if the item is not an IR item
+     */
+    @Nullable
+    private static String getItemId(@Nullable ItemStack item) {
+        if (item == null || item.isEmpty()) {
+            return null;
         }
 
-        IndustrialRevivalItem ir = IndustrialRevivalItem.getByItem(clone);
-        if (ir == null) {
-            return clone;
+        NBTCompound customData = item.getComponent(ComponentTypes.CUSTOM_DATA).orElse(null);
+        if (customData == null) {
+            return null;
         }
 
-        if (!ir.isAutoTranslation()) {
-            return clone;
+        NBTCompound bukkitValues = customData.getCompoundTagOrNull(BUKKIT_VALUES);
+        return bukkitValues == null ? null : bukkitValues.getStringTagValueOrNull(ITEM_ID_KEY);
+    }
+
+    /**
+     * Translates a packet item.
+     *
+     * @param p        the player receiving the item
+     * @param language the language of the player
+     * @param item     the packet item
+     * @param id       the IR item id of the item
+     * @return the translated item, or null if the item is not translated
+     */
+    @Nullable
+    private ItemStack rename(Player p, Language language, ItemStack item, String id) {
+        NamespacedKey key = NamespacedKey.fromString(id);
+        IndustrialRevivalItem ir = key == null ? null : IndustrialRevivalItem.getById(key);
+        if (ir == null || !ir.isAutoTranslation()) {
+            return null;
         }
 
-        LanguageManager lm = IndustrialRevival.getInstance().getLanguageManager();
+        ILanguageManager lm = IndustrialRevival.getInstance().getLanguageManager();
+        Component name = lm.getItemNameByLanguage(language, ir.getId().getKey());
+        List<Component> lore = lm.getItemLoreByLanguage(language, ir.getId().getKey());
         TranslateContext tc = ir.getTranslateContext();
         if (tc != null) {
-            meta.displayName(tc.apply(p, item, lm.getItemName(ir.getId())));
-            meta.lore(tc.apply(p, item, lm.getItemLore(ir.getId())));
-        } else {
-            meta.displayName(lm.getItemName(ir.getId()));
-            meta.lore(lm.getItemLore(ir.getId()));
+            org.bukkit.inventory.ItemStack bukkitItem = SpigotConversionUtil.toBukkitItemStack(item);
+            name = tc.apply(p, bukkitItem, name);
+            lore = tc.apply(p, bukkitItem, lore);
         }
 
-        clone.setItemMeta(meta);
-
-        return clone;
+        ItemStack renamed = item.copy();
+        renamed.setComponent(ComponentTypes.CUSTOM_NAME, name);
+        renamed.setComponent(ComponentTypes.LORE, new ItemLore(lore));
+        return renamed;
     }
 }
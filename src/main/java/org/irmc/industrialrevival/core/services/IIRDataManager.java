@@ -1,15 +1,21 @@
 package org.irmc.industrialrevival.core.services;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
 import org.irmc.industrialrevival.api.player.PlayerProfile;
+import org.irmc.industrialrevival.core.energy.EnergyNetManager;
+import org.irmc.industrialrevival.core.task.TickerTask;
+import org.irmc.industrialrevival.core.task.TickingIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -29,6 +35,29 @@ public interface IIRDataManager {
     @Nullable
     IRBlockData getBlockData(@NotNull Location location);
 
+    /**
+     * Gets the block data at the specified block coordinates if it exists, without allocating a location.
+     *
+     * @param world the world of the block
+     * @param x     the x coordinate of the block
+     * @param y     the y coordinate of the block
+     * @param z     the z coordinate of the block
+     * @return the block data at the coordinates, or null if not found
+     */
+    @Nullable
+    IRBlockData getBlockData(@NotNull World world, int x, int y, int z);
+
+    /**
+     * Checks whether a chunk contains any block with block data, e.g. to ignore an event
+     * in a chunk without any blocks before looking up every block it affects.
+     *
+     * @param world  the world the chunk is in
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @return true if the chunk contains a block with block data
+     */
+    boolean hasBlockDataInChunk(@NotNull World world, int chunkX, int chunkZ);
+
     /**
      * Places a block with the specified ID at the given location.
      *
@@ -37,6 +66,14 @@ public interface IIRDataManager {
      */
     void placeBlock(@NotNull Location loc, @NotNull NamespacedKey blockID);
 
+    /**
+     * Sets the block data of a block at the location of the block data, replacing the block data there.
+     * The block is ticked, joins the energy network and is saved like a placed block.
+     *
+     * @param blockData the block data to set
+     */
+    void setBlockData(@NotNull IRBlockData blockData);
+
     /**
      * Breaks (removes) a block at the specified location.
      *
@@ -47,24 +84,72 @@ public interface IIRDataManager {
     @Nullable
     IRBlockData breakBlock(@NotNull Location loc);
 
+    /**
+     * Gets the data of all blocks in a chunk, without loading the chunk or querying the database.
+     *
+     * @param world  the world the chunk is in
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @return the block data in the chunk
+     */
+    @NotNull
+    List<IRBlockData> getBlockDataInChunk(@NotNull World world, int chunkX, int chunkZ);
+
+    /**
+     * Loads the block data of a chunk in a world which was not loaded when the block data was loaded.
+     * The blocks of such a world are read from storage chunk by chunk, the first time each chunk is loaded.
+     * Does nothing for chunks whose block data has been loaded already.
+     *
+     * @param chunk the loaded chunk
+     */
+    void loadChunkData(@NotNull Chunk chunk);
+
     /**
      * Saves all current data to storage.
      */
     void saveAllData();
 
+    /**
+     * Saves the data of the blocks which changed since they were last saved.
+     * The data is encoded on the calling thread, which must not run while the blocks are ticked,
+     * see {@link TickerTask#runBetweenTicks(Runnable)}.
+     *
+     * @return the amount of saved blocks
+     */
+    @CanIgnoreReturnValue
+    int saveModifiedData();
+
     /**
      * Save block data to storage.
      */
     void saveBlock(@NotNull Location location);
 
     /**
-     * Gets a map of all block data locations to their respective data.
+     * Gets a snapshot of all block data locations to their respective data.
+     * The snapshot is unmodifiable, use {@link #setBlockData(IRBlockData)} and {@link #breakBlock(Location)}
+     * to change the block data.
      *
-     * @return a map of block locations to block data
+     * @return an unmodifiable snapshot of block locations to block data
      */
     @NotNull
     Map<Location, IRBlockData> getBlockDataMap();
 
+    /**
+     * Gets the index of the blocks which have a ticker, kept in sync with the placed blocks.
+     *
+     * @return the ticking index
+     */
+    @NotNull
+    TickingIndex getTickingIndex();
+
+    /**
+     * Gets the energy networks, kept in sync with the placed blocks.
+     *
+     * @return the energy net manager
+     */
+    @NotNull
+    EnergyNetManager getEnergyNetManager();
+
     /**
      * Gets a map of player names to their player profiles.
      *
@@ -79,6 +164,24 @@ public interface IIRDataManager {
      */
     @NotNull Collection<PlayerProfile> getAllPlayerProfiles();
 
+    /**
+     * Caches a loaded player profile, unless a profile of the player is cached already.
+     *
+     * @param profile the loaded player profile
+     * @return the cached player profile of the player
+     */
+    @NotNull PlayerProfile addPlayerProfile(@NotNull PlayerProfile profile);
+
+    /**
+     * Removes a player profile from the cache, without saving it.
+     * Nothing is removed if another profile of the player has been cached since.
+     *
+     * @param profile the cached player profile
+     * @return true if the profile has been removed
+     */
+    @CanIgnoreReturnValue
+    boolean removePlayerProfile(@NotNull PlayerProfile profile);
+
     /**
      * Gets a player profile by player name if it exists.
      *
@@ -304,6 +304,17 @@ public interface IIRRegistry {
      */
     @Nullable MultiBlock getMultiBlock(@NotNull NamespacedKey key);
 
+    /**
+     * Gets the multiblocks whose center piece may be a block, indexed when they are registered.
+     * Multiblocks with a material center are found by the material, those with an IndustrialRevival
+     * block center by its id, and those whose center matches any block are always included.
+     *
+     * @param material the material of the block
+     * @param id       the IndustrialRevival id of the block, or null if it is not an IndustrialRevival block
+     * @return the candidate multiblocks, their structures still have to be validated
+     */
+    @NotNull List<MultiBlock> getMultiBlockCandidates(@NotNull Material material, @Nullable NamespacedKey id);
+
     /**
      * Registers a multiblock.
      *
@@ -100,6 +100,15 @@ public interface ILanguageManager {
      */
     @NotNull List<Component> getItemLoreByLanguage(@NotNull Language lang, @NotNull String id);
 
+    /**
+     * Get the language messages are sent in to a command sender
+     *
+     * @param sender The command sender, or null for the configured language
+     * @return The player's language if player locales are detected, otherwise the configured language
+     */
+    @NotNull
+    Language getLanguage(@Nullable CommandSender sender);
+
     /**
      * Get the name of a recipe type by its key in a specific language
      *
@@ -5,8 +5,10 @@ import org.bukkit.NamespacedKey;
 import org.irmc.industrialrevival.api.timings.PerformanceSummary;
 import org.irmc.industrialrevival.api.timings.ProfiledBlock;
 import org.irmc.industrialrevival.api.objects.ChunkPosition;
+import org.irmc.industrialrevival.api.timings.TimingStatistics;
 import org.irmc.industrialrevival.api.timings.TimingViewRequest;
 import org.irmc.industrialrevival.core.task.TickerTask;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
@@ -116,18 +118,66 @@ public interface IRunningProfilerService {
     void clearProfilingData();
 
     /**
-     * Starts profiling at the specified location.
+     * Decides whether a tick is profiled. Profiling is off unless a timing view was requested
+     * or a sample interval is configured, in which case every n-th tick is profiled.
      *
-     * @param location the location to start profiling at
+     * @param tick the number of the tick
+     * @return true if the ticking blocks have to be timed in this tick
      */
-    void startProfiling(@NotNull Location location);
+    @ApiStatus.Internal
+    boolean shouldProfile(long tick);
 
     /**
-     * Stops profiling at the specified location.
+     * Gets the accumulator slot of an item, slots are dense and never reused.
+     * Must only be called by the ticker thread.
      *
-     * @param location the location to stop profiling at
+     * @param id the id of the item
+     * @return the slot of the item
      */
-    void stopProfiling(@NotNull Location location);
+    @ApiStatus.Internal
+    int getItemSlot(@NotNull NamespacedKey id);
+
+    /**
+     * Records a timing of a block to the accumulator of its item.
+     * Must only be called by the ticker thread.
+     *
+     * @param slot  the slot of the item, see {@link #getItemSlot(NamespacedKey)}
+     * @param nanos the time the block took to tick, in nanoseconds
+     */
+    @ApiStatus.Internal
+    void recordItemTiming(int slot, long nanos);
+
+    /**
+     * Called after the timings of a profiled tick have been recorded.
+     *
+     * @return true if a new summary should be published now
+     */
+    @ApiStatus.Internal
+    boolean completeSample();
+
+    /**
+     * Gets the amount of ticks sampled since the last summary.
+     *
+     * @return the amount of sampled ticks
+     */
+    int getSampledTicks();
+
+    /**
+     * Copies the statistics of all items and clears the item accumulators.
+     * Must only be called by the ticker thread.
+     *
+     * @return the statistics of every item which was sampled
+     */
+    @ApiStatus.Internal
+    @NotNull Map<NamespacedKey, TimingStatistics> drainItemStatistics();
+
+    /**
+     * Publishes a new summary and starts a new sampling window.
+     *
+     * @param summary the summary built from the accumulators
+     */
+    @ApiStatus.Internal
+    void publishSummary(@NotNull PerformanceSummary summary);
 
     @NotNull
     TickerTask getTask();
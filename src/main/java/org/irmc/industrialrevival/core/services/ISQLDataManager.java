@@ -1,11 +1,13 @@
 package org.irmc.industrialrevival.core.services;
 
 import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
 import org.irmc.industrialrevival.api.data.sql.BlockRecord;
 import org.irmc.industrialrevival.api.data.sql.PlayerResearchRecord;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,13 +25,29 @@ public interface ISQLDataManager {
      */
     @NotNull List<BlockRecord> getAllBlockRecords();
 
+    /**
+     * Retrieves the block records of a single chunk from the database.
+     *
+     * @param world  the name of the world the chunk is in
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @return the block records in the chunk
+     */
+    @NotNull List<BlockRecord> getBlockRecordsInChunk(@NotNull String world, int chunkX, int chunkZ);
+
     /**
      * Saves a block record to the database.
+     * The record is written asynchronously, see {@link #flushBlockRecords()}.
      *
      * @param record the block record to save
      */
     void saveBlockRecord(@NotNull BlockRecord record);
 
+    /**
+     * Waits until all block records saved or deleted so far have been written to the database.
+     */
+    void flushBlockRecords();
+
     /**
      * Retrieves a block record by its location.
      *
@@ -49,6 +67,16 @@ public interface ISQLDataManager {
     void deletePlayerResearchRecord(@NotNull UUID playerUUID);
     void savePlayerResearchRecord(@NotNull PlayerResearchRecord playerResearchRecord);
 
+    /**
+     * Writes the research changes of a player, leaving the records of unchanged researches untouched.
+     * The changes are written in one transaction.
+     *
+     * @param playerUUID   the UUID of the player
+     * @param researched   the researches which have been researched since the last save
+     * @param unresearched the researches which have been taken back since the last save
+     */
+    void updatePlayerResearchRecords(@NotNull UUID playerUUID, @NotNull Collection<NamespacedKey> researched, @NotNull Collection<NamespacedKey> unresearched);
+
     void close();
 
     void init();
@@ -4,6 +4,7 @@ import com.tcoded.folialib.wrapper.task.WrappedTask;
 import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.irmc.industrialrevival.api.events.ir.IndustrialRevivalFinalizedEvent;
+import org.irmc.industrialrevival.core.guide.GuideSearchIndex;
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
 
 
@@ -16,6 +17,7 @@ public class PostSetupTask implements Consumer<WrappedTask> {
 
     static {
         PostSetupTask.addPostSetupTask(() -> Bukkit.getPluginManager().callEvent(new IndustrialRevivalFinalizedEvent()));
+        PostSetupTask.addPostSetupTask(GuideSearchIndex::rebuild);
     }
 
     @Getter
@@ -1,83 +1,192 @@
 package org.irmc.industrialrevival.core.task;
 
+import com.tcoded.folialib.FoliaLib;
 import com.tcoded.folialib.wrapper.task.WrappedTask;
 import lombok.Getter;
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.bukkit.NamespacedKey;
 import org.irmc.industrialrevival.api.items.handlers.BlockTicker;
-import org.irmc.industrialrevival.api.objects.ChunkPosition;
 import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
 import org.irmc.industrialrevival.api.events.ir.BlockTickEvent;
 import org.irmc.industrialrevival.api.events.ir.TickDoneEvent;
 import org.irmc.industrialrevival.api.events.ir.TickStartEvent;
-import org.irmc.industrialrevival.api.data.sql.BlockRecord;
+import org.irmc.industrialrevival.api.objects.ChunkPosition;
 import org.irmc.industrialrevival.api.timings.ErrorReport;
+import org.irmc.industrialrevival.api.timings.PerformanceSummary;
+import org.irmc.industrialrevival.api.timings.ProfiledBlock;
+import org.irmc.industrialrevival.api.timings.TimingStatistics;
+import org.irmc.industrialrevival.core.energy.EnergyNetManager;
+import org.irmc.industrialrevival.core.services.IRunningProfilerService;
+import org.irmc.industrialrevival.core.task.TickingIndex.TickingBlock;
+import org.irmc.industrialrevival.core.task.TickingIndex.TickingChunk;
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.logging.Level;
 
+/**
+ * Ticks every {@link BlockTicker} of the placed IndustrialRevival blocks.
+ * <p>
+ * Ticking blocks are taken from the {@link TickingIndex}, grouped by chunk. A chunk group is
+ * always ticked on a single thread, so blocks next to each other never race. Groups of
+ * asynchronous tickers are spread over a work-stealing pool (or the region schedulers on Folia),
+ * only the tickers which declare {@link BlockTicker#isSynchronized()} are ticked on the thread
+ * owning the chunk.
+ * </p>
+ */
 public class TickerTask implements Consumer<WrappedTask> {
     public static final Map<Location, Integer> bugsCount = new ConcurrentHashMap<>();
+    private static final long MAX_TICK_WAIT_SECONDS = 30;
     private final Supplier<Map<Location, IRBlockData>> blockDataSupplier =
             IndustrialRevival.getInstance().getDataManager()::getBlockDataMap;
     // TODO: When place or break a block, bugsCount should be reset to 0.
     @Getter
     private final int checkInterval;
+    private final ForkJoinPool tickPool;
+    private final TickingIndex tickingIndex = IndustrialRevival.getInstance().getDataManager().getTickingIndex();
+    private final EnergyNetManager energyNetManager = IndustrialRevival.getInstance().getDataManager().getEnergyNetManager();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopped;
+    private CompletableFuture<Void> inFlight;
+    /**
+     * The futures of the current tick which run on the scheduler instead of the pool, released on shutdown.
+     */
+    private volatile List<CompletableFuture<Void>> scheduledFutures = List.of();
+    private final Queue<Runnable> betweenTicks = new ConcurrentLinkedQueue<>();
     @Getter
     private long ticked = 0;
 
     public TickerTask(int checkInterval) {
         this.checkInterval = checkInterval;
+
+        int parallelism = IndustrialRevival.getInstance().getConfig().getInt(
+                "options.ticker.parallelism",
+                Runtime.getRuntime().availableProcessors() - 1);
+        this.tickPool = new ForkJoinPool(Math.max(1, parallelism), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("IndustrialRevival-Ticker-" + thread.getPoolIndex());
+            thread.setContextClassLoader(TickerTask.class.getClassLoader());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
     }
 
     @Override
     public void accept(WrappedTask wrappedTask) {
-        Map<Location, IRBlockData> blockDataMap = blockDataSupplier.get();
-        TickStartEvent startEvent = new TickStartEvent(blockDataMap, checkInterval, ticked);
-        TickDoneEvent doneEvent = new TickDoneEvent();
-        IndustrialRevival.getInstance().runAsync(() -> Bukkit.getPluginManager().callEvent(startEvent));
-        IndustrialRevival.getInstance().getRunningProfilerService().clearProfilingData();
+        if (stopped || !running.compareAndSet(false, true)) {
+            // shutting down, or the previous tick is still running: skip this one instead of piling up
+            return;
+        }
 
-        if (blockDataMap == null) {
-            IndustrialRevival.getInstance().runAsync(() -> Bukkit.getPluginManager().callEvent(doneEvent));
+        try {
+            tick();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void tick() {
+        if (inFlight != null && !inFlight.isDone()) {
+            // chunks of the previous tick are still being ticked, the index must not change under them
             return;
         }
 
-        for (Map.Entry<Location, IRBlockData> entry : blockDataMap.entrySet()) {
-            IRBlockData blockData = entry.getValue();
+        runBetweenTicks();
+        tickingIndex.applyChanges();
 
-            IndustrialRevivalItem item = IndustrialRevivalItem.getById(blockData.getId());
-            if (item == null) {
-                removeTickingBlock(entry.getKey());
+        TickStartEvent startEvent = new TickStartEvent(blockDataSupplier, checkInterval, ticked);
+        TickDoneEvent doneEvent = new TickDoneEvent();
+        IndustrialRevival.getInstance().runAsync(() -> Bukkit.getPluginManager().callEvent(startEvent));
+        IRunningProfilerService profiler = IndustrialRevival.getInstance().getRunningProfilerService();
+        boolean profiling = profiler.shouldProfile(ticked);
+
+        List<TickingChunk> chunks = tickingIndex.getChunks();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<CompletableFuture<Void>> scheduled = new ArrayList<>();
+        FoliaLib foliaLib = IndustrialRevival.getInstance().getFoliaLibImpl();
+        boolean hasSynchronized = false;
+        for (int i = 0; i < chunks.size() && !stopped; i++) {
+            TickingChunk chunk = chunks.get(i);
+            if (!chunk.isLoaded()) {
                 continue;
             }
 
-            BlockTicker ticker = item.getItemHandler(BlockTicker.class);
-            if (ticker != null) {
+            if (foliaLib.isFolia()) {
+                // on Folia the region thread owns the chunk, it is safe for both kinds of tickers
+                scheduled.add(foliaLib.getScheduler().runAtLocation(chunk.getAnchor(), _ -> {
+                    if (stopped) {
+                        return;
+                    }
+
+                    boolean async = !Bukkit.isPrimaryThread();
+                    tickAsynchronous(chunk, async, profiling);
+                    tickSynchronous(chunk, async, profiling);
+                }));
+                continue;
+            }
+
+            if (chunk.asynchronousSize() > 0) {
                 try {
-                    BlockTickEvent event = new BlockTickEvent(entry.getKey().getBlock(), blockData.getMachineMenu(), item, blockData);
-                    Bukkit.getPluginManager().callEvent(event);
+                    futures.add(CompletableFuture.runAsync(() -> tickAsynchronous(chunk, true, profiling), tickPool));
+                } catch (RejectedExecutionException e) {
+                    // the pool has been shut down since the check
+                    break;
+                }
+            }
+            hasSynchronized |= chunk.synchronousSize() > 0;
+        }
 
-                    IndustrialRevival.getInstance().getRunningProfilerService().startProfiling(entry.getKey());
-                    if (!event.isCancelled()) {
-                        ticker.onTick(event);
-                    }
-                    IndustrialRevival.getInstance().getRunningProfilerService().stopProfiling(entry.getKey());
-                } catch (Throwable ex) {
-                    ex.printStackTrace();
-                    bugsCount.put(entry.getKey(), bugsCount.getOrDefault(entry.getKey(), 0) + 1);
-                    if (bugsCount.get(entry.getKey()) >= 4) {
-                        removeTickingBlock(entry.getKey());
-                        reportBug(entry.getKey(), entry.getValue(), ex);
+        if (hasSynchronized && !stopped) {
+            scheduled.add(foliaLib.getScheduler().runNextTick(_ -> {
+                if (stopped) {
+                    return;
+                }
+
+                for (int i = 0; i < chunks.size(); i++) {
+                    TickingChunk chunk = chunks.get(i);
+                    if (chunk.isLoaded()) {
+                        tickSynchronous(chunk, false, profiling);
                     }
                 }
+            }));
+        }
+
+        scheduledFutures = scheduled;
+        if (stopped) {
+            // shutdown() may have released the futures before they were published
+            releaseScheduled();
+        }
+        futures.addAll(scheduled);
+        inFlight = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        awaitAll(inFlight);
+
+        if (inFlight.isDone()) {
+            // generators have produced for this tick, machines consume from the next one on
+            energyNetManager.tick();
+        }
+
+        if (profiling && inFlight.isDone()) {
+            collectSamples(profiler, chunks);
+            if (profiler.completeSample()) {
+                profiler.publishSummary(buildSummary(profiler, chunks));
             }
         }
 
@@ -86,47 +195,212 @@ public class TickerTask implements Consumer<WrappedTask> {
         ticked++;
     }
 
-    private void addTickingBlock(Location location, IRBlockData blockData) {
-        Map<Location, IRBlockData> blockDataMap = blockDataSupplier.get();
-        if (blockDataMap == null) {
-            return;
+    /**
+     * Runs a task on the ticker thread before the next tick, while none of the blocks is being ticked.
+     * Once ticking has stopped, the task is run on the calling thread right away.
+     *
+     * @param task the task
+     */
+    public void runBetweenTicks(Runnable task) {
+        betweenTicks.add(task);
+        if (stopped) {
+            runBetweenTicks();
         }
+    }
 
-        blockDataMap.put(location, blockData);
-        bugsCount.put(location, 0);
+    private void runBetweenTicks() {
+        Runnable task;
+        while ((task = betweenTicks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "An error occurred while running a task between ticks", e);
+            }
+        }
     }
 
-    private void removeTickingBlock(Location location) {
-        Map<Location, IRBlockData> blockDataMap = blockDataSupplier.get();
-        if (blockDataMap == null) {
+    private void awaitAll(CompletableFuture<Void> future) {
+        try {
+            future.get(MAX_TICK_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "An error occurred while ticking blocks", e.getCause());
+        } catch (TimeoutException e) {
+            IndustrialRevival.getInstance().getLogger().warning("Ticking blocks took more than " + MAX_TICK_WAIT_SECONDS + " seconds, skipping wait");
+        }
+    }
+
+    private void tickAsynchronous(TickingChunk chunk, boolean async, boolean profiling) {
+        for (int i = 0; i < chunk.asynchronousSize(); i++) {
+            tickBlock(chunk.asynchronous(i), async, profiling);
+        }
+    }
+
+    private void tickSynchronous(TickingChunk chunk, boolean async, boolean profiling) {
+        for (int i = 0; i < chunk.synchronousSize(); i++) {
+            tickBlock(chunk.synchronous(i), async, profiling);
+        }
+    }
+
+    private void tickBlock(TickingBlock block, boolean async, boolean profiling) {
+        Location location = block.getLocation();
+        try {
+            BlockTickEvent event = new BlockTickEvent(location.getBlock(), block.getBlockData().getMachineMenu(), block.getItem(), block.getBlockData(), async);
+            Bukkit.getPluginManager().callEvent(event);
+
+            long start = profiling ? System.nanoTime() : 0;
+            if (!event.isCancelled()) {
+                block.getTicker().onTick(event);
+            }
+            if (profiling) {
+                // only a field write, the sample is collected by the ticker thread after the tick
+                block.sample(System.nanoTime() - start);
+            }
+        } catch (Throwable ex) {
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "An error occurred while ticking the block at " + location, ex);
+            if (bugsCount.merge(location, 1, Integer::sum) >= 4) {
+                removeTickingBlock(location);
+                reportBug(location, block.getBlockData(), ex);
+            }
+        }
+    }
+
+    /**
+     * Records the samples of the last tick into the per-item and per-chunk accumulators.
+     * Runs on the ticker thread once every chunk has been ticked, so it does not race with the tickers.
+     */
+    private void collectSamples(IRunningProfilerService profiler, List<TickingChunk> chunks) {
+        for (int i = 0; i < chunks.size(); i++) {
+            TickingChunk chunk = chunks.get(i);
+            if (!chunk.isLoaded()) {
+                continue;
+            }
+
+            for (int j = 0; j < chunk.asynchronousSize(); j++) {
+                collectSample(profiler, chunk, chunk.asynchronous(j));
+            }
+            for (int j = 0; j < chunk.synchronousSize(); j++) {
+                collectSample(profiler, chunk, chunk.synchronous(j));
+            }
+        }
+    }
+
+    private void collectSample(IRunningProfilerService profiler, TickingChunk chunk, TickingBlock block) {
+        long nanos = block.collectSample();
+        if (nanos < 0) {
             return;
         }
 
-        blockDataMap.remove(location);
-        bugsCount.remove(location);
+        if (block.getProfilerSlot() < 0) {
+            block.setProfilerSlot(profiler.getItemSlot(block.getItem().getId()));
+        }
+        profiler.recordItemTiming(block.getProfilerSlot(), nanos);
+        chunk.getTimings().record(0, nanos);
     }
 
-    public Map<Location, IRBlockData> getTickingBlocks() {
-        return new HashMap<>(blockDataSupplier.get());
+    /**
+     * Builds a summary from the accumulators and clears them. Timings are averaged per sampled tick.
+     */
+    private PerformanceSummary buildSummary(IRunningProfilerService profiler, List<TickingChunk> chunks) {
+        int sampledTicks = Math.max(1, profiler.getSampledTicks());
+        Map<ProfiledBlock, Long> data = new HashMap<>();
+        Map<ChunkPosition, Long> dataByChunk = new HashMap<>();
+        Map<ChunkPosition, TimingStatistics> statisticsByChunk = new HashMap<>();
+        Map<String, Long> dataByPlugin = new HashMap<>();
+        long totalTime = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            TickingChunk chunk = chunks.get(i);
+            if (!chunk.hasTimings() || chunk.getTimings().getCount(0) == 0) {
+                continue;
+            }
+
+            ChunkPosition position = new ChunkPosition(chunk.getAnchor());
+            TimingStatistics statistics = chunk.getTimings().toStatistics(0);
+            chunk.getTimings().reset();
+            statisticsByChunk.put(position, statistics);
+            dataByChunk.put(position, statistics.totalTime() / sampledTicks);
+            totalTime += statistics.totalTime() / sampledTicks;
+
+            for (int j = 0; j < chunk.asynchronousSize(); j++) {
+                summarizeBlock(chunk.asynchronous(j), position, sampledTicks, data, dataByPlugin);
+            }
+            for (int j = 0; j < chunk.synchronousSize(); j++) {
+                summarizeBlock(chunk.synchronous(j), position, sampledTicks, data, dataByPlugin);
+            }
+        }
+
+        Map<NamespacedKey, TimingStatistics> statisticsByID = profiler.drainItemStatistics();
+        Map<NamespacedKey, Long> dataByID = new HashMap<>();
+        for (Map.Entry<NamespacedKey, TimingStatistics> entry : statisticsByID.entrySet()) {
+            dataByID.put(entry.getKey(), entry.getValue().totalTime() / sampledTicks);
+        }
+
+        return new PerformanceSummary(data, dataByID, dataByChunk, dataByPlugin, statisticsByID, statisticsByChunk, totalTime, sampledTicks);
+    }
+
+    private void summarizeBlock(TickingBlock block, ChunkPosition position, int sampledTicks, Map<ProfiledBlock, Long> data, Map<String, Long> dataByPlugin) {
+        long time = block.takeSampledTime() / sampledTicks;
+        ProfiledBlock profiledBlock = new ProfiledBlock(block.getLocation(), position, block.getItem());
+        data.put(profiledBlock, time);
+        dataByPlugin.merge(profiledBlock.getPlugin(), time, Long::sum);
     }
 
     /**
-     * Called when an existing chunk is loaded.
-     *
-     * @param chunk The chunk that was loaded.
+     * Completes the futures of the current tick which run on the scheduler, so the ticker thread does not wait for them.
+     * Their tasks skip the blocks if they run after all.
      */
-    public void loadChunk(Chunk chunk) {
-        chunk.load();
-        // get available ticking blocks from database
-        ChunkPosition chunkPosition = new ChunkPosition(chunk);
-        for (BlockRecord record : IndustrialRevival.getInstance().getSQLDataManager().getAllBlockRecords()) {
-            ChunkPosition recordChunkPosition = new ChunkPosition(record.getLocation().getChunk());
-            if (recordChunkPosition.equals(chunkPosition)) {
-                loadBlock(record.getLocation());
+    private void releaseScheduled() {
+        for (CompletableFuture<Void> future : scheduledFutures) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Stops ticking and waits for the blocks being ticked on the pool, called when the plugin is disabled
+     * before the block data is saved, so it is not changed while it is serialized.
+     * The tickers scheduled on the server threads are not waited for, those threads may be the one disabling
+     * the plugin; if they have not started yet they are skipped.
+     */
+    public void shutdown() {
+        stopped = true;
+        releaseScheduled();
+        tickPool.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(MAX_TICK_WAIT_SECONDS);
+        try {
+            if (!tickPool.awaitTermination(MAX_TICK_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                IndustrialRevival.getInstance().getLogger().warning("Blocks are still being ticked, saving anyway");
+                return;
             }
+
+            // the energy networks are balanced by the ticker thread after the blocks have been ticked
+            while (running.get() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    private void addTickingBlock(Location location, IRBlockData blockData) {
+        tickingIndex.add(location, blockData);
+        bugsCount.put(location, 0);
+    }
+
+    private void removeTickingBlock(Location location) {
+        tickingIndex.remove(location);
+        bugsCount.remove(location);
+    }
+
+    /**
+     * Gets a snapshot of all the block data.
+     *
+     * @return an unmodifiable snapshot of the block data
+     */
+    public Map<Location, IRBlockData> getTickingBlocks() {
+        return blockDataSupplier.get();
+    }
+
     /**
      * Called when an existing block is loaded.
      *
@@ -0,0 +1,318 @@
+package org.irmc.industrialrevival.core.task;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import lombok.Getter;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.items.handlers.BlockTicker;
+import org.irmc.industrialrevival.api.timings.TimingAccumulator;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * The set of blocks which have a {@link BlockTicker}, grouped by chunk.
+ * <p>
+ * The index is maintained incrementally: placing, breaking, loading and unloading
+ * only queue a change, and the changes are applied by the ticker thread right before
+ * a tick, so the arrays are never modified while they are being ticked.
+ * The item and ticker of a block are resolved once when it is added, so ticking
+ * does no registry lookups and no allocation.
+ * </p>
+ *
+ * @see TickerTask
+ */
+public class TickingIndex {
+    private final Queue<Consumer<TickingIndex>> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final Map<Location, TickingBlock> blocks = new HashMap<>();
+    private final Map<World, Long2ObjectMap<TickingChunk>> chunks = new HashMap<>();
+    private final List<TickingChunk> chunkList = new ObjectArrayList<>();
+
+    /**
+     * Queues a block to be ticked from the next tick on.
+     *
+     * @param location  the location of the block
+     * @param blockData the data of the block
+     */
+    public void add(@NotNull Location location, @NotNull IRBlockData blockData) {
+        pendingChanges.add(index -> index.add0(location, blockData));
+    }
+
+    /**
+     * Queues a block to no longer be ticked.
+     *
+     * @param location the location of the block
+     */
+    public void remove(@NotNull Location location) {
+        pendingChanges.add(index -> index.remove0(location));
+    }
+
+    /**
+     * Queues the ticking blocks of a chunk to be resumed or paused.
+     *
+     * @param world  the world of the chunk
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @param loaded whether the chunk has been loaded or unloaded
+     */
+    public void setChunkLoaded(@NotNull World world, int chunkX, int chunkZ, boolean loaded) {
+        long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+        pendingChanges.add(index -> {
+            Long2ObjectMap<TickingChunk> worldChunks = index.chunks.get(world);
+            if (worldChunks == null) {
+                return;
+            }
+
+            TickingChunk chunk = worldChunks.get(chunkKey);
+            if (chunk != null) {
+                chunk.loaded = loaded;
+            }
+        });
+    }
+
+    /**
+     * Applies all queued changes. Must only be called by the ticker thread,
+     * never while a tick is in progress.
+     */
+    void applyChanges() {
+        Consumer<TickingIndex> change;
+        while ((change = pendingChanges.poll()) != null) {
+            change.accept(this);
+        }
+    }
+
+    /**
+     * Gets the chunks containing ticking blocks. Must only be called by the ticker thread.
+     *
+     * @return the chunks containing ticking blocks
+     */
+    @NotNull
+    List<TickingChunk> getChunks() {
+        return chunkList;
+    }
+
+    /**
+     * Gets the amount of ticking blocks, including the ones in unloaded chunks.
+     *
+     * @return the amount of ticking blocks
+     */
+    public int size() {
+        return blocks.size();
+    }
+
+    private void add0(Location location, IRBlockData blockData) {
+        remove0(location);
+
+        IndustrialRevivalItem item = IndustrialRevivalItem.getById(blockData.getId());
+        if (item == null) {
+            return;
+        }
+
+        BlockTicker ticker = item.getItemHandler(BlockTicker.class);
+        if (ticker == null) {
+            return;
+        }
+
+        World world = location.getWorld();
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+        TickingChunk chunk = chunks.computeIfAbsent(world, _ -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(Chunk.getChunkKey(chunkX, chunkZ), _ -> {
+                    TickingChunk newChunk = new TickingChunk(location, world.isChunkLoaded(chunkX, chunkZ));
+                    chunkList.add(newChunk);
+                    return newChunk;
+                });
+
+        TickingBlock block = new TickingBlock(location, blockData, item, ticker, chunk);
+        chunk.add(block);
+        blocks.put(location, block);
+    }
+
+    private void remove0(Location location) {
+        TickingBlock block = blocks.remove(location);
+        if (block == null) {
+            return;
+        }
+
+        TickingChunk chunk = block.chunk;
+        chunk.remove(block);
+        if (chunk.isEmpty()) {
+            Long2ObjectMap<TickingChunk> worldChunks = chunks.get(location.getWorld());
+            worldChunks.remove(Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+            if (worldChunks.isEmpty()) {
+                chunks.remove(location.getWorld());
+            }
+            chunkList.remove(chunk);
+        }
+    }
+
+    /**
+     * A placed block with its item and ticker resolved.
+     */
+    @Getter
+    static final class TickingBlock {
+        private final Location location;
+        private final IRBlockData blockData;
+        private final IndustrialRevivalItem item;
+        private final BlockTicker ticker;
+        private final TickingChunk chunk;
+        private final boolean synchronizedTicker;
+        private int slot;
+        /**
+         * The accumulator slot of the item in the profiler, -1 until the block is first profiled.
+         */
+        private int profilerSlot = -1;
+        /**
+         * The time of the last profiled tick in nanoseconds, -1 once it has been collected.
+         */
+        private long sample = -1;
+        /**
+         * The time of all profiled ticks since the last summary in nanoseconds.
+         */
+        private long sampledTime;
+
+        private TickingBlock(Location location, IRBlockData blockData, IndustrialRevivalItem item, BlockTicker ticker, TickingChunk chunk) {
+            this.location = location;
+            this.blockData = blockData;
+            this.item = item;
+            this.ticker = ticker;
+            this.chunk = chunk;
+            this.synchronizedTicker = ticker.isSynchronized();
+        }
+
+        void setProfilerSlot(int profilerSlot) {
+            this.profilerSlot = profilerSlot;
+        }
+
+        /**
+         * Records the time of a profiled tick, called by the thread ticking the block.
+         */
+        void sample(long nanos) {
+            sample = nanos;
+        }
+
+        /**
+         * Moves the time of the last profiled tick into the sampled time.
+         *
+         * @return the time of the last profiled tick, or -1 if the block was not profiled
+         */
+        long collectSample() {
+            long nanos = sample;
+            if (nanos >= 0) {
+                sample = -1;
+                sampledTime += nanos;
+            }
+            return nanos;
+        }
+
+        /**
+         * Gets and clears the time of all profiled ticks since the last summary.
+         */
+        long takeSampledTime() {
+            long time = sampledTime;
+            sampledTime = 0;
+            return time;
+        }
+    }
+
+    /**
+     * The ticking blocks of a single chunk, split by whether they have to be ticked
+     * on the thread owning the chunk. Blocks are kept in compact arrays and removed
+     * by swapping the last block into the freed slot.
+     */
+    static final class TickingChunk {
+        private static final TickingBlock[] EMPTY = new TickingBlock[0];
+        /**
+         * Any location inside the chunk, used to find the owning region.
+         */
+        @Getter
+        private final Location anchor;
+        @Getter
+        private boolean loaded;
+        /**
+         * The timings of the chunk, created when the chunk is first profiled.
+         */
+        private TimingAccumulator timings;
+        private TickingBlock[] asynchronous = EMPTY;
+        private int asynchronousSize;
+        private TickingBlock[] synchronous = EMPTY;
+        private int synchronousSize;
+
+        private TickingChunk(Location anchor, boolean loaded) {
+            this.anchor = anchor;
+            this.loaded = loaded;
+        }
+
+        int asynchronousSize() {
+            return asynchronousSize;
+        }
+
+        TickingBlock asynchronous(int slot) {
+            return asynchronous[slot];
+        }
+
+        int synchronousSize() {
+            return synchronousSize;
+        }
+
+        TickingBlock synchronous(int slot) {
+            return synchronous[slot];
+        }
+
+        boolean isEmpty() {
+            return asynchronousSize == 0 && synchronousSize == 0;
+        }
+
+        TimingAccumulator getTimings() {
+            if (timings == null) {
+                timings = new TimingAccumulator(1);
+            }
+            return timings;
+        }
+
+        boolean hasTimings() {
+            return timings != null;
+        }
+
+        private void add(TickingBlock block) {
+            if (block.synchronizedTicker) {
+                if (synchronousSize == synchronous.length) {
+                    synchronous = Arrays.copyOf(synchronous, Math.max(4, synchronousSize * 2));
+                }
+                block.slot = synchronousSize;
+                synchronous[synchronousSize++] = block;
+            } else {
+                if (asynchronousSize == asynchronous.length) {
+                    asynchronous = Arrays.copyOf(asynchronous, Math.max(4, asynchronousSize * 2));
+                }
+                block.slot = asynchronousSize;
+                asynchronous[asynchronousSize++] = block;
+            }
+        }
+
+        private void remove(TickingBlock block) {
+            if (block.synchronizedTicker) {
+                TickingBlock last = synchronous[--synchronousSize];
+                synchronous[block.slot] = last;
+                last.slot = block.slot;
+                synchronous[synchronousSize] = null;
+            } else {
+                TickingBlock last = asynchronous[--asynchronousSize];
+                asynchronous[block.slot] = last;
+                last.slot = block.slot;
+                asynchronous[asynchronousSize] = null;
+            }
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.irmc.industrialrevival.implementation.items.IndustrialRevivalItemSetu
 import org.irmc.industrialrevival.utils.Constants;
 import org.irmc.industrialrevival.utils.WorldUtil;
 import org.irmc.industrialrevival.api.enums.Language;
+import org.irmc.industrialrevival.api.pipe.PipeRecorder;
 import org.irmc.industrialrevival.utils.ConfigFileUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -155,6 +156,7 @@ public final class IndustrialRevival extends JavaPlugin implements IIndustrialRe
         getLogger().info("Setting up listeners...");
         listenerManager = new ListenerManager();
         listenerManager.registerListener(new BulkDensityListener());
+        listenerManager.registerListener(new ChunkListener());
         listenerManager.registerListener(new DefaultHandler());
         listenerManager.registerListener(new DropListener());
         listenerManager.registerListener(new EventCreator());
@@ -203,6 +205,7 @@ public final class IndustrialRevival extends JavaPlugin implements IIndustrialRe
 
     private void setupServices() {
         irDataManager = new IRDataManager();
+        PipeRecorder.load();
         itemDataService = new ItemDataService();
         runningProfilerService = new RunningProfilerService();
         languageTextService = new LanguageTextService();
@@ -226,6 +229,12 @@ public final class IndustrialRevival extends JavaPlugin implements IIndustrialRe
         int deEnderDragonCheckRadius = getConfig().getInt("options.anti-ender-dragon-check.radius", 20);
         foliaLibImpl.getScheduler().runTimerAsync(new AnitEnderDragonTask(deEnderDragonCheckRadius), deEnderDragonCheckInterval, deEnderDragonCheckInterval);
         foliaLibImpl.getScheduler().runAsync(new PostSetupTask());
+        int autoSaveInterval = getConfig().getInt("options.auto-save-interval", 6000);
+        foliaLibImpl.getScheduler().runTimerAsync(_ -> {
+            // encoded on the ticker thread while no block is ticked, so the tickers do not change the data meanwhile
+            IndustrialRevival.getInstance().getRunningProfilerService().getTask().runBetweenTicks(irDataManager::saveModifiedData);
+            PipeRecorder.save();
+        }, autoSaveInterval, autoSaveInterval);
     }
 
     private void setupProtocolLib() {
@@ -236,8 +245,13 @@ public final class IndustrialRevival extends JavaPlugin implements IIndustrialRe
     public void onDisable() {
         itemSettings.saveSettings();
 
+        if (runningProfilerService != null) {
+            runningProfilerService.getTask().shutdown();
+        }
+
         if (irDataManager != null) {
             irDataManager.saveAllData();
+            PipeRecorder.save();
         }
 
         if (sqlDataManager != null) {
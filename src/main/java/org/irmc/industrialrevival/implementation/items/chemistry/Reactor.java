@@ -277,9 +277,7 @@ public abstract class Reactor extends BasicMachine implements CompoundContainerH
     }
 
     public void updateMenu(MachineMenu menu, @Nullable List<ReactOperation> operations) {
-        if (menu.hasViewer()) {
-            menu.setItem(getStatusSlot(), getStatusIcon(menu.getLocation(), operations));
-        }
+        menu.setDisplayItem(getStatusSlot(), () -> getStatusIcon(menu.getLocation(), operations));
     }
 
     public int getStatusSlot() {
@@ -28,6 +28,11 @@ public class Container extends IndustrialRevivalItem {
                     return new int[]{27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50, 51, 52, 53};
                 }
             }
+
+            @Override
+            public boolean hasItemIndependentSlots() {
+                return true;
+            }
         };
     }
 }
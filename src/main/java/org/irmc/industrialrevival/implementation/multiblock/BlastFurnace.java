@@ -217,7 +217,7 @@ public class BlastFurnace extends MultiBlock implements ProcessorHolder<MachineO
                         fuels.put(location, getBurnTime(fuel.getType()));
                     } else {
                         // no enough fuel
-                        menu.setItem(getStatusSlot(), ICON_NO_ENOUGH_FUEL);
+                        menu.setDisplayItem(getStatusSlot(), () -> ICON_NO_ENOUGH_FUEL);
                     }
                 }
             }
@@ -241,7 +241,7 @@ public class BlastFurnace extends MultiBlock implements ProcessorHolder<MachineO
                 inputMap.put(itemStack, inputMap.getOrDefault(itemStack, 0) + 1);
             }
         }
-        MachineRecipe recipe = recipes.findNextRecipe(inputMap);
+        MachineRecipe recipe = recipes.findNextRecipe(menu.getLocation(), inputMap);
         if (recipe != null) {
             return new MachineOperation(recipe);
         }
@@ -277,14 +277,8 @@ public class BlastFurnace extends MultiBlock implements ProcessorHolder<MachineO
     }
 
     public void updateStatus(MachineMenu menu, Location location) {
-        if (menu.hasViewer()) {
-            MachineOperation operation = processor.getProcess(location);
-            if (operation == null) {
-                menu.setItem(getStatusSlot(), HALTED);
-            } else {
-                menu.setItem(getStatusSlot(), MenuUtil.getProgressBar(PROGRESS_BAR_MATERIAL, operation));
-            }
-        }
+        MachineOperation operation = processor.getProcess(location);
+        menu.setDisplayItem(getStatusSlot(), () -> operation == null ? HALTED : MenuUtil.getProgressBar(PROGRESS_BAR_MATERIAL, operation));
     }
 
     public int getStatusSlot() {
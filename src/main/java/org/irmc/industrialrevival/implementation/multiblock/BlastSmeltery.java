@@ -248,7 +248,7 @@ public class BlastSmeltery extends MultiBlock implements ExtraTickable {
         clone.setItemMeta(meta);
 
         for (int slot : getStorageSlots()) {
-            menu.setItem(slot, clone.clone());
+            menu.updateItem(slot, clone);
         }
 
         int fuels = smeltery.getTank().getFuels();
@@ -0,0 +1,313 @@
+package org.irmc.industrialrevival.implementation.services;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * The block data of all placed blocks, grouped by world and chunk and keyed by
+ * {@link Block#getBlockKey(int, int, int) packed block coordinates}.
+ * <p>
+ * Every chunk with blocks keeps a bitmap of the 16 blocks high sections holding them,
+ * so a lookup in a chunk or section without any block is answered by one chunk lookup
+ * and a bit test, without allocating a {@link Location} or hashing one.
+ * The section bitmap has 64 bits and wraps around in worlds more than 1024 blocks high,
+ * which can only make a section look occupied.
+ * </p>
+ * <p>
+ * Blocks are placed and broken on region threads and looked up from the parallel tickers, so lookups
+ * usually do not lock: the chunks of a world are kept in a concurrent map, and the blocks of a chunk are
+ * read optimistically, only falling back to its read lock if a change happened meanwhile.
+ * Changes are made in place, while holding the entry of the chunk in the map of its world,
+ * so only changes to the same chunk wait for each other and an emptied chunk can be removed safely.
+ * Iterating the index is weakly consistent.
+ * </p>
+ *
+ * @see IRDataManager
+ */
+final class BlockDataIndex {
+    private final Map<World, Map<Long, ChunkBlocks>> worlds = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Adds the block data of a block, replacing the previous block data at its location.
+     *
+     * @param blockData the block data
+     * @return the replaced block data, or null if there was none
+     */
+    @Nullable
+    IRBlockData put(@NotNull IRBlockData blockData) {
+        return put(blockData, true);
+    }
+
+    /**
+     * Adds the block data of a block, unless there is block data at its location already.
+     *
+     * @param blockData the block data
+     * @return the block data at the location, or null if the block data has been added
+     */
+    @Nullable
+    IRBlockData putIfAbsent(@NotNull IRBlockData blockData) {
+        return put(blockData, false);
+    }
+
+    @Nullable
+    private IRBlockData put(IRBlockData blockData, boolean replace) {
+        Location location = blockData.getLocation();
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        long blockKey = Block.getBlockKey(x, y, z);
+        IRBlockData[] previous = new IRBlockData[1];
+        worlds.computeIfAbsent(world, _ -> new ConcurrentHashMap<>())
+                .compute(Chunk.getChunkKey(x >> 4, z >> 4), (_, chunk) -> {
+                    if (chunk == null) {
+                        chunk = new ChunkBlocks();
+                    }
+                    previous[0] = chunk.put(blockKey, y, blockData, replace);
+                    return chunk;
+                });
+
+        if (previous[0] == null) {
+            size.incrementAndGet();
+        }
+        return previous[0];
+    }
+
+    /**
+     * Removes the block data of a block.
+     *
+     * @param location the location of the block
+     * @return the removed block data, or null if there was none
+     */
+    @Nullable
+    IRBlockData remove(@NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        Map<Long, ChunkBlocks> worldChunks = worlds.get(world);
+        if (worldChunks == null) {
+            return null;
+        }
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        long blockKey = Block.getBlockKey(x, y, z);
+        IRBlockData[] removed = new IRBlockData[1];
+        // an empty chunk is removed, the map of the world is kept
+        worldChunks.computeIfPresent(Chunk.getChunkKey(x >> 4, z >> 4), (_, chunk) -> {
+            removed[0] = chunk.remove(blockKey, y);
+            return chunk.isEmpty() ? null : chunk;
+        });
+
+        if (removed[0] != null) {
+            size.decrementAndGet();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Gets the block data of a block.
+     *
+     * @param world the world of the block
+     * @param x     the x coordinate of the block
+     * @param y     the y coordinate of the block
+     * @param z     the z coordinate of the block
+     * @return the block data, or null if there is no block
+     */
+    @Nullable
+    IRBlockData get(@NotNull World world, int x, int y, int z) {
+        ChunkBlocks chunk = getChunk(world, x >> 4, z >> 4);
+        if (chunk == null || !chunk.hasSection(y)) {
+            return null;
+        }
+
+        return chunk.get(Block.getBlockKey(x, y, z));
+    }
+
+    /**
+     * Checks whether a chunk has any block.
+     *
+     * @param world  the world of the chunk
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @return true if the chunk has a block
+     */
+    boolean hasBlocks(@NotNull World world, int chunkX, int chunkZ) {
+        return getChunk(world, chunkX, chunkZ) != null;
+    }
+
+    /**
+     * Gets the block data of all blocks in a chunk.
+     *
+     * @param world  the world of the chunk
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @return a new list of the block data
+     */
+    @NotNull
+    List<IRBlockData> getInChunk(@NotNull World world, int chunkX, int chunkZ) {
+        ChunkBlocks chunk = getChunk(world, chunkX, chunkZ);
+        if (chunk == null) {
+            return List.of();
+        }
+
+        return chunk.values();
+    }
+
+    /**
+     * Gets the block data of all blocks.
+     *
+     * @return a new list of the block data
+     */
+    @NotNull
+    List<IRBlockData> values() {
+        List<IRBlockData> values = new ArrayList<>(size());
+        forEach(values::add);
+        return values;
+    }
+
+    /**
+     * Performs an action for the block data of every block.
+     *
+     * @param action the action
+     */
+    void forEach(@NotNull Consumer<IRBlockData> action) {
+        for (Map<Long, ChunkBlocks> worldChunks : worlds.values()) {
+            for (ChunkBlocks chunk : worldChunks.values()) {
+                // copied first, the action may change the chunk
+                chunk.values().forEach(action);
+            }
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    void clear() {
+        worlds.clear();
+        size.set(0);
+    }
+
+    @Nullable
+    private ChunkBlocks getChunk(World world, int chunkX, int chunkZ) {
+        Map<Long, ChunkBlocks> worldChunks = worlds.get(world);
+        return worldChunks == null ? null : worldChunks.get(Chunk.getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * The blocks of a chunk. Changed only while holding the entry of the chunk in the map of its world,
+     * and under the write lock of the chunk, so the lookups can read it optimistically.
+     */
+    private static final class ChunkBlocks {
+        private final StampedLock lock = new StampedLock();
+        private final Long2ObjectMap<IRBlockData> blocks = new Long2ObjectOpenHashMap<>();
+        private final int[] sectionCounts = new int[Long.SIZE];
+        private volatile long sections;
+
+        private static int section(int y) {
+            return (y >> 4) & (Long.SIZE - 1);
+        }
+
+        boolean hasSection(int y) {
+            return (sections & 1L << section(y)) != 0;
+        }
+
+        @Nullable
+        IRBlockData get(long blockKey) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    IRBlockData blockData = blocks.get(blockKey);
+                    if (lock.validate(stamp)) {
+                        return blockData;
+                    }
+                } catch (RuntimeException _) {
+                    // read while the map was resized, read again under the lock
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return blocks.get(blockKey);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        List<IRBlockData> values() {
+            long stamp = lock.readLock();
+            try {
+                return new ArrayList<>(blocks.values());
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Nullable
+        IRBlockData put(long blockKey, int y, IRBlockData blockData, boolean replace) {
+            long stamp = lock.writeLock();
+            try {
+                IRBlockData previous = blocks.get(blockKey);
+                if (previous == null) {
+                    blocks.put(blockKey, blockData);
+                    int section = section(y);
+                    sectionCounts[section]++;
+                    sections |= 1L << section;
+                } else if (replace) {
+                    blocks.put(blockKey, blockData);
+                }
+                return previous;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Nullable
+        IRBlockData remove(long blockKey, int y) {
+            long stamp = lock.writeLock();
+            try {
+                IRBlockData removed = blocks.remove(blockKey);
+                if (removed != null) {
+                    int section = section(y);
+                    if (--sectionCounts[section] == 0) {
+                        sections &= ~(1L << section);
+                    }
+                }
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Only called while holding the entry of the chunk, so it cannot change meanwhile.
+         */
+        boolean isEmpty() {
+            return blocks.isEmpty();
+        }
+    }
+}
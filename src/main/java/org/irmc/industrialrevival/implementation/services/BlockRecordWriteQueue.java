@@ -0,0 +1,343 @@
+package org.irmc.industrialrevival.implementation.services;
+
+import org.bukkit.Location;
+import org.irmc.industrialrevival.api.data.sql.BlockRecord;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind queue for block records.
+ * <p>
+ * Saves and deletes are coalesced by block position, so a block changed many times between
+ * two flushes is written only once, and are written in batches by a dedicated I/O thread.
+ * The queue is bounded: when it is full, callers wait until the I/O thread catches up.
+ * A batch which fails to be written is queued again, unless a newer write of the same block
+ * has been queued meanwhile, and retried after a delay.
+ * {@link #shutdown()} writes everything still pending before returning.
+ * </p>
+ *
+ * @see SQLDataManager
+ */
+class BlockRecordWriteQueue {
+    private static final long MAX_BACK_PRESSURE_WAIT_MILLIS = 5000;
+    private static final long MAX_FLUSH_WAIT_MILLIS = 30000;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+
+    private final Map<BlockKey, PendingWrite> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Writer writer;
+    private final Logger logger;
+    private final int maxPending;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private int writing;
+    private boolean flushRequested;
+
+    /**
+     * @param writer              writes a batch of records all or nothing, called on the I/O thread unless shutting down
+     * @param maxPending          the amount of pending writes after which callers have to wait
+     * @param batchSize           the maximum amount of writes handed to the writer at once
+     * @param flushIntervalMillis how long writes are held back to be coalesced
+     */
+    BlockRecordWriteQueue(@NotNull Writer writer, @NotNull Logger logger, int maxPending, int batchSize, long flushIntervalMillis) {
+        this.writer = writer;
+        this.logger = logger;
+        this.maxPending = Math.max(1, maxPending);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(0, flushIntervalMillis);
+        this.thread = new Thread(this::run, "IndustrialRevival-Storage");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a block record to be saved, replacing any pending write of the same block.
+     *
+     * @param record the record to save
+     */
+    void save(@NotNull BlockRecord record) {
+        enqueue(BlockKey.of(record), new PendingWrite(BlockKey.of(record), record));
+    }
+
+    /**
+     * Queues a block record to be deleted, replacing any pending write of the same block.
+     *
+     * @param location the location of the block
+     */
+    void delete(@NotNull Location location) {
+        BlockKey key = BlockKey.of(location);
+        enqueue(key, new PendingWrite(key, null));
+    }
+
+    /**
+     * Gets the pending write of a block, so reads can see writes that have not reached the database yet.
+     *
+     * @param location the location of the block
+     * @return the pending write, or null if there is none
+     */
+    @Nullable
+    PendingWrite getPending(@NotNull Location location) {
+        lock.lock();
+        try {
+            return pending.get(BlockKey.of(location));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every write queued so far has reached the database,
+     * or gives up after a while if the database keeps failing.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            flushRequested = true;
+            notEmpty.signal();
+            batchReady.signal();
+            long deadline = System.currentTimeMillis() + MAX_FLUSH_WAIT_MILLIS;
+            while (!pending.isEmpty() || writing > 0) {
+                if (!thread.isAlive()) {
+                    writeAll();
+                    return;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    logger.warning("Timed out waiting for " + pending.size() + " block records to be written");
+                    return;
+                }
+                flushed.await(remaining, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the I/O thread and writes everything still pending.
+     */
+    void shutdown() {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signal();
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the thread is gone (or stuck), make sure nothing is lost
+        lock.lock();
+        try {
+            writeAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(BlockKey key, PendingWrite write) {
+        lock.lock();
+        try {
+            if (!running) {
+                // shutting down, write through
+                write(List.of(write));
+                return;
+            }
+
+            if (!pending.containsKey(key)) {
+                long deadline = System.currentTimeMillis() + MAX_BACK_PRESSURE_WAIT_MILLIS;
+                while (pending.size() >= maxPending && thread.isAlive()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        logger.warning("Block data write queue is full, the database cannot keep up");
+                        break;
+                    }
+                    notFull.await(remaining, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            // remove first so the block moves to the end of the queue
+            pending.remove(key);
+            pending.put(key, write);
+            if (pending.size() == 1) {
+                notEmpty.signal();
+            } else if (pending.size() >= batchSize) {
+                batchReady.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<PendingWrite> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && running) {
+                    notEmpty.await();
+                }
+                if (!running) {
+                    // shutdown() writes the rest
+                    return;
+                }
+
+                if (pending.size() < batchSize && flushIntervalMillis > 0 && !flushRequested) {
+                    // give the pending writes some time to coalesce
+                    batchReady.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+
+                batch = drain();
+                writing = batch.size();
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            boolean written = write(batch);
+
+            lock.lock();
+            try {
+                writing = 0;
+                if (!written) {
+                    requeue(batch);
+                }
+                if (pending.isEmpty()) {
+                    flushRequested = false;
+                }
+                flushed.signalAll();
+                if (!written && running) {
+                    // give the database some time to recover, shutdown() wakes the thread up
+                    batchReady.await(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes everything pending on the calling thread, must hold the lock.
+     * This is the last attempt, batches which fail are lost.
+     */
+    private void writeAll() {
+        while (!pending.isEmpty()) {
+            List<PendingWrite> batch = drain();
+            if (!write(batch)) {
+                logger.severe("Lost " + batch.size() + " block records which could not be written");
+            }
+        }
+        flushRequested = false;
+        notFull.signalAll();
+        flushed.signalAll();
+    }
+
+    private List<PendingWrite> drain() {
+        List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<PendingWrite> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    /**
+     * Queues the writes of a failed batch again, must hold the lock.
+     */
+    private void requeue(List<PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            // a newer write of the block replaces the failed one
+            pending.putIfAbsent(write.key(), write);
+        }
+    }
+
+    private boolean write(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        try {
+            writer.write(batch);
+            return true;
+        } catch (Throwable e) {
+            logger.log(Level.SEVERE, "Failed to write " + batch.size() + " block records!", e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a batch of block records.
+     */
+    @FunctionalInterface
+    interface Writer {
+        /**
+         * Writes a batch of block records, either all of them or none.
+         *
+         * @param batch the writes, at most one per block
+         * @throws SQLException if the batch could not be written
+         */
+        void write(@NotNull List<PendingWrite> batch) throws SQLException;
+    }
+
+    /**
+     * The position of a block, independent of whether its world is loaded.
+     */
+    record BlockKey(String world, int x, int y, int z) {
+        static BlockKey of(BlockRecord record) {
+            Location location = record.getLocation();
+            return new BlockKey(record.getWorldName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        }
+
+        static BlockKey of(Location location) {
+            return new BlockKey(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        }
+    }
+
+    /**
+     * A pending write of a block.
+     *
+     * @param key    the position of the block
+     * @param record the record to save, or null if the block has to be deleted
+     */
+    record PendingWrite(BlockKey key, @Nullable BlockRecord record) {
+        boolean isDelete() {
+            return record == null;
+        }
+    }
+}
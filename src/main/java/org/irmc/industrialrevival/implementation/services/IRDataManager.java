@@ -2,16 +2,22 @@ package org.irmc.industrialrevival.implementation.services;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
+import org.irmc.industrialrevival.api.machines.AbstractMachine;
 import org.irmc.industrialrevival.api.menu.MachineMenu;
 import org.irmc.industrialrevival.api.menu.MachineMenuPreset;
 import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.data.runtime.TrackedYamlConfiguration;
 import org.irmc.industrialrevival.api.data.sql.BlockRecord;
 import org.irmc.industrialrevival.api.player.PlayerProfile;
+import org.irmc.industrialrevival.core.energy.EnergyNetManager;
 import org.irmc.industrialrevival.core.services.IIRDataManager;
+import org.irmc.industrialrevival.core.task.TickingIndex;
 
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
 import org.irmc.industrialrevival.utils.Debug;
@@ -19,14 +25,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 public class IRDataManager implements IIRDataManager {
-    private final Map<Location, IRBlockData> blockDataMap;
+    private final BlockDataIndex blockDataIndex = new BlockDataIndex();
     private final Map<String, PlayerProfile> playerProfileMap; // id -> profile
+    private final TickingIndex tickingIndex = new TickingIndex();
+    private final EnergyNetManager energyNetManager = new EnergyNetManager();
+    // worlds which were not loaded when the block data was loaded -> chunks whose block data has been loaded since
+    private final Map<String, Set<Long>> lateWorldChunks = new ConcurrentHashMap<>();
 
     public IRDataManager() {
-        this.blockDataMap = new HashMap<>();
-        this.playerProfileMap = new HashMap<>();
+        this.playerProfileMap = new ConcurrentHashMap<>();
 
         loadData();
     }
@@ -38,17 +49,89 @@ public class IRDataManager implements IIRDataManager {
         for (BlockRecord record : records) {
             Location loc = record.getLocation();
 
-            blockDataMap.put(loc, IRBlockData.warp(record));
+            if (loc.getWorld() == null) {
+                // the world is not loaded, its blocks are loaded with their chunks
+                lateWorldChunks.computeIfAbsent(record.getWorldName(), _ -> ConcurrentHashMap.newKeySet());
+                continue;
+            }
+
+            loadRecord(record);
         }
     }
 
+    private void loadRecord(BlockRecord record) {
+        Location loc = record.getLocation();
+        IRBlockData blockData;
+        try {
+            blockData = IRBlockData.warp(record);
+        } catch (IllegalArgumentException e) {
+            // corrupted, or saved by a newer version: skip the block but keep its record as it is
+            IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Skipped loading the block at " + loc + ", its data cannot be decoded", e);
+            return;
+        }
+
+        if (blockDataIndex.putIfAbsent(blockData) != null) {
+            // placed meanwhile
+            return;
+        }
+
+        tickingIndex.add(loc, blockData);
+        energyNetManager.add(loc, blockData);
+
+        if (record.isChunkKeyMissing() || record.isLegacyData()) {
+            // saved before chunk coordinates or the binary format existed, migrate on the next save
+            blockData.markDirty();
+        }
+    }
+
+    @Override
+    public void loadChunkData(@NotNull Chunk chunk) {
+        Set<Long> loadedChunks = lateWorldChunks.get(chunk.getWorld().getName());
+        if (loadedChunks == null || !loadedChunks.add(chunk.getChunkKey())) {
+            return;
+        }
+
+        String world = chunk.getWorld().getName();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        Location anchor = new Location(chunk.getWorld(), chunkX << 4, 0, chunkZ << 4);
+        IndustrialRevival.getInstance().getFoliaLibImpl().getScheduler().runAsync(_ -> {
+            List<BlockRecord> records = IndustrialRevival.getInstance().getSQLDataManager().getBlockRecordsInChunk(world, chunkX, chunkZ);
+            if (records.isEmpty()) {
+                return;
+            }
+
+            // the menus of the blocks are created on the thread owning the chunk
+            IndustrialRevival.getInstance().getFoliaLibImpl().getScheduler().runAtLocation(anchor, _ -> {
+                for (BlockRecord record : records) {
+                    loadRecord(record);
+                }
+            });
+        });
+    }
+
     public IRBlockData getBlockData(Location location) {
-        return blockDataMap.get(location);
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        return blockDataIndex.get(world, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    @Override
+    public @Nullable IRBlockData getBlockData(@NotNull World world, int x, int y, int z) {
+        return blockDataIndex.get(world, x, y, z);
+    }
+
+    @Override
+    public boolean hasBlockDataInChunk(@NotNull World world, int chunkX, int chunkZ) {
+        return blockDataIndex.hasBlocks(world, chunkX, chunkZ);
     }
 
     public void placeBlock(Location loc, NamespacedKey machineId) {
         Debug.log("handleBlockPlacing");
-        YamlConfiguration configuration = new YamlConfiguration();
+        TrackedYamlConfiguration configuration = new TrackedYamlConfiguration();
         MachineMenuPreset preset = IndustrialRevival.getInstance().getRegistry().getMenuPresets().get(machineId);
 
         MachineMenu menu = null;
@@ -58,35 +141,107 @@ public class IRDataManager implements IIRDataManager {
         }
 
         IRBlockData blockData = new IRBlockData(machineId, loc, configuration, menu);
-        blockDataMap.put(loc, blockData);
+        // a new block has never been saved
+        blockData.markDirty();
+        blockDataIndex.put(blockData);
+        tickingIndex.add(loc, blockData);
+        energyNetManager.add(loc, blockData);
+    }
+
+    @Override
+    public void setBlockData(@NotNull IRBlockData blockData) {
+        Location loc = blockData.getLocation();
+        blockData.markDirty();
+        IRBlockData previous = blockDataIndex.put(blockData);
+        if (previous != null) {
+            tickingIndex.remove(loc);
+            energyNetManager.remove(loc);
+        }
+        tickingIndex.add(loc, blockData);
+        energyNetManager.add(loc, blockData);
     }
 
     @CanIgnoreReturnValue
     public IRBlockData breakBlock(Location loc) {
-        return blockDataMap.remove(loc);
+        tickingIndex.remove(loc);
+        energyNetManager.remove(loc);
+        IRBlockData removed = blockDataIndex.remove(loc);
+        if (removed != null && IndustrialRevivalItem.getById(removed.getId()) instanceof AbstractMachine machine) {
+            machine.onBlockRemoved(loc);
+        }
+        return removed;
+    }
+
+    @Override
+    public @NotNull List<IRBlockData> getBlockDataInChunk(@NotNull World world, int chunkX, int chunkZ) {
+        return blockDataIndex.getInChunk(world, chunkX, chunkZ);
     }
 
     public void saveAllData() {
-        Debug.log("blockDataMap: " + blockDataMap.size());
-        for (IRBlockData data : blockDataMap.values()) {
-            BlockRecord blockRecord = BlockRecord.warp(data);
+        Debug.log("blockDataIndex: " + blockDataIndex.size());
+        saveModifiedData();
+        blockDataIndex.clear();
 
-            IndustrialRevival.getInstance().getSQLDataManager().saveBlockRecord(blockRecord);
+        for (PlayerProfile profile : playerProfileMap.values()) {
+            try {
+                profile.save();
+            } catch (RuntimeException e) {
+                IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Failed to save player profile of " + profile.getPlayerName(), e);
+            }
         }
-        blockDataMap.clear();
+    }
+
+    @Override
+    public int saveModifiedData() {
+        int saved = 0;
+        // a snapshot, blocks placed while saving are saved next time
+        for (IRBlockData data : blockDataIndex.values()) {
+            // cleared before serializing, so a change made meanwhile is saved next time
+            if (!data.clearDirty()) {
+                continue;
+            }
+
+            try {
+                IndustrialRevival.getInstance().getSQLDataManager().saveBlockRecord(BlockRecord.warp(data));
+                saved++;
+            } catch (RuntimeException e) {
+                data.markDirty();
+                IndustrialRevival.getInstance().getLogger().log(Level.SEVERE, "Failed to save block data at " + data.getLocation(), e);
+            }
+        }
+
+        Debug.log("saved modified block data: " + saved);
+        return saved;
     }
 
     @Override
     public void saveBlock(@NotNull Location location) {
-        IRBlockData data = blockDataMap.get(location);
+        IRBlockData data = getBlockData(location);
         if (data == null) return;
-        BlockRecord blockRecord = BlockRecord.warp(data);
+        // cleared before serializing, so a change made meanwhile is saved next time
+        data.clearDirty();
+        try {
+            IndustrialRevival.getInstance().getSQLDataManager().saveBlockRecord(BlockRecord.warp(data));
+        } catch (RuntimeException e) {
+            data.markDirty();
+            throw e;
+        }
+    }
+
+    public @NotNull Map<Location, IRBlockData> getBlockDataMap() {
+        Map<Location, IRBlockData> map = new HashMap<>(blockDataIndex.size());
+        blockDataIndex.forEach(data -> map.put(data.getLocation(), data));
+        return Collections.unmodifiableMap(map);
+    }
 
-        IndustrialRevival.getInstance().getSQLDataManager().saveBlockRecord(blockRecord);
+    @Override
+    public @NotNull TickingIndex getTickingIndex() {
+        return tickingIndex;
     }
 
-    public Map<Location, IRBlockData> getBlockDataMap() {
-        return new HashMap<>(blockDataMap);
+    @Override
+    public @NotNull EnergyNetManager getEnergyNetManager() {
+        return energyNetManager;
     }
 
     @Override
@@ -99,6 +254,17 @@ public class IRDataManager implements IIRDataManager {
         return playerProfileMap.values();
     }
 
+    @Override
+    public @NotNull PlayerProfile addPlayerProfile(@NotNull PlayerProfile profile) {
+        PlayerProfile cached = playerProfileMap.putIfAbsent(profile.getPlayerName(), profile);
+        return cached == null ? profile : cached;
+    }
+
+    @Override
+    public boolean removePlayerProfile(@NotNull PlayerProfile profile) {
+        return playerProfileMap.remove(profile.getPlayerName(), profile);
+    }
+
     @Override
     public @Nullable PlayerProfile getPlayerProfile(@NotNull String playerName) {
         return playerProfileMap.get(playerName);
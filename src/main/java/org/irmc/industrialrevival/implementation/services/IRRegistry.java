@@ -7,6 +7,7 @@ import org.bukkit.inventory.ItemStack;
 import org.irmc.industrialrevival.api.elements.compounds.ChemicalCompound;
 import org.irmc.industrialrevival.api.elements.compounds.ChemicalFormula;
 import org.irmc.industrialrevival.api.elements.melt.MeltedType;
+import org.irmc.industrialrevival.api.elements.reaction.ReactHelper;
 import org.irmc.industrialrevival.api.elements.tinker.TinkerType;
 import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
 import org.irmc.industrialrevival.api.items.attributes.BlockDropItem;
@@ -16,6 +17,9 @@ import org.irmc.industrialrevival.api.items.collection.ItemDictionary;
 import org.irmc.industrialrevival.api.items.groups.ItemGroup;
 import org.irmc.industrialrevival.api.menu.MachineMenuPreset;
 import org.irmc.industrialrevival.api.multiblock.MultiBlock;
+import org.irmc.industrialrevival.api.multiblock.Structure;
+import org.irmc.industrialrevival.api.multiblock.piece.IRBlockStructurePiece;
+import org.irmc.industrialrevival.api.multiblock.piece.MaterialStructurePiece;
 import org.irmc.industrialrevival.api.physics.ContainerType;
 import org.irmc.industrialrevival.api.recipes.RecipeType;
 import org.irmc.industrialrevival.api.recipes.methods.BlockDropMethod;
@@ -23,10 +27,12 @@ import org.irmc.industrialrevival.api.recipes.methods.MobDropMethod;
 import org.irmc.industrialrevival.api.recipes.methods.ProduceMethod;
 import org.irmc.industrialrevival.core.guide.GuideImplementation;
 import org.irmc.industrialrevival.core.guide.GuideMode;
+import org.irmc.industrialrevival.core.guide.GuideSearchIndex;
 import org.irmc.industrialrevival.core.services.IIRRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -46,6 +52,8 @@ public final class IRRegistry implements IIRRegistry {
     private final Map<NamespacedKey, MachineMenuPreset> machineMenuPresets = new ConcurrentHashMap<>();
     private final Map<NamespacedKey, RecipeType> recipeTypes = new ConcurrentHashMap<>();
     private final Map<NamespacedKey, MultiBlock> multiBlocks = new ConcurrentHashMap<>();
+    private final Map<Object, List<MultiBlock>> multiBlocksByCenter = new ConcurrentHashMap<>(); // center material or id -> multiblocks
+    private final List<MultiBlock> multiBlocksWithAnyCenter = new CopyOnWriteArrayList<>();
     private final Set<ProduceMethod> produceMethods = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Map<NamespacedKey, MeltedType> meltTypes = new ConcurrentHashMap<>();
     private final Map<MeltedType, Map<TinkerType, TinkerProduct>> tinkerProducts = new ConcurrentHashMap<>();
@@ -137,17 +145,22 @@ public final class IRRegistry implements IIRRegistry {
     @Override
     public @NotNull IndustrialRevivalItem registerItem(@NotNull IndustrialRevivalItem item) {
         items.put(item.getId(), item);
+        GuideSearchIndex.invalidate();
         return item;
     }
 
     @Override
     public @Nullable IndustrialRevivalItem unregisterItem(@NotNull NamespacedKey key) {
-        return items.remove(key);
+        IndustrialRevivalItem removed = items.remove(key);
+        GuideSearchIndex.invalidate();
+        return removed;
     }
 
     @Override
     public @NotNull IndustrialRevivalItem unregisterItem(@NotNull IndustrialRevivalItem item) {
-        return items.remove(item.getId());
+        IndustrialRevivalItem removed = items.remove(item.getId());
+        GuideSearchIndex.invalidate();
+        return removed;
     }
 
     @Override
@@ -227,20 +240,63 @@ public final class IRRegistry implements IIRRegistry {
         return multiBlocks.get(key);
     }
 
+    @Override
+    public @NotNull List<MultiBlock> getMultiBlockCandidates(@NotNull Material material, @Nullable NamespacedKey id) {
+        List<MultiBlock> byMaterial = multiBlocksByCenter.getOrDefault(material, List.of());
+        List<MultiBlock> byId = id == null ? List.of() : multiBlocksByCenter.getOrDefault(id, List.of());
+        if (byId.isEmpty() && multiBlocksWithAnyCenter.isEmpty()) {
+            return Collections.unmodifiableList(byMaterial);
+        }
+
+        List<MultiBlock> candidates = new ArrayList<>(byMaterial.size() + byId.size() + multiBlocksWithAnyCenter.size());
+        candidates.addAll(byMaterial);
+        candidates.addAll(byId);
+        candidates.addAll(multiBlocksWithAnyCenter);
+        return candidates;
+    }
+
     @Override
     public @NotNull MultiBlock registerMultiBlock(@NotNull MultiBlock multiBlock) {
-        multiBlocks.put(multiBlock.getKey(), multiBlock);
+        MultiBlock previous = multiBlocks.put(multiBlock.getKey(), multiBlock);
+        if (previous != null) {
+            unindexMultiBlock(previous);
+        }
+        indexMultiBlock(multiBlock);
         return multiBlock;
     }
 
     @Override
     public @Nullable MultiBlock unregisterMultiBlock(@NotNull NamespacedKey key) {
-        return multiBlocks.remove(key);
+        MultiBlock multiBlock = multiBlocks.remove(key);
+        if (multiBlock != null) {
+            unindexMultiBlock(multiBlock);
+        }
+        return multiBlock;
     }
 
     @Override
     public @NotNull MultiBlock unregisterMultiBlock(@NotNull MultiBlock multiBlock) {
-        return multiBlocks.remove(multiBlock.getKey());
+        return unregisterMultiBlock(multiBlock.getKey());
+    }
+
+    private void indexMultiBlock(@NotNull MultiBlock multiBlock) {
+        Structure structure = multiBlock.getStructure();
+        if (structure == null) {
+            // cannot be formed
+            return;
+        }
+
+        switch (structure.getCenterPiece()) {
+            case MaterialStructurePiece piece -> multiBlocksByCenter.computeIfAbsent(piece.getMaterial(), _ -> new CopyOnWriteArrayList<>()).add(multiBlock);
+            case IRBlockStructurePiece piece -> multiBlocksByCenter.computeIfAbsent(piece.getItem().getId(), _ -> new CopyOnWriteArrayList<>()).add(multiBlock);
+            default -> multiBlocksWithAnyCenter.add(multiBlock);
+        }
+    }
+
+    private void unindexMultiBlock(@NotNull MultiBlock multiBlock) {
+        multiBlocksByCenter.values().forEach(list -> list.remove(multiBlock));
+        multiBlocksByCenter.values().removeIf(List::isEmpty);
+        multiBlocksWithAnyCenter.remove(multiBlock);
     }
 
     @Override
@@ -407,17 +463,22 @@ public final class IRRegistry implements IIRRegistry {
     @Override
     public @NotNull ChemicalFormula registerChemicalFormula(@NotNull ChemicalFormula formula) {
         chemicalFormulas.put(formula.getId(), formula);
+        ReactHelper.invalidateIndex();
         return formula;
     }
 
     @Override
     public @Nullable ChemicalFormula unregisterChemicalFormula(int id) {
-        return chemicalFormulas.remove(id);
+        ChemicalFormula removed = chemicalFormulas.remove(id);
+        ReactHelper.invalidateIndex();
+        return removed;
     }
 
     @Override
     public @NotNull ChemicalFormula unregisterChemicalFormula(@NotNull ChemicalFormula formula) {
-        return chemicalFormulas.remove(formula.getId());
+        chemicalFormulas.remove(formula.getId());
+        ReactHelper.invalidateIndex();
+        return formula;
     }
 
     @Override
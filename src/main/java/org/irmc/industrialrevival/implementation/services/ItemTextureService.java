@@ -1,38 +1,103 @@
 package org.irmc.industrialrevival.implementation.services;
 
+import com.github.retrooper.packetevents.PacketEvents;
+import com.github.retrooper.packetevents.manager.server.ServerVersion;
+import com.github.retrooper.packetevents.protocol.entity.data.EntityData;
+import com.github.retrooper.packetevents.protocol.entity.data.EntityDataTypes;
+import com.github.retrooper.packetevents.protocol.entity.type.EntityTypes;
+import com.github.retrooper.packetevents.util.Vector3d;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerDestroyEntities;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerEntityMetadata;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerSpawnEntity;
+import io.github.retrooper.packetevents.util.SpigotConversionUtil;
+import io.github.retrooper.packetevents.util.SpigotReflectionUtil;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
-import org.bukkit.entity.ItemDisplay;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
 import org.irmc.industrialrevival.api.data.runtime.IRBlockData;
+import org.irmc.industrialrevival.api.items.IndustrialRevivalItem;
 import org.irmc.industrialrevival.implementation.IndustrialRevival;
 
-
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 
-public class ItemTextureService {
+/**
+ * Shows the models of placed blocks as item displays.
+ * <p>
+ * The displays are virtual: they only exist as packets sent through packetevents, so the server
+ * neither ticks nor saves them. Models are grouped by world and chunk, and every player is only sent
+ * the models of the chunks within their view distance. Models are spawned for a player when their
+ * chunks come into view and destroyed when they leave it. The service has to be registered as a listener
+ * to follow the players.
+ * </p>
+ * <p>
+ * The plugin does not construct the service yet, as it does not declare packetevents as a dependency.
+ * </p>
+ */
+public class ItemTextureService implements Listener {
+    private final int itemDisplayItemIndex;
     private final Map<Material, Integer> customModelDataMap;
-    private final Map<Integer, BlockModel> blockModelMap;
+    // world -> chunk key -> block key -> model
+    private final Map<World, Long2ObjectMap<Long2ObjectMap<BlockModel>>> blockModels;
+    private final Map<UUID, Viewer> viewers;
 
     public ItemTextureService() {
+        itemDisplayItemIndex = getItemDisplayItemIndex(PacketEvents.getAPI().getServerManager().getVersion());
         customModelDataMap = new HashMap<>();
-        blockModelMap = new HashMap<>();
+        blockModels = new HashMap<>();
+        viewers = new HashMap<>();
 
         setup(IndustrialRevival.getInstance()
                 .getDataManager()
                 .getBlockDataMap()
                 .values());
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            updateView(player);
+        }
+    }
+
+    /**
+     * Gets the entity data index of the item of an item display, which moved when the teleport duration
+     * was added to displays in 1.20.2.
+     *
+     * @param version the version of the server
+     * @return the entity data index
+     */
+    private static int getItemDisplayItemIndex(ServerVersion version) {
+        return version.isNewerThanOrEquals(ServerVersion.V_1_20_2) ? 23 : 22;
     }
 
-    private void setup(Collection<IRBlockData> blockData) {
+    private synchronized void setup(Collection<IRBlockData> blockData) {
         for (IRBlockData data : blockData) {
             NamespacedKey id = data.getId();
             IndustrialRevivalItem item = IndustrialRevivalItem.getById(id);
@@ -42,7 +107,9 @@ public class ItemTextureService {
             }
 
             Location location = data.getLocation();
-            blockModelMap.put(location.hashCode(), new BlockModel(location, item.getIcon()));
+            if (location.getWorld() != null) {
+                addModel(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), item.getIcon());
+            }
         }
     }
 
@@ -57,53 +124,201 @@ public class ItemTextureService {
         customModelDataMap.put(material, customModelDataId);
     }
 
-    public void blockPlacing(BlockPlaceEvent e) {
-        Location location = e.getBlockPlaced().getLocation();
-        ItemStack itemStack = e.getItemInHand();
+    public synchronized void blockPlacing(BlockPlaceEvent e) {
+        Block block = e.getBlockPlaced();
+        addModel(block.getWorld(), block.getX(), block.getY(), block.getZ(), e.getItemInHand());
+    }
 
-        blockModelMap.put(location.hashCode(), new BlockModel(location, itemStack));
+    public synchronized void blockBreaking(BlockBreakEvent e) {
+        Block block = e.getBlock();
+        removeModel(block.getWorld(), block.getX(), block.getY(), block.getZ());
     }
 
-    public void blockBreaking(BlockBreakEvent e) {
-        Location location = e.getBlock().getLocation();
-        BlockModel model = blockModelMap.remove(location.hashCode());
-        model.breakBlock();
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent e) {
+        updateView(e.getPlayer());
     }
 
-    private static class BlockModel {
-        private final Material BROKEN_MATERIAL = Material.AIR;
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent e) {
+        if (e.getFrom().getBlockX() >> 4 != e.getTo().getBlockX() >> 4
+                || e.getFrom().getBlockZ() >> 4 != e.getTo().getBlockZ() >> 4) {
+            updateView(e.getPlayer(), e.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent e) {
+        if (e.getFrom().getWorld() == e.getTo().getWorld()) {
+            updateView(e.getPlayer(), e.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent e) {
+        // the client forgets all entities of the previous world
+        forgetView(e.getPlayer().getUniqueId());
+        updateView(e.getPlayer());
+    }
 
-        private final Location loc;
-        private ItemDisplay entity;
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent e) {
+        forgetView(e.getPlayer().getUniqueId());
+        updateView(e.getPlayer(), e.getRespawnLocation());
+    }
 
-        public BlockModel(Location loc, ItemStack item) {
-            this.loc = loc;
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        forgetView(e.getPlayer().getUniqueId());
+    }
+
+    private void updateView(Player player) {
+        updateView(player, player.getLocation());
+    }
 
-            placeBlock(loc, item);
+    /**
+     * Spawns the models of the chunks which came into the view of a player and destroys the models
+     * of the chunks which left it.
+     *
+     * @param player   the player
+     * @param location the location the player is viewing from
+     */
+    private synchronized void updateView(Player player, Location location) {
+        World world = location.getWorld();
+        Viewer viewer = viewers.computeIfAbsent(player.getUniqueId(), _ -> new Viewer());
+        if (viewer.world != world) {
+            // the client has already dropped the models of the previous world
+            viewer.world = world;
+            viewer.shownChunks.clear();
         }
 
-        private void placeBlock(Location loc, ItemStack item) {
-            World world = loc.getWorld();
+        Long2ObjectMap<Long2ObjectMap<BlockModel>> worldModels = blockModels.get(world);
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        int viewDistance = player.getSendViewDistance();
 
-            Location entityLoc = loc.clone().add(0.5, 0.5, 0.5);
+        IntArrayList destroyed = new IntArrayList();
+        LongIterator shown = viewer.shownChunks.iterator();
+        while (shown.hasNext()) {
+            long chunkKey = shown.nextLong();
+            int chunkX = (int) chunkKey;
+            int chunkZ = (int) (chunkKey >> 32);
+            if (Math.abs(chunkX - centerX) > viewDistance || Math.abs(chunkZ - centerZ) > viewDistance) {
+                shown.remove();
+                Long2ObjectMap<BlockModel> models = worldModels == null ? null : worldModels.get(chunkKey);
+                if (models != null) {
+                    for (BlockModel model : models.values()) {
+                        destroyed.add(model.entityId);
+                    }
+                }
+            }
+        }
+
+        if (!destroyed.isEmpty()) {
+            PacketEvents.getAPI().getPlayerManager().sendPacket(player, new WrapperPlayServerDestroyEntities(destroyed.toIntArray()));
+        }
 
-            this.entity = world.spawn(entityLoc, ItemDisplay.class, i -> {
-                i.setItemStack(item);
-                i.setPersistent(true);
-                i.setInvulnerable(true);
-                i.setGravity(false);
-                i.setSilent(true);
-            });
+        if (worldModels == null || worldModels.isEmpty()) {
+            return;
         }
 
-        public void breakBlock() {
-            if (entity != null) {
-                entity.remove();
-                entity = null;
+        for (int chunkX = centerX - viewDistance; chunkX <= centerX + viewDistance; chunkX++) {
+            for (int chunkZ = centerZ - viewDistance; chunkZ <= centerZ + viewDistance; chunkZ++) {
+                long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+                Long2ObjectMap<BlockModel> models = worldModels.get(chunkKey);
+                if (models != null && viewer.shownChunks.add(chunkKey)) {
+                    for (BlockModel model : models.values()) {
+                        model.spawn(player);
+                    }
+                }
             }
+        }
+    }
+
+    private synchronized void forgetView(UUID player) {
+        viewers.remove(player);
+    }
+
+    private void addModel(World world, int x, int y, int z, ItemStack item) {
+        long chunkKey = Chunk.getChunkKey(x >> 4, z >> 4);
+        BlockModel model = new BlockModel(x, y, z, item, itemDisplayItemIndex);
+        BlockModel replaced = blockModels.computeIfAbsent(world, _ -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(chunkKey, _ -> new Long2ObjectOpenHashMap<>())
+                .put(Block.getBlockKey(x, y, z), model);
+
+        forEachViewer(world, chunkKey, player -> {
+            if (replaced != null) {
+                replaced.destroy(player);
+            }
+            model.spawn(player);
+        });
+    }
+
+    private void removeModel(World world, int x, int y, int z) {
+        Long2ObjectMap<Long2ObjectMap<BlockModel>> worldModels = blockModels.get(world);
+        if (worldModels == null) {
+            return;
+        }
+
+        long chunkKey = Chunk.getChunkKey(x >> 4, z >> 4);
+        Long2ObjectMap<BlockModel> models = worldModels.get(chunkKey);
+        BlockModel model = models == null ? null : models.remove(Block.getBlockKey(x, y, z));
+        if (model == null) {
+            return;
+        }
+
+        forEachViewer(world, chunkKey, model::destroy);
+        if (models.isEmpty()) {
+            // keeps the chunk shown to its viewers, it has nothing to spawn or destroy anymore
+            worldModels.remove(chunkKey);
+        }
+    }
+
+    private void forEachViewer(World world, long chunkKey, Consumer<Player> action) {
+        for (Map.Entry<UUID, Viewer> entry : viewers.entrySet()) {
+            Viewer viewer = entry.getValue();
+            if (viewer.world != world || !viewer.shownChunks.contains(chunkKey)) {
+                continue;
+            }
+
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player != null) {
+                action.accept(player);
+            }
+        }
+    }
+
+    /**
+     * The world and chunks whose models a player has been sent.
+     */
+    private static class Viewer {
+        private final LongSet shownChunks = new LongOpenHashSet();
+        private World world;
+    }
+
+    /**
+     * The model of a placed block, an item display existing only on the clients it has been sent to.
+     */
+    private static class BlockModel {
+        private final int entityId = SpigotReflectionUtil.generateEntityId();
+        private final UUID entityUUID = UUID.randomUUID();
+        private final Vector3d position;
+        private final List<EntityData> metadata;
+
+        public BlockModel(int x, int y, int z, ItemStack item, int itemIndex) {
+            this.position = new Vector3d(x + 0.5, y + 0.5, z + 0.5);
+            this.metadata = List.of(new EntityData(itemIndex, EntityDataTypes.ITEMSTACK, SpigotConversionUtil.fromBukkitItemStack(item)));
+        }
+
+        public void spawn(Player player) {
+            var playerManager = PacketEvents.getAPI().getPlayerManager();
+            playerManager.sendPacket(player, new WrapperPlayServerSpawnEntity(
+                    entityId, Optional.of(entityUUID), EntityTypes.ITEM_DISPLAY, position, 0, 0, 0, 0, Optional.empty()));
+            playerManager.sendPacket(player, new WrapperPlayServerEntityMetadata(entityId, metadata));
+        }
 
-            World world = loc.getWorld();
-            world.setBlockData(loc, BROKEN_MATERIAL.createBlockData());
+        public void destroy(Player player) {
+            PacketEvents.getAPI().getPlayerManager().sendPacket(player, new WrapperPlayServerDestroyEntities(entityId));
         }
     }
 }
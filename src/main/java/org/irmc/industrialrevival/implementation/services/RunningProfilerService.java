@@ -1,5 +1,7 @@
 package org.irmc.industrialrevival.implementation.services;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import lombok.Getter;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.HoverEvent;
@@ -11,6 +13,8 @@ import org.bukkit.NamespacedKey;
 import org.irmc.industrialrevival.api.timings.ProfiledBlock;
 import org.irmc.industrialrevival.api.objects.ChunkPosition;
 import org.irmc.industrialrevival.api.timings.PerformanceSummary;
+import org.irmc.industrialrevival.api.timings.TimingAccumulator;
+import org.irmc.industrialrevival.api.timings.TimingStatistics;
 import org.irmc.industrialrevival.api.timings.TimingViewRequest;
 import org.irmc.industrialrevival.core.services.IRunningProfilerService;
 import org.irmc.industrialrevival.core.task.TickerTask;
@@ -22,6 +26,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -31,16 +36,32 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Profiles the ticking blocks by sampling.
+ * <p>
+ * Profiling is off by default: a tick is only timed when a timing view has been requested, or every
+ * {@code options.profiler.sample-interval} ticks if that is configured. The ticker records the timings of
+ * sampled ticks into preallocated primitive accumulators (per item here, per chunk and block in the ticking index),
+ * and a {@link PerformanceSummary} is only built from them when a timing view is waiting or
+ * {@link #SAMPLES_PER_SUMMARY} ticks have been sampled.
+ * </p>
+ */
 @SuppressWarnings("unused")
 public class RunningProfilerService implements IRunningProfilerService {
     private static final int MAX_ITEMS = 20;
+    private static final int SAMPLES_PER_SUMMARY = 20;
     public final Queue<TimingViewRequest> requests = new ConcurrentLinkedQueue<>();
-    public final Map<ProfiledBlock, Long> profilingData = new ConcurrentHashMap<>();
-    public final Map<Location, Long> startTimes = new ConcurrentHashMap<>();
+    private final int sampleInterval = Math.max(0, IndustrialRevival.getInstance().getConfig().getInt("options.profiler.sample-interval", 0));
+    // only accessed by the ticker thread
+    private final Object2IntMap<NamespacedKey> itemSlots = new Object2IntOpenHashMap<>();
+    private final List<NamespacedKey> slotItems = new ArrayList<>();
+    private final TimingAccumulator itemTimings = new TimingAccumulator(64);
+    @Getter
+    private volatile int sampledTicks = 0;
     @Getter
     private final TickerTask task = new TickerTask(IndustrialRevival.getInstance().getConfig().getInt("options.armor-check-interval", 20));
     @Getter
-    public PerformanceSummary summary = new PerformanceSummary(getProfilingData(), new HashMap<>(), new HashMap<>(), new HashMap<>(), 0);
+    public volatile PerformanceSummary summary = new PerformanceSummary(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), 0);
 
     public void requestTimingView(@NotNull TimingViewRequest request) {
         if (!requests.add(request)) {
@@ -50,7 +71,9 @@ public class RunningProfilerService implements IRunningProfilerService {
 
     @Nullable
     public TimingViewRequest pullTimingViewRequest() {
-        if (requests.isEmpty()) {
+        TimingViewRequest head = requests.peek();
+        if (head == null || head.getRequestTime() > summary.getCreatedTime()) {
+            // the summary answering this request has not been published yet
             return null;
         }
 
@@ -80,12 +103,12 @@ public class RunningProfilerService implements IRunningProfilerService {
             return;
         }
 
-        Map<ProfiledBlock, Long> data = getProfilingData();
-        @NotNull Map<NamespacedKey, Long> dataByID = getProfilingDataByID();
-        Map<ChunkPosition, Long> dataByChunk = getProfilingDataByChunk();
-        Map<String, Long> dataByPlugin = getProfilingDataByPlugin();
-        long tt = dataByChunk.values().stream().mapToLong(Long::longValue).sum();
-        this.summary = new PerformanceSummary(data, dataByID, dataByChunk, dataByPlugin, tt);
+        PerformanceSummary summary = this.summary;
+        Map<NamespacedKey, Long> dataByID = summary.getDataByID();
+        Map<NamespacedKey, TimingStatistics> statisticsByID = summary.getStatisticsByID();
+        Map<ChunkPosition, Long> dataByChunk = summary.getDataByChunk();
+        Map<String, Long> dataByPlugin = summary.getDataByPlugin();
+        long tt = summary.getTotalTime();
 
         List<NamespacedKey> sortedID = dataByID.entrySet().stream()
                 .sorted(Map.Entry.comparingByValue(Long::compareTo))
@@ -98,9 +121,10 @@ public class RunningProfilerService implements IRunningProfilerService {
                 break;
             }
             long totalTime = dataByID.get(id);
+            TimingStatistics statistics = statisticsByID.get(id);
             String idFormat = MessageFormat.format(
-                    "{0} - total: {1} | avg: {2}",
-                    id, totalTime, totalTime / getTotalMachine(id));
+                    "{0} - total: {1} | avg: {2} | max: {3}",
+                    id, totalTime, statistics == null ? 0 : statistics.getAverageTime(), statistics == null ? 0 : statistics.maxTime());
             idBuilder.append(idFormat).append("\n");
             got++;
         }
@@ -143,6 +167,7 @@ public class RunningProfilerService implements IRunningProfilerService {
         //TODO: localization
         request.getRequester().sendMessage("§a====== Profiling Data ======");
         request.getRequester().sendMessage("§aTick count: " + task.getTicked());
+        request.getRequester().sendMessage("§aSampled ticks: " + summary.getSampledTicks());
         request.getRequester().sendMessage("§aTotal time: " + NumberUtil.round(NumberUtil.ns2Ms(tt), 2));
         request.getRequester().sendMessage("§aInterval:" + task.getCheckInterval());
         request.getRequester().sendMessage("§aTPS: " + Arrays.toString(Bukkit.getTPS()));
@@ -152,26 +177,59 @@ public class RunningProfilerService implements IRunningProfilerService {
         request.getRequester().sendMessage(getHoverComponent("§a" + dataByPlugin.size() + " Plugins (Hover for details)", pluginBuilder.toString()));
     }
 
-    public void startProfiling(Location location) {
-        startTimes.put(location, System.nanoTime());
+    @Override
+    public void clearProfilingData() {
+        sampledTicks = 0;
+        this.summary = new PerformanceSummary(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), 0);
     }
 
-    public void stopProfiling(Location location) {
-        long endTime = System.nanoTime();
-        long startTime = startTimes.get(location);
-        long timeTaken = endTime - startTime;
-        ProfiledBlock profiledBlock = new ProfiledBlock(location);
-        profilingData.put(profiledBlock, timeTaken);
-        startTimes.remove(location);
+    @Override
+    public boolean shouldProfile(long tick) {
+        return !requests.isEmpty() || (sampleInterval > 0 && tick % sampleInterval == 0);
     }
 
-    public void clearProfilingData() {
-        profilingData.clear();
-        startTimes.clear();
+    @Override
+    public int getItemSlot(@NotNull NamespacedKey id) {
+        int slot = itemSlots.getOrDefault(id, -1);
+        if (slot == -1) {
+            slot = slotItems.size();
+            slotItems.add(id);
+            itemSlots.put(id, slot);
+        }
+        return slot;
+    }
+
+    @Override
+    public void recordItemTiming(int slot, long nanos) {
+        itemTimings.record(slot, nanos);
+    }
+
+    @Override
+    public boolean completeSample() {
+        sampledTicks++;
+        return !requests.isEmpty() || sampledTicks >= SAMPLES_PER_SUMMARY;
+    }
+
+    @Override
+    public @NotNull Map<NamespacedKey, TimingStatistics> drainItemStatistics() {
+        Map<NamespacedKey, TimingStatistics> statistics = new HashMap<>();
+        for (int slot = 0; slot < slotItems.size(); slot++) {
+            if (itemTimings.getCount(slot) > 0) {
+                statistics.put(slotItems.get(slot), itemTimings.toStatistics(slot));
+            }
+        }
+        itemTimings.reset();
+        return statistics;
+    }
+
+    @Override
+    public void publishSummary(@NotNull PerformanceSummary summary) {
+        this.summary = summary;
+        sampledTicks = 0;
     }
 
     public @NotNull Map<ProfiledBlock, Long> getProfilingData() {
-        return new ConcurrentHashMap<>(profilingData);
+        return new HashMap<>(summary.getData());
     }
 
     @Override
@@ -181,35 +239,17 @@ public class RunningProfilerService implements IRunningProfilerService {
 
     @NotNull
     public Map<NamespacedKey, Long> getProfilingDataByID() {
-        Map<ProfiledBlock, Long> profilingData = getProfilingData();
-        Map<NamespacedKey, Long> profilingDataByID = new ConcurrentHashMap<>();
-        for (ProfiledBlock profiledBlock : profilingData.keySet()) {
-            NamespacedKey id = profiledBlock.getItem().getId();
-            profilingDataByID.merge(id, profilingData.get(profiledBlock), Long::sum);
-        }
-        return profilingDataByID;
+        return new HashMap<>(summary.getDataByID());
     }
 
     @NotNull
     public Map<ChunkPosition, Long> getProfilingDataByChunk() {
-        Map<ProfiledBlock, Long> profilingData = getProfilingData();
-        Map<ChunkPosition, Long> profilingDataByChunk = new ConcurrentHashMap<>();
-        for (ProfiledBlock profiledBlock : profilingData.keySet()) {
-            ChunkPosition chunkPosition = new ChunkPosition(profiledBlock.getLocation());
-            profilingDataByChunk.merge(chunkPosition, profilingData.get(profiledBlock), Long::sum);
-        }
-        return profilingDataByChunk;
+        return new HashMap<>(summary.getDataByChunk());
     }
 
     @NotNull
     public Map<String, Long> getProfilingDataByPlugin() {
-        Map<ProfiledBlock, Long> profilingData = getProfilingData();
-        Map<String, Long> profilingDataByPlugin = new ConcurrentHashMap<>();
-        for (ProfiledBlock profiledBlock : profilingData.keySet()) {
-            String pluginName = profiledBlock.getPlugin();
-            profilingDataByPlugin.merge(pluginName, profilingData.get(profiledBlock), Long::sum);
-        }
-        return profilingDataByPlugin;
+        return new HashMap<>(summary.getDataByPlugin());
     }
 
     @NotNull
@@ -229,7 +269,7 @@ public class RunningProfilerService implements IRunningProfilerService {
         Map<ProfiledBlock, Long> profilingData = getProfilingData();
         Map<ProfiledBlock, Long> profilingDataByChunk = new ConcurrentHashMap<>();
         for (ProfiledBlock profiledBlock : profilingData.keySet()) {
-            if (new ChunkPosition(profiledBlock.getLocation()).equals(chunkPosition)) {
+            if (profiledBlock.getChunkPosition().equals(chunkPosition)) {
                 profilingDataByChunk.put(profiledBlock, profilingData.get(profiledBlock));
             }
         }
@@ -249,14 +289,12 @@ public class RunningProfilerService implements IRunningProfilerService {
     }
 
     public int getTotalMachine(@NotNull NamespacedKey id) {
-        Map<ProfiledBlock, Long> profiledLocations = getProfilingData();
-        int totalAmount = 0;
-        for (ProfiledBlock profiledBlock : profiledLocations.keySet()) {
-            if (profiledBlock.getItem().getId().equals(id)) {
-                totalAmount += profiledLocations.get(profiledBlock);
-            }
+        PerformanceSummary summary = this.summary;
+        TimingStatistics statistics = summary.getStatisticsByID().get(id);
+        if (statistics == null) {
+            return 0;
         }
 
-        return totalAmount;
+        return (int) (statistics.count() / Math.max(1, summary.getSampledTicks()));
     }
 }
@@ -20,17 +20,41 @@ import org.irmc.industrialrevival.implementation.IndustrialRevival;
 import org.irmc.industrialrevival.utils.Constants;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 //todo: move to implementation
 public class SQLDataManager implements ISQLDataManager {
+    private static final String BLOCKS_TABLE = "blocks";
+    private static final String BLOCKS_CHUNK_INDEX = "idx_blocks_chunk";
+    // REPLACE is understood by SQLite, MySQL and MariaDB alike
+    private static final String SAVE_BLOCK = "REPLACE INTO " + BLOCKS_TABLE + " (" + BlockRecord.COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_BLOCK = "DELETE FROM " + BLOCKS_TABLE + " WHERE world = ? AND x = ? AND y = ? AND z = ?";
+    private static final String RESEARCHES_TABLE = "player_researches";
+    private static final String RESEARCH_UUID_COLUMN = "playerUUID";
+    private static final String INSERT_RESEARCH = "INSERT INTO " + RESEARCHES_TABLE + " (" + RESEARCH_UUID_COLUMN + ", namespacedKey) VALUES (?, ?)";
+    private static final String DELETE_RESEARCH = "DELETE FROM " + RESEARCHES_TABLE + " WHERE " + RESEARCH_UUID_COLUMN + " = ? AND namespacedKey = ?";
     private final DatabaseConnection connection;
+    private final DatabaseType type;
+    // whether MDatabase stores the player UUIDs of the researches as bytes instead of as text
+    private boolean binaryResearchUUID;
     private final Logger LOGGER = IndustrialRevival.getInstance().getLogger();
+    private final BlockRecordWriteQueue writeQueue;
 
     public SQLDataManager(IIndustrialRevivalPlugin plugin) {
         ConfigurationSection section = plugin.getConfig().getConfigurationSection("storage");
@@ -49,6 +73,7 @@ public class SQLDataManager implements ISQLDataManager {
 
         if (Strings.isNullOrEmpty(host)) {
             LOGGER.warning("Remote database host is not set, using sqlite instead.");
+            type = DatabaseType.SQLITE;
             conn = SQLConnections.sqlite(Constants.Files.SQLITE_DB_FILE.getAbsolutePath(), new DatabaseParameters());
         } else {
             switch (type) {
@@ -56,19 +81,31 @@ public class SQLDataManager implements ISQLDataManager {
                         conn = SQLConnections.mysql(host, port, database, username, password, new DatabaseParameters());
                 case MARIADB ->
                         conn = SQLConnections.mariadb(host, port, database, username, password, new DatabaseParameters());
-                default ->
-                        conn = SQLConnections.sqlite(Constants.Files.SQLITE_DB_FILE.getAbsolutePath(), new DatabaseParameters());
+                default -> {
+                    type = DatabaseType.SQLITE;
+                    conn = SQLConnections.sqlite(Constants.Files.SQLITE_DB_FILE.getAbsolutePath(), new DatabaseParameters());
+                }
             }
         }
 
+        this.type = type;
         connection = conn;
         connection.setDebug(true);
+
+        writeQueue = new BlockRecordWriteQueue(
+                this::writeBlockRecords,
+                LOGGER,
+                section.getInt("write-behind.max-pending", 20000),
+                section.getInt("write-behind.batch-size", 500),
+                section.getLong("write-behind.flush-interval-ms", 1000));
     }
 
     public void init() {
         try {
             connection.createTableByClass(BlockRecord.class);
             connection.createTableByClass(PlayerResearchRecord.class);
+            migrateBlocksTable();
+            binaryResearchUUID = isBinaryColumn(RESEARCHES_TABLE, RESEARCH_UUID_COLUMN);
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, """
                     ========================= FATAL ERROR
@@ -82,7 +119,64 @@ public class SQLDataManager implements ISQLDataManager {
         }
     }
 
+    /**
+     * Brings a {@code blocks} table created by an older version up to date.
+     * {@link DatabaseConnection#createTableByClass(Class)} only creates missing tables,
+     * so columns added to {@link BlockRecord} since have to be added here, before any record is written.
+     */
+    private void migrateBlocksTable() throws SQLException {
+        try (Connection conn = connection.getConnection(); Statement statement = conn.createStatement()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            Set<String> columns = new HashSet<>();
+            try (ResultSet result = metaData.getColumns(conn.getCatalog(), null, BLOCKS_TABLE, null)) {
+                while (result.next()) {
+                    columns.add(result.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+
+            addColumnIfMissing(statement, columns, "chunkX", "INT");
+            addColumnIfMissing(statement, columns, "chunkZ", "INT");
+            // BLOB is limited to 64 KiB on MySQL and MariaDB
+            addColumnIfMissing(statement, columns, "binaryData", type == DatabaseType.SQLITE ? "BLOB" : "LONGBLOB");
+
+            boolean hasChunkIndex = false;
+            try (ResultSet result = metaData.getIndexInfo(conn.getCatalog(), null, BLOCKS_TABLE, false, false)) {
+                while (result.next()) {
+                    hasChunkIndex |= BLOCKS_CHUNK_INDEX.equalsIgnoreCase(result.getString("INDEX_NAME"));
+                }
+            }
+
+            if (!hasChunkIndex) {
+                LOGGER.info("Adding index " + BLOCKS_CHUNK_INDEX + " to table " + BLOCKS_TABLE);
+                statement.executeUpdate("CREATE INDEX " + BLOCKS_CHUNK_INDEX + " ON " + BLOCKS_TABLE + " (world, chunkX, chunkZ)");
+            }
+        }
+    }
+
+    private void addColumnIfMissing(Statement statement, Set<String> columns, String column, String sqlType) throws SQLException {
+        if (columns.contains(column.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+
+        LOGGER.info("Adding column " + column + " to table " + BLOCKS_TABLE);
+        statement.executeUpdate("ALTER TABLE " + BLOCKS_TABLE + " ADD COLUMN " + column + " " + sqlType);
+    }
+
+    private boolean isBinaryColumn(String table, String column) throws SQLException {
+        try (Connection conn = connection.getConnection();
+             ResultSet result = conn.getMetaData().getColumns(conn.getCatalog(), null, table, null)) {
+            while (result.next()) {
+                if (column.equalsIgnoreCase(result.getString("COLUMN_NAME"))) {
+                    int dataType = result.getInt("DATA_TYPE");
+                    return dataType == Types.BINARY || dataType == Types.VARBINARY || dataType == Types.LONGVARBINARY || dataType == Types.BLOB;
+                }
+            }
+        }
+        return false;
+    }
+
     public @NotNull List<BlockRecord> getAllBlockRecords() {
+        writeQueue.flush();
         try {
             return connection.selectMulti(BlockRecord.class);
         } catch (SQLException e) {
@@ -91,22 +185,95 @@ public class SQLDataManager implements ISQLDataManager {
         }
     }
 
+    @Override
+    public @NotNull List<BlockRecord> getBlockRecordsInChunk(@NotNull String world, int chunkX, int chunkZ) {
+        writeQueue.flush();
+        try {
+            return connection.selectMulti(BlockRecord.class,
+                    Conditions.and(
+                            Conditions.eq("world", world),
+                            Conditions.eq("chunkX", chunkX),
+                            Conditions.eq("chunkZ", chunkZ)));
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get block records in chunk!", e);
+            return new ArrayList<>();
+        }
+    }
+
     public void close() {
+        writeQueue.shutdown();
         try {
             connection.close();
         } catch (SQLException _) {
         }
     }
 
+    /**
+     * Queues a block record to be saved by the storage thread.
+     * Repeated saves of the same block before it is written are coalesced.
+     *
+     * @param record the block record to save
+     */
     public void saveBlockRecord(@NotNull BlockRecord record) {
-        try {
-            connection.upsertObject(BlockRecord.class, record);
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to save block record!", e);
+        writeQueue.save(record);
+    }
+
+    /**
+     * Waits until all queued block records have been written to the database.
+     */
+    @Override
+    public void flushBlockRecords() {
+        writeQueue.flush();
+    }
+
+    /**
+     * Writes a batch of block records as JDBC batches in one transaction, MDatabase has no batch statement.
+     * A batch holds at most one write per block, so the order of deletes and saves does not matter.
+     */
+    private void writeBlockRecords(@NotNull List<BlockRecordWriteQueue.PendingWrite> writes) throws SQLException {
+        try (Connection conn = connection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement save = conn.prepareStatement(SAVE_BLOCK);
+                 PreparedStatement delete = conn.prepareStatement(DELETE_BLOCK)) {
+                int saves = 0;
+                int deletes = 0;
+                for (BlockRecordWriteQueue.PendingWrite write : writes) {
+                    if (write.isDelete()) {
+                        BlockRecordWriteQueue.BlockKey key = write.key();
+                        BlockRecord.bindKey(delete, 1, key.world(), key.x(), key.y(), key.z());
+                        delete.addBatch();
+                        deletes++;
+                    } else {
+                        write.record().bind(save, 1);
+                        save.addBatch();
+                        saves++;
+                    }
+                }
+
+                if (deletes > 0) {
+                    delete.executeBatch();
+                }
+                if (saves > 0) {
+                    save.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                // the connection goes back to the pool
+                conn.setAutoCommit(autoCommit);
+            }
         }
     }
 
     public BlockRecord getBlockRecord(Location loc) {
+        BlockRecordWriteQueue.PendingWrite pending = writeQueue.getPending(loc);
+        if (pending != null) {
+            return pending.record();
+        }
+
         try {
             return connection.selectOne(BlockRecord.class,
                     Conditions.and(
@@ -123,15 +290,7 @@ public class SQLDataManager implements ISQLDataManager {
 
     @Override
     public void deleteBlockRecord(@NotNull Location loc) {
-        try {
-            connection.deleteObject(BlockRecord.class, Conditions.and(
-                    Conditions.eq("world", loc.getWorld().getName()),
-                    Conditions.eq("x", loc.getBlockX()),
-                    Conditions.eq("y", loc.getBlockY()),
-                    Conditions.eq("z", loc.getBlockZ())));
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to delete block data", e);
-        }
+        writeQueue.delete(loc);
     }
 
     public @NotNull List<PlayerResearchRecord> getPlayerResearchRecord(@NotNull UUID playerUUID) {
@@ -159,6 +318,60 @@ public class SQLDataManager implements ISQLDataManager {
         }
     }
 
+    /**
+     * Writes the research changes as one batch of deletes and one batch of inserts in one transaction,
+     * the rows of unchanged researches are not touched.
+     */
+    @Override
+    public void updatePlayerResearchRecords(@NotNull UUID playerUUID, @NotNull Collection<NamespacedKey> researched, @NotNull Collection<NamespacedKey> unresearched) {
+        if (researched.isEmpty() && unresearched.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = connection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(DELETE_RESEARCH);
+                 PreparedStatement insert = conn.prepareStatement(INSERT_RESEARCH)) {
+                for (NamespacedKey key : unresearched) {
+                    addResearch(delete, playerUUID, key);
+                }
+                for (NamespacedKey key : researched) {
+                    // the research may have been saved before it was taken back and researched again
+                    addResearch(delete, playerUUID, key);
+                    addResearch(insert, playerUUID, key);
+                }
+
+                delete.executeBatch();
+                if (!researched.isEmpty()) {
+                    insert.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                // the connection goes back to the pool
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save research data", e);
+        }
+    }
+
+    private void addResearch(PreparedStatement statement, UUID playerUUID, NamespacedKey key) throws SQLException {
+        if (binaryResearchUUID) {
+            statement.setBytes(1, ByteBuffer.allocate(16)
+                    .putLong(playerUUID.getMostSignificantBits())
+                    .putLong(playerUUID.getLeastSignificantBits())
+                    .array());
+        } else {
+            statement.setString(1, playerUUID.toString());
+        }
+        statement.setString(2, key.asString());
+        statement.addBatch();
+    }
+
     @NotNull
     public ConfigurationSection getBlockData(Location loc) {
         BlockRecord record = getBlockRecord(loc);
@@ -176,15 +389,6 @@ public class SQLDataManager implements ISQLDataManager {
     }
 
     public void handleBlockBreaking(@NotNull Location location) {
-        try {
-            connection.deleteObject(BlockRecord.class, Conditions.and(
-                    Conditions.eq("world", location.getWorld().getName()),
-                    Conditions.eq("x", location.getBlockX()),
-                    Conditions.eq("y", location.getBlockY()),
-                    Conditions.eq("z", location.getBlockZ())
-            ));
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to handle block breaking!", e);
-        }
+        writeQueue.delete(location);
     }
 }
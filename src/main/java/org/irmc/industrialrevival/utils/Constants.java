@@ -294,6 +294,11 @@ public class Constants {
          * The file for storing all the block / player data for SQLite
          */
         public static final File SQLITE_DB_FILE = new File(Constants.Files.STORAGE_FOLDER, "database.db");
+
+        /**
+         * The file for storing all the placed pipes
+         */
+        public static final File PIPES_FILE = new File(Constants.Files.STORAGE_FOLDER, "pipes.dat");
         //</editor-fold>
     }
 
@@ -1,5 +1,6 @@
 package org.irmc.industrialrevival.utils;
 
+import com.google.common.base.Preconditions;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Location;
@@ -54,6 +55,17 @@ public class DataUtil {
         return IndustrialRevival.getInstance().getDataManager().getBlockData(location);
     }
 
+    /**
+     * Retrieves the IRBlockData associated with the block, without allocating its location.
+     *
+     * @param block The block.
+     * @return The IRBlockData associated with the block, or null if no data is found.
+     */
+    @Nullable
+    public static IRBlockData getBlockData(@NotNull Block block) {
+        return IndustrialRevival.getInstance().getDataManager().getBlockData(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
     /**
      * Sets a key-value pair in the block's configuration data at the specified location.
      *
@@ -62,7 +74,7 @@ public class DataUtil {
      * @param value    The value to associate with the key.
      */
     public static void setData(@NotNull Location location, @NotNull String key, String value) {
-        getBlockData(location).getConfig().set(key, value);
+        getBlockData(location).setData(key, value);
     }
 
     /**
@@ -91,11 +103,14 @@ public class DataUtil {
     /**
      * Associates the specified IRBlockData with the block at the given location.
      *
-     * @param location  The location of the block.
+     * @param location  The location of the block, must be the location of the block data.
      * @param blockData The IRBlockData to associate with the block.
+     * @throws IllegalArgumentException if the block data belongs to another location
      */
-    public static void setBlockData(Location location, IRBlockData blockData) {
-        IndustrialRevival.getInstance().getDataManager().getBlockDataMap().put(location, blockData);
+    public static void setBlockData(@NotNull Location location, @NotNull IRBlockData blockData) {
+        Preconditions.checkArgument(location.toBlockLocation().equals(blockData.getLocation().toBlockLocation()),
+                "The block data belongs to another location");
+        IndustrialRevival.getInstance().getDataManager().setBlockData(blockData);
     }
 
     /**
@@ -7,6 +7,7 @@ import org.bukkit.damage.DamageType;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.*;
+import org.irmc.industrialrevival.api.objects.ItemFingerprint;
 import org.jetbrains.annotations.Contract;
 
 import javax.annotation.Nonnull;
@@ -150,6 +151,16 @@ public final class ItemUtils {
             return item1.hasItemMeta() == item2.hasItemMeta();
         }
 
+        // Different IndustrialRevival ids mean different PDCs, read without cloning the metas
+        if (!Objects.equals(ItemFingerprint.idOf(item1), ItemFingerprint.idOf(item2))) {
+            return false;
+        }
+
+        // Identical components pass every check below, compared without cloning the metas
+        if (item1.isSimilar(item2)) {
+            return true;
+        }
+
         // Now we need to compare meta's directly - cache is already out, but let's fetch the 2nd meta also
         final ItemMeta itemMeta = item1.getItemMeta();
         final ItemMeta cachedMeta = item2.getItemMeta();